@@ -15,6 +15,14 @@ repositories {
     mavenCentral()
 }
 
+// JMH benchmarks live in src/jmh/java and see everything main does; run with ./gradlew jmh
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[jmh.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
 spotless {
     java {
         googleJavaFormat("1.19.2")
@@ -47,13 +55,50 @@ dependencies {
 
     testImplementation("org.quickfixj:quickfixj-core:2.3.2")
     testImplementation("org.slf4j:slf4j-simple:1.6.1")
+
+    // --- benchmarks ---
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
 
 tasks.test {
     useJUnitPlatform()
 }
 
+/*
+ * ./gradlew jmh                                  all benchmarks
+ * ./gradlew jmh -Pjmh.include=PipelineBenchmark  regex over benchmark names
+ * ./gradlew jmh -Pjmh.args="-f 1 -wi 2"          extra JMH options
+ *
+ * The gc profiler is always on: gc.alloc.rate.norm (bytes per op) is the
+ * number to watch for allocation regressions.  Results also go to
+ * build/reports/jmh/results.json.
+ */
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks with the GC/allocation profiler."
+    dependsOn(jmh.classesTaskName)
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+
+    val results = layout.buildDirectory.file("reports/jmh/results.json")
+    doFirst { results.get().asFile.parentFile.mkdirs() }
+    args(providers.gradleProperty("jmh.include").getOrElse(".*Benchmark.*"))
+    args("-prof", "gc", "-rf", "json", "-rff", results.get().asFile.path)
+    providers.gradleProperty("jmh.args").orNull?.let { args(it.split(" ").filter(String::isNotBlank)) }
+}
+
 application {
     mainClass.set("com.ubs.trading.Main")
 }
 
+// ./gradlew loadgen -Ploadgen.args="rates=100000,1000000 duration=5"  (see LoadGen)
+tasks.register<JavaExec>("loadgen") {
+    group = "application"
+    description = "Open-loop rate sweep; writes build/reports/loadgen/latency.csv."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("com.ubs.trading.loadgen.LoadGen")
+    workingDir = projectDir
+    providers.gradleProperty("loadgen.args").orNull?.let { args(it.split(" ").filter(String::isNotBlank)) }
+}
+
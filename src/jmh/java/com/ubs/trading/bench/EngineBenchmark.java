@@ -0,0 +1,101 @@
+package com.ubs.trading.bench;
+
+import com.ubs.trading.core.Dispatcher;
+import com.ubs.trading.core.DisruptorEngine;
+import com.ubs.trading.core.DisruptorEngine.WaitStrategyType;
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full publish → Disruptor → Dispatcher → pipeline → send path, by wait strategy and ring
+ * size.
+ *
+ * <ul>
+ *   <li>{@code burst}: publish {@value #BURST} messages and wait until all are sent; reported per
+ *       message, i.e. sustained throughput.
+ *   <li>{@code roundTrip}: one message at a time, publish until sent; the consumer wakes up for
+ *       every message, so this is where the wait strategies differ most.
+ * </ul>
+ *
+ * The producer publishes a constant payload, so {@code gc.alloc.rate.norm} is the engine's own
+ * allocation per message. {@code BUSY_SPIN} needs a spare core for the consumer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+
+  static final int BURST = 1_000;
+  private static final String PAYLOAD = "35=D|11=ORD-1|55=VOD.L|54=1|38=100";
+
+  @Param({"BUSY_SPIN", "YIELDING", "SLEEPING", "BLOCKING"})
+  WaitStrategyType waitStrategy;
+
+  @Param({"1024", "65536"})
+  int ringSize;
+
+  private final AtomicLong sent = new AtomicLong();
+  private DisruptorEngine<String> engine;
+  private MetricsRecorder metrics;
+  private long published;
+
+  @Setup
+  public void setUp() {
+    metrics = new MetricsRecorder(new SimpleMeterRegistry());
+    Dispatcher<Void, String> dispatcher =
+        new Dispatcher<>(
+            Pipeline.build("bench", true, String::strip),
+            metrics,
+            m -> sent.lazySet(sent.get() + 1)); // single consumer thread
+    engine =
+        DisruptorEngine.<String>builder()
+            .ringSize(ringSize)
+            .waitStrategy(waitStrategy)
+            .daemon(true)
+            .handler(dispatcher)
+            .metrics(metrics)
+            .build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    engine.shutdown();
+    metrics.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BURST)
+  public void burst() {
+    for (int i = 0; i < BURST; i++) engine.publish(PAYLOAD);
+    awaitSent(published += BURST);
+  }
+
+  @Benchmark
+  public void roundTrip() {
+    engine.publish(PAYLOAD);
+    awaitSent(++published);
+  }
+
+  private void awaitSent(long target) {
+    while (sent.get() < target) Thread.onSpinWait();
+  }
+}
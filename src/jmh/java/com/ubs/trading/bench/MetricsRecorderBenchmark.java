@@ -0,0 +1,69 @@
+package com.ubs.trading.bench;
+
+import com.ubs.trading.metrics.LatencyHistogram;
+import com.ubs.trading.metrics.MetricsRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hot-path cost of {@link MetricsRecorder}: one histogram record, and the {@code nanoTime} +
+ * record pairs the dispatcher makes per message. Run with {@code -t 4} to see contention on the
+ * shared histogram.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsRecorderBenchmark {
+
+  private MetricsRecorder metrics;
+  private LatencyHistogram histogram;
+  private long value = 1;
+
+  @Setup
+  public void setUp() {
+    metrics = new MetricsRecorder(new SimpleMeterRegistry());
+    histogram = metrics.histogram("bench.latency");
+  }
+
+  @TearDown
+  public void tearDown() {
+    metrics.close();
+  }
+
+  /** Values spread over several octaves so different buckets are hit. */
+  @Benchmark
+  public void histogramRecord() {
+    long v = value;
+    value = v * 6364136223846793005L + 1442695040888963407L;
+    histogram.record((v >>> 44) + 1);
+  }
+
+  @Benchmark
+  public void recordProcessing() {
+    metrics.recordProcessing(System.nanoTime());
+  }
+
+  /** Everything {@code Dispatcher} records for one message. */
+  @Benchmark
+  public void dispatcherPath() {
+    long t0 = metrics.markIngest();
+    long tStart = metrics.markProcessingStart();
+    metrics.recordQueueWait(t0, tStart);
+    metrics.recordProcessing(tStart);
+    metrics.recordEndToEnd(t0);
+  }
+}
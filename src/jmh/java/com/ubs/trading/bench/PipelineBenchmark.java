@@ -0,0 +1,85 @@
+package com.ubs.trading.bench;
+
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link Pipeline#execute} by step count, error mode and sampling.
+ *
+ * <p>{@code inPlace} mutates one resident order and should report {@code gc.alloc.rate.norm ≈ 0};
+ * {@code transform} allocates one order per step, the pattern in-place stages exist to avoid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+  /** Mutable payload, as held in a ring slot. */
+  public static final class Order {
+    long qty;
+    long price;
+
+    Order(long qty, long price) {
+      this.qty = qty;
+      this.price = price;
+    }
+  }
+
+  @Param({"1", "4", "8", "16"})
+  int steps;
+
+  @Param({"true", "false"})
+  boolean shortCircuit;
+
+  /** 0: plain; n: {@link Pipeline#instrument} sampling every n-th message. */
+  @Param({"0", "64"})
+  int sampleEvery;
+
+  private Pipeline<Order> inPlace;
+  private Pipeline<Order> transform;
+  private final Order order = new Order(100, 10_000);
+
+  @Setup
+  public void setUp() {
+    Pipeline<Order> p = Pipeline.named("in-place", shortCircuit);
+    Pipeline<Order> t = Pipeline.named("transform", shortCircuit);
+    for (int i = 0; i < steps; i++) {
+      long delta = i + 1;
+      p = p.addInPlace(o -> o.qty ^= delta);
+      t = t.addAction(o -> new Order(o.qty ^ delta, o.price));
+    }
+    if (sampleEvery > 0) {
+      MetricsRecorder metrics = new MetricsRecorder(new SimpleMeterRegistry());
+      p = p.instrument(metrics, sampleEvery);
+      t = t.instrument(metrics, sampleEvery);
+    }
+    inPlace = p.compile();
+    transform = t.compile();
+  }
+
+  @Benchmark
+  public Order inPlace() {
+    return inPlace.execute(order);
+  }
+
+  @Benchmark
+  public Order transform() {
+    return transform.execute(order);
+  }
+}
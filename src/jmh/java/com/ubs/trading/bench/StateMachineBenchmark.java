@@ -0,0 +1,76 @@
+package com.ubs.trading.bench;
+
+import com.ubs.trading.pipeline.Pipeline;
+import com.ubs.trading.statemachine.StateMachine;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link StateMachine#onEvent} for the map-backed and the compiled table, driven round an order
+ * life cycle so every call is a valid transition.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateMachineBenchmark {
+
+  enum OrdState {
+    NEW,
+    PENDING,
+    LIVE,
+    DONE
+  }
+
+  enum Event {
+    SUBMIT,
+    ACK,
+    FILL,
+    DONE,
+    RESET
+  }
+
+  private static final Event[] CYCLE = {
+    Event.SUBMIT, Event.ACK, Event.FILL, Event.DONE, Event.RESET
+  };
+
+  @Param({"dynamic", "compiled"})
+  String form;
+
+  private StateMachine<OrdState, Event> fsm;
+
+  @Setup
+  public void setUp() {
+    Pipeline<Event> p = Pipeline.named("noop");
+    StateMachine<OrdState, Event> m =
+        new StateMachine<OrdState, Event>(OrdState.NEW)
+            .add(OrdState.NEW, Event.SUBMIT, OrdState.PENDING, p)
+            .add(OrdState.PENDING, Event.ACK, OrdState.LIVE, p)
+            .add(OrdState.LIVE, Event.FILL, OrdState.LIVE, p)
+            .add(OrdState.LIVE, Event.DONE, OrdState.DONE, p)
+            .add(OrdState.DONE, Event.RESET, OrdState.NEW, p);
+    fsm = form.equals("compiled") ? m.compile(Event::ordinal, Event.values().length) : m;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(5)
+  public void onEvent(Blackhole bh) {
+    for (Event e : CYCLE) {
+      bh.consume(fsm.onEvent(e));
+    }
+  }
+}
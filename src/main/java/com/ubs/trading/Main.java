@@ -94,7 +94,7 @@ public final class Main {
 
         /* 3.5  Latency snapshot */
         System.out.println(
-                "End‑to‑end latency snapshot:\n" +
-                        reg.get("msg.e2e.latency").timer().takeSnapshot());
+                "End‑to‑end latency snapshot:\n" + m.endToEnd().snapshot());
+        m.close();
     }
 }
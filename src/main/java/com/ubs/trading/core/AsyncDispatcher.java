@@ -0,0 +1,381 @@
+package com.ubs.trading.core;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.TimeoutHandler;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.ubs.trading.core.Dispatcher.MessageSender;
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * {@link Dispatcher} for pipelines with {@link Pipeline#addAsync async}
+ * steps: the consumer thread runs a message up to its next async step,
+ * starts the call and moves on to the next message.  When the call
+ * completes, a continuation event is published back into the engine and
+ * the message resumes at the following step – on the consumer thread
+ * again, so steps never race each other.
+ *
+ * <pre>{@code
+ * ExecutorService io = Executors.newVirtualThreadPerTaskExecutor();
+ * Pipeline<Order> orders = Pipeline.<Order>named("orders")
+ *         .addAction(validate)
+ *         .addAsync("credit", creditService::check, io)    // blocking call, off the ring
+ *         .addAction(enrich);
+ *
+ * AsyncDispatcher<String, Order> async = AsyncDispatcher.<String, Order>builder()
+ *         .pipeline(orders)
+ *         .key(Order::account)
+ *         .maxInFlight(1_024)
+ *         .metrics(metrics, "orders")
+ *         .sender(sender)
+ *         .build();
+ * DisruptorEngine<Order> engine = DisruptorEngine.<Order>builder()
+ *         .producerType(ProducerType.MULTI)                 // completions publish too
+ *         .handler(async)
+ *         .metrics(metrics)
+ *         .build();
+ * async.bind(engine);
+ * }</pre>
+ *
+ * <p><b>Ordering.</b>  Messages with equal keys leave in arrival order: while
+ * one is parked, later ones for its key queue behind it, whole, and start
+ * when it finishes.  Messages of other keys overtake it.
+ *
+ * <p><b>Bound.</b>  At most {@code maxInFlight} messages are parked – waiting
+ * for a call or queued behind their key.  A message that would exceed it
+ * makes the consumer thread wait for completions, which pushes back on the
+ * ring and its producers.  Every completion is also queued in memory and
+ * drained at the end of each batch, on wait-strategy timeouts and while
+ * waiting, so progress never depends on free ring slots; the continuation
+ * event (see {@link EventEnvelope#isContinuation()}) is skipped if the
+ * message has already been resumed that way.  Several async dispatchers
+ * may consume one engine in parallel; each resumes only its own
+ * continuations.
+ *
+ * <p><b>Failures.</b>  In short-circuit pipelines a failing step or call
+ * drops the message and counts it; the messages queued behind it proceed.
+ * Lenient pipelines skip a failed call and go on with its input.  Give
+ * calls a timeout ({@code orTimeout}) – a call that never completes keeps
+ * its key blocked and its in-flight slot taken.
+ *
+ * <p>Needs a {@link ProducerType#MULTI} engine without resident payloads.
+ * Handlers in front of it see continuation events and should skip them;
+ * {@link Dispatcher}, {@link KeyedDispatcher}, {@link PipelineStage} and
+ * the journal handler do.  Parked messages are
+ * not drained by {@link DisruptorEngine#shutdown()}: wait for
+ * {@link #inFlight()} to reach zero first.
+ *
+ * <p>Meters, tagged {@code dispatcher}: gauge {@code msg.async.inflight},
+ * counters {@code msg.async.calls} and {@code msg.async.failed}.
+ *
+ * @param <K> ordering key type
+ * @param <T> payload type
+ */
+public final class AsyncDispatcher<K, T> implements EventHandler<EventEnvelope<T>>, TimeoutHandler {
+
+    private static final int SPINS = 1_000;
+    private static final long WAIT_PARK_NANOS = 50_000;
+
+    private final Pipeline<T> pipeline;
+    private final int lastSegment;
+    private final Function<? super T, ? extends K> key;
+    private final int maxInFlight;
+    private final MetricsRecorder metrics;
+    private final Outbound<T> outbound;
+
+    /* consumer thread only; a key maps to null until a second message queues behind the first */
+    private final Map<K, ArrayDeque<Parked<K, T>>> busyKeys = new HashMap<>();
+
+    private final ConcurrentLinkedQueue<Completion<K, T>> completed = new ConcurrentLinkedQueue<>();
+    private final AtomicLong inFlight = new AtomicLong();      // written by the consumer thread only
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private DisruptorEngine<T> engine;
+    private volatile Thread waiter;                  // consumer thread while it waits for capacity
+
+    private AsyncDispatcher(Builder<K, T> b) {
+        this.pipeline = Objects.requireNonNull(b.pipeline, "pipeline").compile();
+        this.lastSegment = pipeline.segments() - 1;
+        this.key = Objects.requireNonNull(b.key, "key");
+        if (b.maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be ≥ 1: " + b.maxInFlight);
+        this.maxInFlight = b.maxInFlight;
+        this.metrics = Objects.requireNonNull(b.metrics, "metrics");
+        this.outbound = new Outbound<>(Objects.requireNonNull(b.sender, "sender"), metrics);
+
+        metrics.gauge("msg.async.inflight", inFlight, AtomicLong::get, "dispatcher", b.name);
+        metrics.counter("msg.async.calls", calls, AtomicLong::get, "dispatcher", b.name);
+        metrics.counter("msg.async.failed", failed, AtomicLong::get, "dispatcher", b.name);
+    }
+
+    public static <K, T> Builder<K, T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * The engine this dispatcher consumes from, where continuations are
+     * published; call once, before publishing any message.
+     */
+    public void bind(DisruptorEngine<T> engine) {
+        Objects.requireNonNull(engine, "engine");
+        if (this.engine != null) throw new IllegalStateException("already bound");
+        if (engine.producerType() != ProducerType.MULTI)
+            throw new IllegalArgumentException("continuations need a ProducerType.MULTI engine");
+        if (engine.isResident())
+            throw new IllegalArgumentException("parked messages cannot live in resident ring slots");
+        this.engine = engine;
+    }
+
+    /* ------------------------------------------------------------- */
+    /*  Consumer thread                                               */
+    /* ------------------------------------------------------------- */
+
+    @Override
+    public void onEvent(EventEnvelope<T> env, long seq, boolean endOfBatch) {
+        if (env.isContinuation()) {
+            Completion<?, ?> c = (Completion<?, ?>) env.continuation();
+            if (c.owner == this) {                   // parallel async dispatchers see each other's
+                @SuppressWarnings("unchecked")
+                Completion<K, T> done = (Completion<K, T>) c;
+                if (!done.resumed) resume(done);
+            }
+        } else if (!env.isDiscarded()) {
+            accept(env);
+        }
+        if (endOfBatch) {
+            drainCompleted();
+            outbound.flush();
+        }
+    }
+
+    @Override
+    public void onTimeout(long sequence) {
+        drainCompleted();
+        outbound.flush();
+    }
+
+    private void accept(EventEnvelope<T> env) {
+        if (engine == null) throw new IllegalStateException("bind(engine) before publishing");
+        long t0 = env.getIngestNanos();
+        long tStart = metrics.markProcessingStart();
+        metrics.recordQueueWait(t0, tStart);
+
+        T payload = env.getPayload();
+        env.clear();
+        awaitCapacity();
+
+        K k = key.apply(payload);
+        Parked<K, T> p = new Parked<>(k, payload, t0);
+        inFlight.lazySet(inFlight.get() + 1);
+        ArrayDeque<Parked<K, T>> behind = busyKeys.get(k);
+        if (behind == null && busyKeys.containsKey(k)) {
+            behind = new ArrayDeque<>();
+            busyKeys.put(k, behind);
+        }
+        if (behind != null) {
+            behind.addLast(p);                       // starts when the key's earlier messages are done
+        } else {
+            busyKeys.put(k, null);
+            run(p, payload);
+        }
+        metrics.recordProcessing(tStart);
+    }
+
+    /* a completed call, on the consumer thread */
+    private void resume(Completion<K, T> done) {
+        done.resumed = true;
+        long tStart = metrics.markProcessingStart();
+        Parked<K, T> p = done.parked;
+        if (done.error != null && pipeline.shortCircuit()) {
+            run(finish(p, false), null);
+        } else {
+            T value = done.error == null ? done.result : p.value;   // lenient: the failed call is skipped
+            p.segment++;
+            run(p, value);
+        }
+        metrics.recordProcessing(tStart);
+    }
+
+    /*
+     * Runs p from its current segment until a call is started or the
+     * pipeline ends; a finished message hands over to the next one of its key.
+     */
+    private void run(Parked<K, T> p, T value) {
+        while (p != null) {
+            if (value == null) value = p.value;      // a queued message starts from its payload
+            try {
+                value = pipeline.executeSegment(p.segment, value);
+                if (p.segment == lastSegment) {
+                    outbound.send(value, false);
+                    metrics.recordEndToEnd(p.ingestNanos);
+                    p = finish(p, true);
+                    value = null;
+                    continue;
+                }
+                p.value = value;
+                CompletionStage<T> call = pipeline.callAsync(p.segment, value);
+                calls.lazySet(calls.get() + 1);
+                Parked<K, T> parked = p;
+                call.whenComplete((result, error) -> complete(parked, result, error));
+                return;
+            } catch (RuntimeException e) {
+                if (pipeline.shortCircuit() || p.segment == lastSegment) {
+                    p = finish(p, false);
+                    value = null;
+                } else {
+                    p.segment++;                     // lenient: the call could not even start
+                }
+            }
+        }
+    }
+
+    /* @return the next message of p's key, or null */
+    private Parked<K, T> finish(Parked<K, T> p, boolean ok) {
+        if (!ok) failed.lazySet(failed.get() + 1);
+        inFlight.lazySet(inFlight.get() - 1);
+        ArrayDeque<Parked<K, T>> behind = busyKeys.get(p.key);
+        Parked<K, T> next = behind != null ? behind.pollFirst() : null;
+        if (next == null) busyKeys.remove(p.key);
+        return next;
+    }
+
+    private void drainCompleted() {
+        Completion<K, T> done;
+        while ((done = completed.poll()) != null) {
+            if (!done.resumed) resume(done);
+        }
+    }
+
+    private void awaitCapacity() {
+        int round = 0;
+        while (inFlight.get() >= maxInFlight) {
+            if (!completed.isEmpty()) {
+                drainCompleted();
+                round = 0;
+            } else if (++round < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                waiter = Thread.currentThread();
+                if (completed.isEmpty()) LockSupport.parkNanos(WAIT_PARK_NANOS);
+                waiter = null;
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------- */
+    /*  Completing thread                                             */
+    /* ------------------------------------------------------------- */
+
+    private void complete(Parked<K, T> p, T result, Throwable error) {
+        Completion<K, T> done = new Completion<>(this, p, result, error);
+        completed.offer(done);
+        engine.tryPublishContinuation(done, p.ingestNanos);   // a full ring leaves it to the drain
+        Thread w = waiter;
+        if (w != null) LockSupport.unpark(w);
+    }
+
+    /* ------------------------------------------------------------- */
+
+    /** Messages parked: waiting for a call or queued behind their key. */
+    public long inFlight() {
+        return inFlight.get();
+    }
+
+    /** Async calls started. */
+    public long calls() {
+        return calls.get();
+    }
+
+    /** Messages dropped because a step or call failed. */
+    public long failed() {
+        return failed.get();
+    }
+
+    /* one message between segments; consumer thread only */
+    private static final class Parked<K, T> {
+        final K key;
+        final long ingestNanos;
+        T value;                                     // input of the running or next call
+        int segment;
+
+        Parked(K key, T value, long ingestNanos) {
+            this.key = key;
+            this.value = value;
+            this.ingestNanos = ingestNanos;
+        }
+    }
+
+    /* one call's outcome; published to the consumer through the queue and the ring */
+    private static final class Completion<K, T> {
+        final AsyncDispatcher<K, T> owner;
+        final Parked<K, T> parked;
+        final T result;
+        final Throwable error;
+        boolean resumed;                             // consumer thread only
+
+        Completion(AsyncDispatcher<K, T> owner, Parked<K, T> parked, T result, Throwable error) {
+            this.owner = owner;
+            this.parked = parked;
+            this.result = result;
+            this.error = error;
+        }
+    }
+
+    /* ------------------------------------------------------------- */
+    /*  Builder                                                       */
+    /* ------------------------------------------------------------- */
+
+    public static final class Builder<K, T> {
+        private Pipeline<T> pipeline;
+        private Function<? super T, ? extends K> key;
+        private int maxInFlight = 1_024;
+        private MetricsRecorder metrics;
+        private String name = "async";
+        private MessageSender<T> sender;
+
+        private Builder() { }
+
+        public Builder<K, T> pipeline(Pipeline<T> pipeline) {
+            this.pipeline = pipeline;
+            return this;
+        }
+
+        /** Ordering key, e.g. account or ClOrdID; equal keys keep their order. */
+        public Builder<K, T> key(Function<? super T, ? extends K> key) {
+            this.key = key;
+            return this;
+        }
+
+        /** Maximum parked messages (default 1024). */
+        public Builder<K, T> maxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /** Latency metrics as for {@link Dispatcher}; the async meters are tagged {@code dispatcher=name}. */
+        public Builder<K, T> metrics(MetricsRecorder metrics, String name) {
+            this.metrics = metrics;
+            this.name = Objects.requireNonNull(name, "name");
+            return this;
+        }
+
+        public Builder<K, T> sender(MessageSender<T> sender) {
+            this.sender = sender;
+            return this;
+        }
+
+        public AsyncDispatcher<K, T> build() {
+            return new AsyncDispatcher<>(this);
+        }
+    }
+}
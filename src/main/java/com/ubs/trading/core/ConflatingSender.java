@@ -0,0 +1,292 @@
+package com.ubs.trading.core;
+
+import com.ubs.trading.core.Dispatcher.BatchingMessageSender;
+import com.ubs.trading.core.Dispatcher.MessageSender;
+import com.ubs.trading.metrics.MetricsRecorder;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BinaryOperator;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link MessageSender} that keeps at most one pending message per key and
+ * delivers the freshest one on its own thread.
+ *
+ * <pre>{@code
+ * ConflatingSender<Quote> conflator = ConflatingSender.<Quote>builder()
+ *         .keys(instruments.size())
+ *         .key(q -> q.instrumentId)          // dense, in [0, keys)
+ *         .downstream(socketSender)
+ *         .metrics(metrics, "md-out")
+ *         .build();
+ * new Dispatcher<>(pipeline, metrics, conflator);
+ * }</pre>
+ *
+ * While the downstream keeps up, every message is delivered.  When it lags,
+ * a new message for a key that is still pending replaces it – or is merged
+ * into it, see {@link Builder#merge} – in a pre-allocated slot table, so
+ * outbound volume is capped at one message per key per delivery and a slow
+ * consumer sees current values instead of a backlog of stale ones.
+ *
+ * <p>Keys become "dirty" at most once until delivered; their indices go
+ * through a single-producer/single-consumer queue sized for every key, so
+ * the send path is a slot CAS and, for a newly dirty key, one queue write –
+ * no locks, no allocation, never blocks.  One thread may call
+ * {@link #send} (a {@link Dispatcher}'s consumer thread, say); use one
+ * instance per partition with a {@link PartitionedEngine}.
+ *
+ * <p>A message is delivered later, from the delivery thread, so
+ * {@link #send} must not be handed an object that is reused: a
+ * resident-payload engine's slot, or a payload an
+ * {@link com.ubs.trading.pipeline.Pipeline#addInPlace in-place} pipeline
+ * mutates.  Give such senders a {@link Builder#copy copy} function, which
+ * runs on the sending thread before the message is stored.
+ *
+ * <p>A {@link BatchingMessageSender} downstream is flushed whenever the
+ * queue runs empty or after {@code maxBatchSize()} deliveries.  A message
+ * whose delivery throws, or a flush that throws, is counted and dropped;
+ * delivery goes on.
+ *
+ * <p>Counters: {@code msg.conflated} (replaced or merged before delivery),
+ * {@code msg.conflation.delivered} and {@code msg.conflation.failed},
+ * tagged {@code sender}.
+ *
+ * @param <T> payload type
+ */
+public final class ConflatingSender<T> implements MessageSender<T>, AutoCloseable {
+
+    private static final int SPINS = 1_000;
+    private static final long IDLE_PARK_NANOS = 50_000;
+
+    private final ToIntFunction<? super T> key;
+    private final BinaryOperator<T> merge;          // null: newest replaces
+    private final UnaryOperator<T> copy;            // null: messages are stored as sent
+    private final MessageSender<T> downstream;
+    private final BatchingMessageSender<T> batching;
+    private final AtomicReferenceArray<T> slots;
+
+    /* SPSC queue of dirty keys; holds each key at most once, so never overflows */
+    private final int[] dirty;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();   // producer
+    private final AtomicLong head = new AtomicLong();   // delivery thread
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong conflated = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private final Thread delivery;
+    private volatile boolean running = true;
+
+    private ConflatingSender(Builder<T> b) {
+        if (b.keys < 1) throw new IllegalArgumentException("keys must be ≥ 1: " + b.keys);
+        this.key = Objects.requireNonNull(b.key, "key");
+        this.downstream = Objects.requireNonNull(b.downstream, "downstream");
+        this.batching = downstream instanceof BatchingMessageSender<T> s ? s : null;
+        this.merge = b.merge;
+        this.copy = b.copy;
+        this.slots = new AtomicReferenceArray<>(b.keys);
+        int capacity = Integer.highestOneBit(b.keys - 1 | 1) << 1;   // power of two ≥ keys
+        this.dirty = new int[capacity];
+        this.mask = capacity - 1;
+
+        if (b.metrics != null) {
+            b.metrics.counter("msg.conflated", conflated, AtomicLong::get, "sender", b.name);
+            b.metrics.counter("msg.conflation.delivered", delivered, AtomicLong::get, "sender", b.name);
+            b.metrics.counter("msg.conflation.failed", failed, AtomicLong::get, "sender", b.name);
+        }
+        delivery = new Thread(this::deliverLoop, b.name + "-conflator");
+        delivery.setDaemon(true);
+        delivery.start();
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Stores {@code msg} as its key's pending value; returns immediately.
+     *
+     * @throws IllegalArgumentException if the key is outside {@code [0, keys)}
+     */
+    @Override
+    public void send(T msg) {
+        int k = key.applyAsInt(msg);
+        if (k < 0 || k >= slots.length()) throw badKey(k);
+        received.lazySet(received.get() + 1);
+
+        T own = copy == null ? msg : copy.apply(msg);
+        T prev;
+        T next;
+        do {
+            prev = slots.get(k);
+            next = prev == null || merge == null ? own : merge.apply(prev, own);
+        } while (!slots.compareAndSet(k, prev, next));   // fails only if delivery took the slot
+
+        if (prev == null) {
+            long t = tail.get();
+            dirty[(int) t & mask] = k;
+            tail.lazySet(t + 1);                      // publishes the queue entry
+        } else {
+            conflated.lazySet(conflated.get() + 1);
+        }
+    }
+
+    /** Messages passed to {@link #send}. */
+    public long received() {
+        return received.get();
+    }
+
+    /** Messages replaced or merged into a pending one instead of being delivered. */
+    public long conflated() {
+        return conflated.get();
+    }
+
+    /** Messages handed to the downstream sender. */
+    public long delivered() {
+        return delivered.get();
+    }
+
+    /** Deliveries and downstream flushes that threw; the messages are dropped. */
+    public long failed() {
+        return failed.get();
+    }
+
+    /** Delivers what is pending, then stops the delivery thread. */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(delivery);
+        try {
+            delivery.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* ------------------------------------------------------------- */
+    /*  Delivery thread                                               */
+    /* ------------------------------------------------------------- */
+
+    private void deliverLoop() {
+        int idle = 0;
+        int unflushed = 0;
+        int maxBatch = batching == null ? Integer.MAX_VALUE : batching.maxBatchSize();
+        while (true) {
+            long h = head.get();
+            if (h == tail.get()) {
+                if (unflushed > 0) {
+                    flushDownstream();
+                    unflushed = 0;
+                }
+                if (!running) return;
+                idle(++idle);
+                continue;
+            }
+            idle = 0;
+            int k = dirty[(int) h & mask];
+            head.lazySet(h + 1);
+            T msg = slots.getAndSet(k, null);       // clears the key: next send re-queues it
+
+            try {
+                downstream.send(msg);
+                delivered.lazySet(delivered.get() + 1);
+            } catch (RuntimeException e) {
+                failed.lazySet(failed.get() + 1);
+                continue;
+            }
+            if (batching != null && ++unflushed >= maxBatch) {
+                flushDownstream();
+                unflushed = 0;
+            }
+        }
+    }
+
+    /* a failed flush loses the batch downstream, not the delivery thread */
+    private void flushDownstream() {
+        try {
+            batching.flush();
+        } catch (RuntimeException e) {
+            failed.lazySet(failed.get() + 1);
+        }
+    }
+
+    private static void idle(int round) {
+        if (round < SPINS) Thread.onSpinWait();
+        else if (round < SPINS + 100) Thread.yield();
+        else LockSupport.parkNanos(IDLE_PARK_NANOS);
+    }
+
+    private IllegalArgumentException badKey(int k) {
+        return new IllegalArgumentException("key out of range [0, " + slots.length() + "): " + k);
+    }
+
+    /* ------------------------------------------------------------- */
+    /*  Builder                                                       */
+    /* ------------------------------------------------------------- */
+
+    public static final class Builder<T> {
+        private int keys;
+        private ToIntFunction<? super T> key;
+        private BinaryOperator<T> merge;
+        private UnaryOperator<T> copy;
+        private MessageSender<T> downstream;
+        private MetricsRecorder metrics;
+        private String name = "conflating";
+
+        private Builder() { }
+
+        /** Number of distinct keys; sizes the slot table and queue. */
+        public Builder<T> keys(int keys) {
+            this.keys = keys;
+            return this;
+        }
+
+        /** Dense key of a message, in {@code [0, keys)}. */
+        public Builder<T> key(ToIntFunction<? super T> key) {
+            this.key = key;
+            return this;
+        }
+
+        /**
+         * Combines a pending message with a newer one for the same key, e.g.
+         * to accumulate traded volume; may run more than once per message, so
+         * it must be free of side effects.  Default: the newer one replaces.
+         */
+        public Builder<T> merge(BinaryOperator<T> merge) {
+            this.merge = merge;
+            return this;
+        }
+
+        /**
+         * Copies each message on the sending thread before it is stored;
+         * required when the sent objects are reused, e.g. resident ring
+         * payloads.  Default: the message itself is stored.
+         */
+        public Builder<T> copy(UnaryOperator<T> copy) {
+            this.copy = copy;
+            return this;
+        }
+
+        public Builder<T> downstream(MessageSender<T> downstream) {
+            this.downstream = downstream;
+            return this;
+        }
+
+        /** Registers the counters under {@code sender=name}; also names the thread. */
+        public Builder<T> metrics(MetricsRecorder metrics, String name) {
+            this.metrics = metrics;
+            this.name = Objects.requireNonNull(name, "name");
+            return this;
+        }
+
+        public ConflatingSender<T> build() {
+            return new ConflatingSender<>(this);
+        }
+    }
+}
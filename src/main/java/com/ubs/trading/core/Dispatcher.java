@@ -3,6 +3,8 @@ package com.ubs.trading.core;
 import com.lmax.disruptor.EventHandler;
 import com.ubs.trading.metrics.MetricsRecorder;
 import com.ubs.trading.pipeline.Pipeline;
+import com.ubs.trading.pipeline.PipelineRegistry;
+import com.ubs.trading.pipeline.PipelineRouter;
 import com.ubs.trading.statemachine.StateMachine;
 
 import java.util.Objects;
@@ -13,9 +15,17 @@ import java.util.function.Function;
  * records latency metrics, and forwards the transformed payload to a downstream
  * channel via a {@link MessageSender}.
  *
- * Two operating modes:
+ * A {@link BatchingMessageSender} is flushed once per Disruptor batch
+ * rather than per message.
+ *
+ * Four operating modes:
  *  1. fixed pipeline               – ctor with a single Pipeline<T>
  *  2. state‑machine‑driven pipeline – ctor with StateMachine<S,E>
+ *  3. registry slot                – ctor with a PipelineRegistry<T> handle;
+ *     re-read per message, so a hot swap applies from the next message on;
+ *     messages meeting an empty slot are skipped and counted ({@link #skipped()})
+ *  4. content-based router         – ctor with a PipelineRouter<T>; stateless
+ *     selection by a key extracted from each message
  *
  * @param <S> state-machine state type
  * @param <T> payload type flowing through the pipeline
@@ -25,11 +35,30 @@ public final class Dispatcher<S, T> implements EventHandler<EventEnvelope<T>> {
     @FunctionalInterface
     public interface MessageSender<T> { void send(T msg); }
 
+    /**
+     * Sender that buffers {@link #send}s (e.g. into one socket write or file
+     * block) and emits them on {@link #flush}.  The dispatcher flushes when
+     * the Disruptor reports the end of a batch – so an idle ring never holds
+     * messages back – or after {@link #maxBatchSize} sends, whichever is first.
+     */
+    public interface BatchingMessageSender<T> extends MessageSender<T> {
+
+        void flush();
+
+        /** Upper bound on sends between flushes; must be ≥ 1. */
+        default int maxBatchSize() { return Integer.MAX_VALUE; }
+    }
+
     private final MetricsRecorder metrics;
-    private final MessageSender<T> sender;
+    private final Outbound<T> outbound;
 
     private final Pipeline<T>          fixedPipeline;
     private final StateMachine<S, T>   stateMachine;
+    private final PipelineRegistry<T>  registry;
+    private final int                  handle;
+    private final PipelineRouter<T>    router;
+
+    private long skipped;                            // consumer thread only
 
     /* fixed‑pipeline ctor */
     public Dispatcher(Pipeline<T> pipeline,
@@ -37,8 +66,11 @@ public final class Dispatcher<S, T> implements EventHandler<EventEnvelope<T>> {
                       MessageSender<T> sender) {
         this.fixedPipeline = Objects.requireNonNull(pipeline);
         this.metrics = Objects.requireNonNull(metrics);
-        this.sender  = Objects.requireNonNull(sender);
+        this.outbound = new Outbound<>(Objects.requireNonNull(sender), metrics);
         this.stateMachine = null;
+        this.registry = null;
+        this.handle = -1;
+        this.router = null;
     }
 
     /* state‑machine ctor */
@@ -47,25 +79,75 @@ public final class Dispatcher<S, T> implements EventHandler<EventEnvelope<T>> {
                       MessageSender<T> sender) {
         this.stateMachine = Objects.requireNonNull(fsm);
         this.metrics = Objects.requireNonNull(metrics);
-        this.sender  = Objects.requireNonNull(sender);
+        this.outbound = new Outbound<>(Objects.requireNonNull(sender), metrics);
+        this.fixedPipeline = null;
+        this.registry = null;
+        this.handle = -1;
+        this.router = null;
+    }
+
+    /* registry ctor; the slot may still be empty – messages are skipped until it is filled */
+    public Dispatcher(PipelineRegistry<T> registry,
+                      int handle,
+                      MetricsRecorder metrics,
+                      MessageSender<T> sender) {
+        this.registry = Objects.requireNonNull(registry);
+        if (!registry.isValid(handle))
+            throw new IllegalArgumentException("unknown registry handle: " + handle);
+        this.handle = handle;
+        this.metrics = Objects.requireNonNull(metrics);
+        this.outbound = new Outbound<>(Objects.requireNonNull(sender), metrics);
         this.fixedPipeline = null;
+        this.stateMachine = null;
+        this.router = null;
+    }
+
+    /* router ctor */
+    public Dispatcher(PipelineRouter<T> router,
+                      MetricsRecorder metrics,
+                      MessageSender<T> sender) {
+        this.router = Objects.requireNonNull(router);
+        this.metrics = Objects.requireNonNull(metrics);
+        this.outbound = new Outbound<>(Objects.requireNonNull(sender), metrics);
+        this.fixedPipeline = null;
+        this.stateMachine = null;
+        this.registry = null;
+        this.handle = -1;
     }
 
     @Override
     public void onEvent(EventEnvelope<T> env, long seq, boolean endOfBatch) {
+        if (!env.isMessage()) {                     // translator threw, or an async continuation
+            if (endOfBatch) outbound.flush();
+            return;
+        }
         long t0 = env.getIngestNanos();
         long tStart = metrics.markProcessingStart();
+        metrics.recordQueueWait(t0, tStart);
 
         Pipeline<T> pipeline =
                 stateMachine != null ? stateMachine.onEvent(env.getPayload())
+                        : router != null ? router.select(env.getPayload())
+                        : registry != null ? registry.get(handle)
                         : fixedPipeline;
+        if (pipeline == null) {                     // registry slot not filled (yet)
+            skipped++;
+            env.clear();
+            if (endOfBatch) outbound.flush();
+            return;
+        }
 
         T out = pipeline.execute(env.getPayload());
 
         metrics.recordProcessing(tStart);
         metrics.recordEndToEnd(t0);
 
-        sender.send(out);
+        outbound.send(out, endOfBatch);
         env.clear();
     }
+
+    /** Messages dropped because the registry slot was empty; consumer thread, or after shutdown. */
+    public long skipped() {
+        return skipped;
+    }
 }
@@ -2,62 +2,801 @@ package com.ubs.trading.core;
 
 import com.lmax.disruptor.*;
 import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.EventHandlerGroup;
 import com.lmax.disruptor.dsl.ProducerType;
+import com.ubs.trading.core.Dispatcher.MessageSender;
 import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
 
-import java.util.concurrent.Executors;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 /**
  * Generic Disruptor wrapper:
  *
  *   • {@code T} is the payload type carried by {@code EventEnvelope<T>}.
  *   • Publishes events in a type-safe way, no raw casts.
+ *   • Producer type, wait strategy and consumer threads are chosen through
+ *     {@link #builder()}; the plain constructor keeps the original
+ *     single-producer / blocking defaults.
+ *   • {@code publish*} methods wait for free slots; {@code tryPublish*}
+ *     methods never block and count rejected messages instead.
+ *   • With {@link Builder#payloadFactory} every envelope owns a pre-allocated
+ *     mutable payload: producers fill it through a {@link PayloadTranslator},
+ *     pipeline stages mutate it in place, and a message allocates nothing.
+ *   • {@link Builder#then} chains further consumer stages, each handler on
+ *     its own thread: several handlers in one stage run in parallel on the
+ *     same slots, and the next stage waits for all of them (diamond join).
+ *   • {@link Builder#workerPool} spreads a stateless pipeline over N
+ *     threads, each event handled by exactly one worker; a following
+ *     single-handler stage sees results in publish order again.
+ *   • Ring gauges (free capacity, per-handler lag, batch sizes, busy ratio)
+ *     are registered by default; {@link Builder#stallTimeout} adds a
+ *     watchdog that flags consumers which stop advancing – see
+ *     {@code RingMonitor} for the meter names.
+ *
+ * <pre>{@code
+ * DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+ *         .ringSize(1_024)
+ *         .producerType(ProducerType.MULTI)          // several session threads
+ *         .waitStrategy(WaitStrategyType.BUSY_SPIN)  // dedicated core
+ *         .threadName("fix-in")
+ *         .handler(dispatcher)
+ *         .metrics(metrics)
+ *         .build();
+ *
+ * // decode, then journal ∥ risk, then send once both are done
+ * DisruptorEngine<Order> staged = DisruptorEngine.<Order>builder()
+ *         .handler(PipelineStage.transform(decode))
+ *         .then(PipelineStage.observe(journal), PipelineStage.observe(risk))
+ *         .then(dispatcher)
+ *         .metrics(metrics)
+ *         .build();
+ *
+ * // CPU-heavy transform on 4 threads, resequenced before sending
+ * DisruptorEngine<Quote> pooled = DisruptorEngine.<Quote>builder()
+ *         .workerPool(4, pricing)
+ *         .then(new Dispatcher<>(Pipeline.named("resequence"), metrics, sender))
+ *         .metrics(metrics)
+ *         .build();
+ * }</pre>
  */
 public final class DisruptorEngine<T> {
 
-    private final Disruptor<EventEnvelope<T>> disruptor;
-    private final RingBuffer<EventEnvelope<T>> ring;
-    private final MetricsRecorder metrics;
+    /**
+     * Consumer wait strategies, ordered roughly from lowest latency / highest
+     * CPU burn to highest latency / lowest CPU burn.
+     */
+    public enum WaitStrategyType {
+        /** Spins on the sequence; needs a dedicated (ideally isolated) core. */
+        BUSY_SPIN(BusySpinWaitStrategy::new),
+        /** Spins, then {@code Thread.yield()}; good when cores ≥ consumer threads. */
+        YIELDING(YieldingWaitStrategy::new),
+        /** Spins, yields, then parks for short periods; gentle on shared hosts. */
+        SLEEPING(SleepingWaitStrategy::new),
+        /** Lock + condition variable; lowest CPU, highest wake-up latency. */
+        BLOCKING(BlockingWaitStrategy::new),
+        /**
+         * {@code BLOCKING} that also wakes every millisecond while idle and
+         * calls consumers implementing {@link TimeoutHandler}, e.g. a
+         * {@link KeyedDispatcher} driving timers.
+         */
+        TIMEOUT_BLOCKING(() -> new LiteTimeoutBlockingWaitStrategy(1, TimeUnit.MILLISECONDS)),
+        /** Spins for 10µs, yields for 100µs, then falls back to a lite lock. */
+        PHASED_BACKOFF(() -> PhasedBackoffWaitStrategy.withLiteLock(
+                10, 100, TimeUnit.MICROSECONDS));
 
-    /** Re-usable translator eliminates unchecked calls. */
+        private final Supplier<WaitStrategy> factory;
 
-    private final class Translator implements EventTranslatorTwoArg<EventEnvelope<T>, T, Long> {
+        WaitStrategyType(Supplier<WaitStrategy> factory) { this.factory = factory; }
 
-        @Override
-        public void translateTo(EventEnvelope<T> evt, long seq, T msg, Long ts) {
-            evt.set(msg, ts);
-        }
+        /** A fresh strategy instance; strategies hold per-ring state and are not shared. */
+        public WaitStrategy create() { return factory.get(); }
     }
 
-    private final EventTranslatorTwoArg<EventEnvelope<T>, T, Long> translator = new Translator();
+    /**
+     * Fills a resident payload in place (zero-allocation mode).
+     *
+     * @param <T> payload type
+     * @param <A> source the payload is filled from, e.g. a decoder or buffer
+     */
+    @FunctionalInterface
+    public interface PayloadTranslator<T, A> { void translateTo(T slot, A source); }
+
+    /** Called on the watchdog thread when a consumer stops advancing; see {@link Builder#stallTimeout}. */
+    @FunctionalInterface
+    public interface StallListener { void onStall(String handler, long lagSlots, long stalledNanos); }
 
+    private final Disruptor<EventEnvelope<T>> disruptor;
+    private final RingBuffer<EventEnvelope<T>> ring;
+    private final MetricsRecorder metrics;
+    private final boolean resident;
+    private final ProducerType producerType;
+    private final RingMonitor monitor;
 
     /* ------------------------------------------------------------- */
 
+    /**
+     * Single producer, {@link WaitStrategyType#BLOCKING}, default thread
+     * naming and no ring stats, so several such engines can share a recorder.
+     */
     public DisruptorEngine(int ringSize,
                            EventHandler<EventEnvelope<T>> handler,
                            MetricsRecorder metrics) {
+        this(DisruptorEngine.<T>builder()
+                .ringSize(ringSize)
+                .handler(handler)
+                .ringStats(false)
+                .metrics(metrics));
+    }
+
+    private DisruptorEngine(Builder<T> b) {
 
-        this.metrics = metrics;
+        this.metrics = Objects.requireNonNull(b.metrics, "metrics");
+        if (b.stages.isEmpty()) throw new NullPointerException("handler");
+        checkStages(b.stages);
+        checkTimers(b);
+
+        Supplier<T> payloads = b.payloadFactory;
+        this.resident = payloads != null;
+        this.producerType = b.producerType;
+        boolean staged = b.stages.size() > 1 || b.stages.get(0).parallelism() > 1;
 
         disruptor = new Disruptor<>(
-                EventEnvelope::new,           // factory supplies generic envelope
-                ringSize,
-                Executors.defaultThreadFactory(),
-                ProducerType.SINGLE,
-                new BlockingWaitStrategy());
+                resident                      // factory supplies generic envelope
+                        ? () -> new EventEnvelope<>(payloads.get())
+                        : () -> new EventEnvelope<>(staged),
+                b.ringSize,
+                new EngineThreadFactory(b.threadName, b.threadPriority, b.daemon),
+                b.producerType,
+                b.waitStrategy != null ? b.waitStrategy : b.waitStrategyType.create());
+
+        if (b.ringStats) metrics.claim("ring", b.threadName);
+        boolean built = false;
+        try {
+            EventHandlerGroup<EventEnvelope<T>> group = null;
+            List<RingMonitor.Watched> watched = new ArrayList<>();
+            for (int i = 0; i < b.stages.size(); i++) {
+                Stage<T> stage = b.stages.get(i);
+                if (b.ringStats) {
+                    List<InstrumentedHandler<T>> instrumented = new ArrayList<>();
+                    stage = stage.instrument(i, b.threadName, metrics, instrumented);
+                    LongSupplier upstream = upstream(group);
+                    for (InstrumentedHandler<T> h : instrumented)
+                        watched.add(new RingMonitor.Watched(h, () -> disruptor.getSequenceValueFor(h), upstream));
+                }
+                group = stage.attach(disruptor, group, metrics);
+            }
+            ring = disruptor.start();
 
-        disruptor.handleEventsWith(handler);
-        ring = disruptor.start();
+            monitor = b.ringStats
+                    ? new RingMonitor(b.threadName, ring, watched, metrics, b.stallTimeout, b.stallListener)
+                    : null;
+            built = true;
+        } finally {
+            if (b.ringStats && !built) metrics.release("ring", b.threadName);   // meters registered so far go too
+        }
     }
 
-    /** Publish a payload of type {@code T}. */
+    /* the sequence a stage's handlers may advance to: the previous stage's minimum, or the cursor */
+    private LongSupplier upstream(EventHandlerGroup<EventEnvelope<T>> previous) {
+        if (previous == null) return disruptor.getRingBuffer()::getCursor;
+        SequenceBarrier barrier = previous.asSequenceBarrier();
+        return barrier::getCursor;
+    }
+
+    /* a stage that rewrites the payload would race its parallel siblings */
+    private static <T> void checkStages(List<Stage<T>> stages) {
+        Stage<T> last = stages.get(stages.size() - 1);
+        if (last.handlers == null && last.sender == null)
+            throw new IllegalArgumentException(
+                    "worker pool results are discarded: add a then(...) stage or give the pool a sender");
+
+        for (int i = 0; i < stages.size(); i++) {
+            EventHandler<EventEnvelope<T>>[] stage = stages.get(i).handlers;
+            if (stage == null || stage.length < 2) continue;
+            for (EventHandler<EventEnvelope<T>> h : stage) {
+                if (h instanceof PipelineStage<?> p && p.writesPayload())
+                    throw new IllegalArgumentException(
+                            "stage %d: %s runs in parallel with %d other handlers but writes the payload"
+                                    .formatted(i, p, stage.length - 1));
+            }
+        }
+    }
+
+    /* timers fire at batch ends and in onTimeout, which only a timeout-capable strategy calls */
+    private static <T> void checkTimers(Builder<T> b) {
+        boolean timesOut = b.waitStrategy != null
+                ? b.waitStrategy instanceof LiteTimeoutBlockingWaitStrategy
+                        || b.waitStrategy instanceof TimeoutBlockingWaitStrategy
+                : b.waitStrategyType == WaitStrategyType.TIMEOUT_BLOCKING;
+        if (timesOut) return;
+        for (int i = 0; i < b.stages.size(); i++) {
+            EventHandler<EventEnvelope<T>>[] stage = b.stages.get(i).handlers;
+            if (stage == null) continue;
+            for (EventHandler<EventEnvelope<T>> h : stage) {
+                if (h instanceof KeyedDispatcher<?, ?, ?> k && k.drivesTimers())
+                    throw new IllegalArgumentException(("stage %d: a KeyedDispatcher driving timers needs "
+                            + "WaitStrategyType.TIMEOUT_BLOCKING; its timers would not fire while the ring is idle")
+                            .formatted(i));
+            }
+        }
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /** Publish a payload of type {@code T}; waits while the ring is full. */
     public void publish(T message) {
+        checkNotResident();
+        long t0 = metrics.markIngest();
+        long seq = ring.next();
+        try {
+            ring.get(seq).set(message, t0);
+        } finally {
+            ring.publish(seq);
+        }
+    }
+
+    /**
+     * Publish with a caller-supplied ingest timestamp instead of the clock,
+     * e.g. a recorded one during replay; latency metrics are then relative
+     * to that timestamp.
+     */
+    public void publish(T message, long ingestNanos) {
+        checkNotResident();
+        long seq = ring.next();
+        try {
+            ring.get(seq).set(message, ingestNanos);
+        } finally {
+            ring.publish(seq);
+        }
+    }
+
+    /**
+     * Zero-allocation publish: {@code translator} fills the slot's resident
+     * payload from {@code source}; waits while the ring is full.  If the
+     * translator throws, the slot is published {@link EventEnvelope#isDiscarded
+     * discarded} – handlers skip it – and the exception propagates.
+     */
+    public <A> void publish(PayloadTranslator<T, A> translator, A source) {
+        checkResident();
+        long t0 = metrics.markIngest();
+        fillResident(translator, source, ring.next(), t0);
+    }
+
+    /** {@link #publish(PayloadTranslator, Object)} with a caller-supplied ingest timestamp. */
+    public <A> void publish(PayloadTranslator<T, A> translator, A source, long ingestNanos) {
+        checkResident();
+        fillResident(translator, source, ring.next(), ingestNanos);
+    }
+
+    /** Non-blocking flavour of {@link #publish(PayloadTranslator, Object)}. */
+    public <A> boolean tryPublish(PayloadTranslator<T, A> translator, A source) {
+        checkResident();
+        long t0 = metrics.markIngest();
+        long seq;
+        try {
+            seq = ring.tryNext();
+        } catch (InsufficientCapacityException e) {
+            metrics.recordRejected(1);
+            return false;
+        }
+        fillResident(translator, source, seq, t0);
+        return true;
+    }
+
+    /**
+     * {@link #tryPublish(PayloadTranslator, Object)} with a caller-supplied
+     * ingest timestamp.  A refusal is not counted as rejected; the caller
+     * still holds the source.
+     */
+    public <A> boolean tryPublish(PayloadTranslator<T, A> translator, A source, long ingestNanos) {
+        checkResident();
+        long seq;
+        try {
+            seq = ring.tryNext();
+        } catch (InsufficientCapacityException e) {
+            return false;
+        }
+        fillResident(translator, source, seq, ingestNanos);
+        return true;
+    }
+
+    /**
+     * Publish {@code messages[from .. from+count)} as one claimed sequence range.
+     * All envelopes share a single ingest timestamp; waits while the ring is full.
+     */
+    public void publishBatch(T[] messages, int from, int count) {
+        if (!checkBatch(messages.length, from, count)) return;
+        long t0 = metrics.markIngest();
+        fill(messages, from, count, ring.next(count), t0);
+    }
+
+    /** List flavour of {@link #publishBatch(Object[], int, int)}. */
+    public void publishBatch(List<T> messages, int from, int count) {
+        if (!checkBatch(messages.size(), from, count)) return;
+        long t0 = metrics.markIngest();
+        fill(messages, from, count, ring.next(count), t0);
+    }
+
+    /**
+     * Publish without blocking.
+     *
+     * @return {@code false} (and the message counted as rejected) if the ring is full
+     */
+    public boolean tryPublish(T message) {
+        checkNotResident();
+        long t0 = metrics.markIngest();
+        long seq;
+        try {
+            seq = ring.tryNext();
+        } catch (InsufficientCapacityException e) {
+            metrics.recordRejected(1);
+            return false;
+        }
+        try {
+            ring.get(seq).set(message, t0);
+        } finally {
+            ring.publish(seq);
+        }
+        return true;
+    }
+
+    /**
+     * {@link #tryPublish(Object)} with a caller-supplied ingest timestamp,
+     * e.g. for a message that waited in an overflow queue.  A refusal is not
+     * counted as rejected; the caller still holds the message.
+     */
+    public boolean tryPublish(T message, long ingestNanos) {
+        checkNotResident();
+        long seq;
+        try {
+            seq = ring.tryNext();
+        } catch (InsufficientCapacityException e) {
+            return false;
+        }
+        try {
+            ring.get(seq).set(message, ingestNanos);
+        } finally {
+            ring.publish(seq);
+        }
+        return true;
+    }
+
+    /**
+     * All-or-nothing, non-blocking batch publish.
+     *
+     * @return {@code false} (and all {@code count} messages counted as rejected)
+     *         if fewer than {@code count} slots are free
+     */
+    public boolean tryPublishBatch(T[] messages, int from, int count) {
+        if (!checkBatch(messages.length, from, count)) return true;
         long t0 = metrics.markIngest();
-        ring.publishEvent(translator, message, t0);
+        long hi;
+        try {
+            hi = ring.tryNext(count);
+        } catch (InsufficientCapacityException e) {
+            metrics.recordRejected(count);
+            return false;
+        }
+        fill(messages, from, count, hi, t0);
+        return true;
+    }
+
+    /** List flavour of {@link #tryPublishBatch(Object[], int, int)}. */
+    public boolean tryPublishBatch(List<T> messages, int from, int count) {
+        if (!checkBatch(messages.size(), from, count)) return true;
+        long t0 = metrics.markIngest();
+        long hi;
+        try {
+            hi = ring.tryNext(count);
+        } catch (InsufficientCapacityException e) {
+            metrics.recordRejected(count);
+            return false;
+        }
+        fill(messages, from, count, hi, t0);
+        return true;
+    }
+
+    /** Free slots right now; a hint only, other producers may claim them first. */
+    public long remainingCapacity() {
+        return ring.remainingCapacity();
+    }
+
+    public ProducerType producerType() {
+        return producerType;
+    }
+
+    public MetricsRecorder metrics() {
+        return metrics;
+    }
+
+    /** Published events the slowest terminal consumer has not finished yet; 0 when idle. */
+    public long backlog() {
+        return ring.getCursor() - ring.getMinimumGatingSequence();
+    }
+
+    /**
+     * Whether the stall watchdog currently flags {@code handler}, named as
+     * in the {@code handler} tag of the ring gauges.
+     *
+     * @throws IllegalStateException without {@link Builder#ringStats ring stats}
+     */
+    public boolean isStalled(String handler) {
+        if (monitor == null) throw new IllegalStateException("ring stats are disabled");
+        return monitor.isStalled(handler);
+    }
+
+    /* AsyncDispatcher re-injection; never blocks, refusals are not counted */
+    boolean tryPublishContinuation(Object continuation, long ingestNanos) {
+        long seq;
+        try {
+            seq = ring.tryNext();
+        } catch (InsufficientCapacityException e) {
+            return false;
+        }
+        try {
+            ring.get(seq).resume(continuation, ingestNanos);
+        } finally {
+            ring.publish(seq);
+        }
+        return true;
+    }
+
+    boolean isResident() {
+        return resident;
     }
 
     public void shutdown() {
+        if (monitor != null) monitor.close();
         disruptor.shutdown();
     }
+
+    /* ------------------------------------------------------------- *
+     *  batch helpers
+     * ------------------------------------------------------------- */
+
+    /** @return {@code false} for an empty batch (nothing to do) */
+    private boolean checkBatch(int length, int from, int count) {
+        checkNotResident();
+        Objects.checkFromIndexSize(from, count, length);
+        if (count > ring.getBufferSize())
+            throw new IllegalArgumentException(
+                    "batch of %d exceeds ring size %d".formatted(count, ring.getBufferSize()));
+        return count > 0;
+    }
+
+    /* a claimed slot is always published; one the translator failed on goes out discarded */
+    private <A> void fillResident(PayloadTranslator<T, A> translator, A source, long seq, long t0) {
+        EventEnvelope<T> env = ring.get(seq);
+        boolean filled = false;
+        try {
+            translator.translateTo(env.getPayload(), source);
+            env.stamp(t0);
+            filled = true;
+        } finally {
+            if (!filled) env.discard(t0);
+            ring.publish(seq);
+        }
+    }
+
+    private void checkResident() {
+        if (!resident)
+            throw new IllegalStateException("translator publish needs a payloadFactory-built engine");
+    }
+
+    private void checkNotResident() {
+        if (resident)
+            throw new IllegalStateException("resident-payload engine: publish through a PayloadTranslator");
+    }
+
+    /* the claimed range is always published, even if a slot write fails */
+    private void fill(T[] messages, int from, int count, long hi, long t0) {
+        long lo = hi - count + 1;
+        try {
+            for (int i = 0; i < count; i++) {
+                ring.get(lo + i).set(messages[from + i], t0);
+            }
+        } finally {
+            ring.publish(lo, hi);
+        }
+    }
+
+    private void fill(List<T> messages, int from, int count, long hi, long t0) {
+        long lo = hi - count + 1;
+        try {
+            for (int i = 0; i < count; i++) {
+                ring.get(lo + i).set(messages.get(from + i), t0);
+            }
+        } finally {
+            ring.publish(lo, hi);
+        }
+    }
+
+    /* ============================================================= *
+     *  Builder
+     * ============================================================= */
+
+    public static final class Builder<T> {
+
+        private int ringSize = 1_024;
+        private ProducerType producerType = ProducerType.SINGLE;
+        private WaitStrategyType waitStrategyType = WaitStrategyType.BLOCKING;
+        private WaitStrategy waitStrategy;              // explicit instance wins
+        private String threadName = "disruptor";
+        private int threadPriority = Thread.NORM_PRIORITY;
+        private boolean daemon;
+        private final List<Stage<T>> stages = new ArrayList<>();
+        private MetricsRecorder metrics;
+        private Supplier<T> payloadFactory;
+        private boolean ringStats = true;
+        private Duration stallTimeout;                  // null: no watchdog
+        private StallListener stallListener;
+
+        private Builder() { }
+
+        /** Ring capacity; must be a power of two. */
+        public Builder<T> ringSize(int ringSize) {
+            if (Integer.bitCount(ringSize) != 1)
+                throw new IllegalArgumentException("ringSize must be a power of 2: " + ringSize);
+            this.ringSize = ringSize;
+            return this;
+        }
+
+        /** {@link ProducerType#MULTI} is required as soon as more than one thread publishes. */
+        public Builder<T> producerType(ProducerType producerType) {
+            this.producerType = Objects.requireNonNull(producerType, "producerType");
+            return this;
+        }
+
+        /** {@link WaitStrategyType#TIMEOUT_BLOCKING} is required by a {@link KeyedDispatcher} driving timers. */
+        public Builder<T> waitStrategy(WaitStrategyType type) {
+            this.waitStrategyType = Objects.requireNonNull(type, "type");
+            this.waitStrategy = null;
+            return this;
+        }
+
+        /**
+         * Escape hatch for tuned strategies, e.g. a custom {@code PhasedBackoffWaitStrategy}.
+         * Timer-driving handlers need a (Lite)TimeoutBlockingWaitStrategy.
+         */
+        public Builder<T> waitStrategy(WaitStrategy strategy) {
+            this.waitStrategy = Objects.requireNonNull(strategy, "strategy");
+            return this;
+        }
+
+        /** Consumer threads are named {@code <name>-<n>}; also the {@code ring} tag of the ring meters. */
+        public Builder<T> threadName(String threadName) {
+            this.threadName = Objects.requireNonNull(threadName, "threadName");
+            return this;
+        }
+
+        public Builder<T> threadPriority(int priority) {
+            if (priority < Thread.MIN_PRIORITY || priority > Thread.MAX_PRIORITY)
+                throw new IllegalArgumentException("thread priority out of range: " + priority);
+            this.threadPriority = priority;
+            return this;
+        }
+
+        public Builder<T> daemon(boolean daemon) {
+            this.daemon = daemon;
+            return this;
+        }
+
+        /** Sole handler of the first stage. */
+        public Builder<T> handler(EventHandler<EventEnvelope<T>> handler) {
+            return handlers(handler);
+        }
+
+        /**
+         * First stage: every handler sees every event, each on its own
+         * thread.  Replaces a previously set first stage.
+         */
+        @SafeVarargs
+        public final Builder<T> handlers(EventHandler<EventEnvelope<T>>... handlers) {
+            return first(Stage.of(checkStage(handlers)));
+        }
+
+        /**
+         * First stage: {@code workers} threads share the events, each event
+         * going to exactly one of them, and the pipeline's result replaces
+         * the payload.  The pipeline must be stateless and thread-safe.  Add
+         * a {@link #then} stage to consume the results; a single handler
+         * there sees them in publish order.
+         */
+        public Builder<T> workerPool(int workers, Pipeline<T> pipeline) {
+            return first(pool(workers, pipeline, null));
+        }
+
+        /**
+         * Terminal worker pool: each worker sends its own results, in
+         * completion order, so {@code sender} must be thread-safe.
+         */
+        public Builder<T> workerPool(int workers, Pipeline<T> pipeline, MessageSender<T> sender) {
+            return first(pool(workers, pipeline, Objects.requireNonNull(sender, "sender")));
+        }
+
+        /** {@link #workerPool(int, Pipeline)} as a later stage. */
+        public Builder<T> thenWorkerPool(int workers, Pipeline<T> pipeline) {
+            return next(pool(workers, pipeline, null));
+        }
+
+        private Builder<T> first(Stage<T> stage) {
+            if (stages.isEmpty()) stages.add(stage);
+            else stages.set(0, stage);
+            return this;
+        }
+
+        private Builder<T> next(Stage<T> stage) {
+            if (stages.isEmpty())
+                throw new IllegalStateException("then() needs a first stage; call handler() first");
+            stages.add(stage);
+            return this;
+        }
+
+        private static <T> Stage<T> pool(int workers, Pipeline<T> pipeline, MessageSender<T> sender) {
+            if (workers < 1) throw new IllegalArgumentException("workers must be ≥ 1: " + workers);
+            return new Stage<>(null, workers, Objects.requireNonNull(pipeline, "pipeline"), sender);
+        }
+
+        /**
+         * Next stage: its handlers run in parallel with one another and only
+         * see a slot once every handler of the previous stage is done with it.
+         */
+        @SafeVarargs
+        public final Builder<T> then(EventHandler<EventEnvelope<T>>... handlers) {
+            return next(Stage.of(checkStage(handlers)));
+        }
+
+        private static <T> EventHandler<EventEnvelope<T>>[] checkStage(
+                EventHandler<EventEnvelope<T>>[] handlers) {
+            if (handlers.length == 0) throw new IllegalArgumentException("empty stage");
+            for (EventHandler<EventEnvelope<T>> h : handlers) Objects.requireNonNull(h, "handler");
+            return handlers.clone();
+        }
+
+        public Builder<T> metrics(MetricsRecorder metrics) {
+            this.metrics = Objects.requireNonNull(metrics, "metrics");
+            return this;
+        }
+
+        /**
+         * Zero-allocation mode: called once per ring slot at start-up; the
+         * objects are reused for every message that passes through that slot.
+         */
+        public Builder<T> payloadFactory(Supplier<T> payloadFactory) {
+            this.payloadFactory = Objects.requireNonNull(payloadFactory, "payloadFactory");
+            return this;
+        }
+
+        /**
+         * Ring occupancy, per-handler lag, batch-size and busy-ratio meters,
+         * tagged {@code ring=<thread name>} (on by default; off for the
+         * three-argument constructor).  The thread name
+         * must then be unique among the running engines on one
+         * {@link MetricsRecorder}; {@link #build} throws otherwise, and
+         * {@link DisruptorEngine#shutdown} removes the meters again.  Each handler
+         * stage is wrapped to time its batches – two {@code nanoTime} reads
+         * per batch.  Worker-pool stages are covered by {@code ring.backlog}
+         * only.
+         */
+        public Builder<T> ringStats(boolean enabled) {
+            this.ringStats = enabled;
+            return this;
+        }
+
+        /**
+         * Starts a watchdog thread that flags a handler as stalled when its
+         * sequence has not moved for {@code timeout} while events are
+         * waiting for it.  Needs {@link #ringStats}.
+         */
+        public Builder<T> stallTimeout(Duration timeout) {
+            Objects.requireNonNull(timeout, "timeout");
+            if (timeout.isNegative() || timeout.isZero())
+                throw new IllegalArgumentException("stallTimeout must be positive: " + timeout);
+            this.stallTimeout = timeout;
+            return this;
+        }
+
+        /** Notified once per stall episode, in addition to the {@code ring.stalls} counter. */
+        public Builder<T> onStall(StallListener listener) {
+            this.stallListener = Objects.requireNonNull(listener, "listener");
+            return this;
+        }
+
+        /** Creates and starts the engine; consumer threads are running on return. */
+        public DisruptorEngine<T> build() {
+            return new DisruptorEngine<>(this);
+        }
+    }
+
+    /* ------------------------------------------------------------- *
+     *  Topology: one entry per stage, either handlers or a worker pool
+     * ------------------------------------------------------------- */
+
+    /* handlers == null: a pool of 'workers' PipelineWorkers (sender null = write back) */
+    private record Stage<T>(EventHandler<EventEnvelope<T>>[] handlers,
+                            int workers,
+                            Pipeline<T> pipeline,
+                            MessageSender<T> sender) {
+
+        static <T> Stage<T> of(EventHandler<EventEnvelope<T>>[] handlers) {
+            return new Stage<>(handlers, 0, null, null);
+        }
+
+        /*
+         * handler stages only: wraps each handler, named "s<stage>.h<index>-<class>",
+         * and collects the wrappers into 'out'
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Stage<T> instrument(int index, String ring, MetricsRecorder metrics,
+                            List<InstrumentedHandler<T>> out) {
+            if (handlers == null) return this;
+            EventHandler<EventEnvelope<T>>[] wrapped = new EventHandler[handlers.length];
+            for (int i = 0; i < handlers.length; i++) {
+                Class<?> type = handlers[i].getClass();
+                String kind = type.isSynthetic() || type.isAnonymousClass() ? "handler" : type.getSimpleName();
+                String name = "s%d.h%d-%s".formatted(index, i, kind);
+                InstrumentedHandler<T> h = new InstrumentedHandler<>(handlers[i], name,
+                        metrics.distribution("ring.batch.size", "messages", "ring", ring, "handler", name));
+                out.add(h);
+                wrapped[i] = h;
+            }
+            return new Stage<>(wrapped, workers, pipeline, sender);
+        }
+
+        /* threads that may touch the same slot at once */
+        int parallelism() {
+            return handlers != null ? handlers.length : 1;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        EventHandlerGroup<EventEnvelope<T>> attach(Disruptor<EventEnvelope<T>> disruptor,
+                                                   EventHandlerGroup<EventEnvelope<T>> after,
+                                                   MetricsRecorder metrics) {
+            if (handlers != null)
+                return after == null ? disruptor.handleEventsWith(handlers) : after.then(handlers);
+
+            WorkHandler<EventEnvelope<T>>[] pool = new WorkHandler[workers];
+            for (int i = 0; i < workers; i++) pool[i] = new PipelineWorker<>(pipeline, sender, metrics);
+            return after == null
+                    ? disruptor.handleEventsWithWorkerPool(pool)
+                    : after.thenHandleEventsWithWorkerPool(pool);
+        }
+    }
+
+    /* ------------------------------------------------------------- *
+     *  Named consumer threads (visible in thread dumps / profilers)
+     * ------------------------------------------------------------- */
+
+    private static final class EngineThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final int priority;
+        private final boolean daemon;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        EngineThreadFactory(String prefix, int priority, boolean daemon) {
+            this.prefix = prefix;
+            this.priority = priority;
+            this.daemon = daemon;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, prefix + "-" + counter.getAndIncrement());
+            t.setPriority(priority);
+            t.setDaemon(daemon);
+            return t;
+        }
+    }
 }
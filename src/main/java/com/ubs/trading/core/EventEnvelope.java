@@ -3,17 +3,85 @@ package com.ubs.trading.core;
 /**
  * Pre‑allocated event wrapper used by the Disruptor ring buffer.
  *
+ * <p>In the default mode each publish stores a fresh payload reference and
+ * {@link #clear()} drops it for the GC.  In <em>resident</em> mode the
+ * envelope owns one mutable payload for its whole life: producers fill it
+ * in place and nothing is allocated per message.  A resident payload is
+ * only valid until its consumer returns – copy anything that must outlive
+ * the callback.
+ *
+ * <p>Envelopes of a multi-stage engine <em>retain</em> their payload as
+ * well: {@link #clear()} is a no-op, because a handler running in parallel
+ * with the one that clears may still be reading it.  The reference is
+ * dropped when the slot is next published to.
+ *
+ * <p>A <em>continuation</em> envelope carries no message: an
+ * {@link AsyncDispatcher} re-injects it to resume a parked message.  Other
+ * handlers skip it (see {@link #isContinuation()}).  Neither does a
+ * <em>discarded</em> one, whose resident payload a translator failed to
+ * fill: the claimed slot has to be published regardless, so it goes out
+ * marked and every handler skips it (see {@link #isMessage()}).
+ *
  * @param <T> the payload type carried through the pipeline
  */
 public final class EventEnvelope<T> {
 
     private T    payload;
     private long ingestNanos;
+    private Object continuation;                    // null for messages
+    private boolean discarded;
+    private final boolean resident;
+    private final boolean retain;
+
+    public EventEnvelope() {
+        this(false);
+    }
+
+    /* retainPayload: clear() keeps the reference (multi-stage topologies) */
+    EventEnvelope(boolean retainPayload) {
+        this.resident = false;
+        this.retain   = retainPayload;
+    }
+
+    /* resident mode: the payload is pre-allocated and never replaced */
+    EventEnvelope(T residentPayload) {
+        this.payload  = residentPayload;
+        this.resident = true;
+        this.retain   = true;
+    }
 
     /* package‑private mutator: set both fields in one go */
     void set(T payload, long ingestNanos) {
-        this.payload     = payload;
-        this.ingestNanos = ingestNanos;
+        this.payload      = payload;
+        this.ingestNanos  = ingestNanos;
+        this.continuation = null;
+        this.discarded    = false;
+    }
+
+    /* resident mode: payload already filled in place */
+    void stamp(long ingestNanos) {
+        this.ingestNanos  = ingestNanos;
+        this.continuation = null;
+        this.discarded    = false;
+    }
+
+    /* resident mode: the translator threw, the payload is half-filled or stale */
+    void discard(long ingestNanos) {
+        this.ingestNanos  = ingestNanos;
+        this.continuation = null;
+        this.discarded    = true;
+    }
+
+    /* continuation event; the payload is not part of it */
+    void resume(Object continuation, long ingestNanos) {
+        this.continuation = continuation;
+        this.ingestNanos  = ingestNanos;
+        this.discarded    = false;
+        if (!retain) payload = null;
+    }
+
+    Object continuation() {
+        return continuation;
     }
 
     /* getters */
@@ -26,8 +94,27 @@ public final class EventEnvelope<T> {
         return ingestNanos;
     }
 
+    public boolean isResident() {
+        return resident;
+    }
+
+    /** {@code true} for an {@link AsyncDispatcher}'s resume event, which has no payload. */
+    public boolean isContinuation() {
+        return continuation != null;
+    }
+
+    /** {@code true} for a slot whose translator threw; its payload must not be used. */
+    public boolean isDiscarded() {
+        return discarded;
+    }
+
+    /** {@code true} for a published message: neither a continuation nor discarded. */
+    public boolean isMessage() {
+        return continuation == null && !discarded;
+    }
+
     /* Clear references so the object can be safely reused by the ring buffer */
     void clear() {
-        payload = null;
+        if (!retain) payload = null;
     }
 }
@@ -0,0 +1,88 @@
+package com.ubs.trading.core;
+
+import com.lmax.disruptor.BatchStartAware;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
+import com.lmax.disruptor.TimeoutHandler;
+import com.ubs.trading.metrics.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps a consumer to measure the batches the Disruptor hands it: batch
+ * size into a histogram and time from batch start to end-of-batch as busy
+ * time.  Costs two {@code nanoTime} reads and one histogram record per
+ * batch, nothing per message.  Lifecycle, batch-start and timeout callbacks
+ * are forwarded to the wrapped handler.
+ */
+final class InstrumentedHandler<T>
+        implements EventHandler<EventEnvelope<T>>, BatchStartAware, LifecycleAware, TimeoutHandler {
+
+    private final EventHandler<EventEnvelope<T>> delegate;
+    private final String name;
+    private final LatencyHistogram batchSizes;
+
+    private long batchStart;
+    private final AtomicLong busyNanos = new AtomicLong();
+
+    /* busy-ratio reads; guarded by this */
+    private long lastWall = System.nanoTime();
+    private long lastBusy;
+
+    InstrumentedHandler(EventHandler<EventEnvelope<T>> delegate, String name, LatencyHistogram batchSizes) {
+        this.delegate = delegate;
+        this.name = name;
+        this.batchSizes = batchSizes;
+    }
+
+    @Override
+    public void onBatchStart(long batchSize) {
+        batchStart = System.nanoTime();
+        if (batchSize > 0) batchSizes.record(batchSize);
+        if (delegate instanceof BatchStartAware b) b.onBatchStart(batchSize);
+    }
+
+    @Override
+    public void onEvent(EventEnvelope<T> env, long sequence, boolean endOfBatch) throws Exception {
+        try {
+            delegate.onEvent(env, sequence, endOfBatch);
+        } finally {
+            if (endOfBatch) busyNanos.lazySet(busyNanos.get() + System.nanoTime() - batchStart);
+        }
+    }
+
+    @Override
+    public void onTimeout(long sequence) throws Exception {
+        if (delegate instanceof TimeoutHandler t) t.onTimeout(sequence);
+    }
+
+    @Override
+    public void onStart() {
+        if (delegate instanceof LifecycleAware l) l.onStart();
+    }
+
+    @Override
+    public void onShutdown() {
+        if (delegate instanceof LifecycleAware l) l.onShutdown();
+    }
+
+    String name() {
+        return name;
+    }
+
+    /** Share of wall time spent inside batches since the previous call, in [0, 1]. */
+    synchronized double busyRatio() {
+        long now = System.nanoTime();
+        long busy = busyNanos.get();
+        long wall = now - lastWall;
+        double ratio = wall <= 0 ? 0 : (double) (busy - lastBusy) / wall;
+        lastWall = now;
+        lastBusy = busy;
+        return Math.min(1.0, Math.max(0.0, ratio));
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
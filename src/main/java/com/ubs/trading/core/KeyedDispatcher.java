@@ -0,0 +1,232 @@
+package com.ubs.trading.core;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.TimeoutHandler;
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+import com.ubs.trading.statemachine.StateMachine;
+import com.ubs.trading.statemachine.TimerWheel;
+import com.ubs.trading.statestore.StoredStateMachine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * {@link Dispatcher} variant that keeps one {@link StateMachine} per entity
+ * key (e.g. ClOrdID) instead of a single global state.
+ *
+ * <p>Each entity gets {@code template.copy()} on first sight, so all
+ * machines share one transition table.  The entity map is only touched by
+ * the consumer thread and therefore is a plain {@link HashMap}; run one
+ * instance per partition (see {@link PartitionedEngine}).
+ *
+ * <p>For millions of entities use the {@link StoredStateMachine} constructor
+ * instead: states then live as ordinals in a primitive
+ * {@link com.ubs.trading.statestore.StateStore}, with no object per entity.
+ *
+ * <p>{@link #timers} adds timeouts: pipeline steps schedule and cancel
+ * timers on a {@link TimerWheel} owned by this consumer thread, and the
+ * dispatcher polls the wheel at the end of every batch and whenever the
+ * wait strategy times out (see {@code WaitStrategyType.TIMEOUT_BLOCKING}).
+ * An expired timer becomes a synthetic event that takes the ordinary path –
+ * transition, pipeline, sender – so timeouts never race inbound messages.
+ * A timer whose entity is gone or has no transition for it is ignored.
+ *
+ * <p>So is an inbound event its entity's state has no transition for, such
+ * as a late or duplicate fill for a closed order; {@link #eventsIgnored()}
+ * counts them.
+ *
+ * @param <K> entity key type
+ * @param <S> state-machine state type
+ * @param <T> payload type flowing through the pipeline
+ */
+public final class KeyedDispatcher<K, S, T> implements EventHandler<EventEnvelope<T>>, TimeoutHandler {
+
+    /**
+     * Synthetic event for an expired timer; it must yield the entity's key
+     * and the timeout's event.  May return a reused instance.
+     */
+    @FunctionalInterface
+    public interface TimeoutEvents<T> { T timeout(long key, int kind); }
+
+    private final Function<? super T, ? extends K> keyExtractor;
+    private final StateMachine<S, T> template;
+    private final StoredStateMachine<S, T> stored;
+    private final MetricsRecorder metrics;
+    private final Outbound<T> outbound;
+
+    private final Map<K, StateMachine<S, T>> machines = new HashMap<>();
+
+    /* set by timers() before the engine starts */
+    private TimerWheel timers;
+    private TimeoutEvents<T> timeoutEvents;
+    private final TimerWheel.Expiry expiry = this::onTimer;
+    private long timeoutsFired;
+    private long timeoutsIgnored;
+    private long eventsIgnored;
+
+    /* one StateMachine object per key */
+    public KeyedDispatcher(Function<? super T, ? extends K> keyExtractor,
+                           StateMachine<S, T> template,
+                           MetricsRecorder metrics,
+                           Dispatcher.MessageSender<T> sender) {
+        this.keyExtractor = Objects.requireNonNull(keyExtractor);
+        this.template = Objects.requireNonNull(template);
+        this.metrics = Objects.requireNonNull(metrics);
+        this.outbound = new Outbound<>(Objects.requireNonNull(sender), metrics);
+        this.stored = null;
+    }
+
+    /* state ordinals in a primitive store; K is unused */
+    public KeyedDispatcher(StoredStateMachine<S, T> stored,
+                           MetricsRecorder metrics,
+                           Dispatcher.MessageSender<T> sender) {
+        this.stored = Objects.requireNonNull(stored);
+        this.metrics = Objects.requireNonNull(metrics);
+        this.outbound = new Outbound<>(Objects.requireNonNull(sender), metrics);
+        this.keyExtractor = null;
+        this.template = null;
+    }
+
+    @Override
+    public void onEvent(EventEnvelope<T> env, long seq, boolean endOfBatch) {
+        if (!env.isMessage()) {                     // translator threw, or an async continuation
+            if (endOfBatch) endBatch();
+            return;
+        }
+        long t0 = env.getIngestNanos();
+        long tStart = metrics.markProcessingStart();
+        metrics.recordQueueWait(t0, tStart);
+
+        T payload = env.getPayload();
+        Pipeline<T> pipeline = stored != null ? stored.onEvent(payload) : onKeyedEvent(payload);
+        if (pipeline == null) {                     // no transition: stale, duplicate or unknown
+            eventsIgnored++;
+            env.clear();
+            if (endOfBatch) endBatch();
+            return;
+        }
+
+        T out = pipeline.execute(payload);
+
+        metrics.recordProcessing(tStart);
+        metrics.recordEndToEnd(t0);
+
+        outbound.send(out, endOfBatch);
+        env.clear();
+        if (endOfBatch && timers != null) pollTimers();
+    }
+
+    /* batch end without a message of its own to send */
+    private void endBatch() {
+        outbound.flush();
+        if (timers != null) pollTimers();
+    }
+
+    /**
+     * Drives timeouts from {@code timers}; call before the engine is built.
+     * The wheel then belongs to this dispatcher's consumer thread.
+     *
+     * <p>Due timers fire at the end of each batch and when the wait
+     * strategy times out – nothing else runs on an idle consumer thread.
+     * Only {@link DisruptorEngine.WaitStrategyType#TIMEOUT_BLOCKING} times
+     * out (every millisecond), so an engine with any other strategy refuses
+     * to build around this dispatcher.
+     *
+     * @return this dispatcher
+     */
+    public KeyedDispatcher<K, S, T> timers(TimerWheel timers, TimeoutEvents<T> events) {
+        this.timers = Objects.requireNonNull(timers, "timers");
+        this.timeoutEvents = Objects.requireNonNull(events, "events");
+        return this;
+    }
+
+    @Override
+    public void onTimeout(long sequence) {
+        if (timers != null) pollTimers();
+    }
+
+    boolean drivesTimers() {
+        return timers != null;
+    }
+
+    private void pollTimers() {
+        if (timers.poll(System.nanoTime(), expiry) > 0) outbound.flush();
+    }
+
+    /* an expiry runs like an inbound message, minus the ingest-based latencies */
+    private void onTimer(long key, int kind) {
+        T event = timeoutEvents.timeout(key, kind);
+        long tStart = metrics.markProcessingStart();
+
+        Pipeline<T> pipeline;
+        if (stored != null) {
+            if (!stored.accepts(event)) {
+                timeoutsIgnored++;
+                return;
+            }
+            pipeline = stored.onEvent(event);
+        } else {
+            StateMachine<S, T> fsm = machines.get(keyExtractor.apply(event));
+            if (fsm == null || !fsm.accepts(event)) {
+                timeoutsIgnored++;
+                return;
+            }
+            pipeline = fsm.onEvent(event);
+        }
+        timeoutsFired++;
+        T out = pipeline.execute(event);
+
+        metrics.recordProcessing(tStart);
+        outbound.send(out, false);                     // flushed once the wheel is done
+    }
+
+    /* null if the entity's state has no transition; an unknown key is only added once it has one */
+    private Pipeline<T> onKeyedEvent(T payload) {
+        K key = keyExtractor.apply(payload);
+        StateMachine<S, T> fsm = machines.get(key);
+        if (fsm == null) {
+            if (!template.accepts(payload)) return null;
+            fsm = template.copy();
+            machines.put(key, fsm);
+        } else if (!fsm.accepts(payload)) {
+            return null;
+        }
+        return fsm.onEvent(payload);
+    }
+
+    /* introspection – consumer thread only, or after the engine is shut down; *
+     * in StoredStateMachine mode query the store instead                      */
+
+    /** Current state of {@code key}, or {@code null} if the key was never seen. */
+    public S stateOf(K key) {
+        StateMachine<S, T> fsm = machines.get(key);
+        return fsm == null ? null : fsm.state();
+    }
+
+    /** Forget an entity, e.g. once its order is closed. */
+    public void evict(K key) {
+        machines.remove(key);
+    }
+
+    public int entityCount() {
+        return machines.size();
+    }
+
+    /** Expired timers that drove a transition. */
+    public long timeoutsFired() {
+        return timeoutsFired;
+    }
+
+    /** Expired timers dropped because their entity was gone or had moved on. */
+    public long timeoutsIgnored() {
+        return timeoutsIgnored;
+    }
+
+    /** Inbound events dropped because their entity's state had no transition for them. */
+    public long eventsIgnored() {
+        return eventsIgnored;
+    }
+}
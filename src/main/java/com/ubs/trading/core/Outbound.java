@@ -0,0 +1,53 @@
+package com.ubs.trading.core;
+
+import com.ubs.trading.core.Dispatcher.BatchingMessageSender;
+import com.ubs.trading.core.Dispatcher.MessageSender;
+import com.ubs.trading.metrics.MetricsRecorder;
+
+/**
+ * Drives a {@link MessageSender} from a Disruptor handler: plain senders get
+ * one {@code send} per message; a {@link BatchingMessageSender} is flushed
+ * at the end of each Disruptor batch or after {@code maxBatchSize()} sends,
+ * whichever comes first, and each flushed batch size is recorded.
+ *
+ * <p>Consumer thread only.
+ */
+final class Outbound<T> {
+
+    private final MessageSender<T> sender;
+    private final BatchingMessageSender<T> batching;   // null for plain senders
+    private final int maxBatchSize;
+    private final MetricsRecorder metrics;
+
+    private int pending;
+
+    Outbound(MessageSender<T> sender, MetricsRecorder metrics) {
+        this.sender = sender;
+        this.metrics = metrics;
+        this.batching = sender instanceof BatchingMessageSender<T> b ? b : null;
+        this.maxBatchSize = batching == null ? 1 : batching.maxBatchSize();
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("maxBatchSize must be ≥ 1: " + maxBatchSize);
+    }
+
+    void send(T msg, boolean endOfBatch) {
+        sender.send(msg);
+        if (batching == null) return;
+
+        if (++pending >= maxBatchSize || endOfBatch) {
+            int n = pending;
+            pending = 0;
+            batching.flush();
+            metrics.recordSendBatch(n);
+        }
+    }
+
+    /* ends a batch whose last send did not know it was the last */
+    void flush() {
+        if (pending == 0) return;
+        int n = pending;
+        pending = 0;
+        batching.flush();
+        metrics.recordSendBatch(n);
+    }
+}
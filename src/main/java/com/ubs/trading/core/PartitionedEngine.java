@@ -0,0 +1,182 @@
+package com.ubs.trading.core;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.ubs.trading.core.DisruptorEngine.WaitStrategyType;
+import com.ubs.trading.metrics.MetricsRecorder;
+
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * N independent {@link DisruptorEngine}s, each with its own consumer thread,
+ * selected by hashing a key extracted from the payload.
+ *
+ * <p>Every message for a given key lands on the same ring, so per-entity
+ * ordering is preserved while unrelated entities are processed in parallel.
+ * Pair it with one {@link KeyedDispatcher} per partition:
+ *
+ * <pre>{@code
+ * PartitionedEngine<String, ExecReport> engine =
+ *         PartitionedEngine.<String, ExecReport>builder()
+ *                 .partitions(8)
+ *                 .keyExtractor(ExecReport::clOrdId)
+ *                 .handlers(p -> new KeyedDispatcher<>(ExecReport::clOrdId, fsm, metrics, sender))
+ *                 .metrics(metrics)
+ *                 .build();
+ * }</pre>
+ *
+ * The sender is invoked from every partition thread, so it must be
+ * thread-safe (or use one sender per partition in the handler factory).
+ *
+ * @param <K> partition key type; must have a well-distributed {@code hashCode}
+ * @param <T> payload type
+ */
+public final class PartitionedEngine<K, T> {
+
+    private final DisruptorEngine<T>[] partitions;
+    private final Function<? super T, ? extends K> keyExtractor;
+    private final int mask;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private PartitionedEngine(Builder<K, T> b) {
+        Objects.requireNonNull(b.keyExtractor, "keyExtractor");
+        Objects.requireNonNull(b.handlers, "handlers");
+        Objects.requireNonNull(b.metrics, "metrics");
+
+        this.keyExtractor = b.keyExtractor;
+        this.mask = b.partitions - 1;
+        this.partitions = new DisruptorEngine[b.partitions];
+
+        int built = 0;
+        try {
+            for (; built < b.partitions; built++) {
+                partitions[built] = DisruptorEngine.<T>builder()
+                        .ringSize(b.ringSize)
+                        .producerType(b.producerType)
+                        .waitStrategy(b.waitStrategy)
+                        .threadName(b.threadName + "-p" + built)
+                        .daemon(b.daemon)
+                        .handler(b.handlers.apply(built))
+                        .metrics(b.metrics)
+                        .build();
+            }
+        } catch (RuntimeException | Error e) {
+            for (int p = 0; p < built; p++) partitions[p].shutdown();   // their threads are already running
+            throw e;
+        }
+    }
+
+    public static <K, T> Builder<K, T> builder() {
+        return new Builder<>();
+    }
+
+    /** Route to the partition owning the payload's key; waits while that ring is full. */
+    public void publish(T message) {
+        partitions[partitionOf(keyExtractor.apply(message))].publish(message);
+    }
+
+    /** Non-blocking flavour; see {@link DisruptorEngine#tryPublish}. */
+    public boolean tryPublish(T message) {
+        return partitions[partitionOf(keyExtractor.apply(message))].tryPublish(message);
+    }
+
+    /** Partition index for {@code key}; stable for the lifetime of the engine. */
+    public int partitionOf(K key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;              // spread high bits, as HashMap does
+    }
+
+    public int partitions() {
+        return partitions.length;
+    }
+
+    /** Drains and stops every partition. */
+    public void shutdown() {
+        for (DisruptorEngine<T> p : partitions) p.shutdown();
+    }
+
+    /* ============================================================= *
+     *  Builder
+     * ============================================================= */
+
+    public static final class Builder<K, T> {
+
+        private int partitions = Runtime.getRuntime().availableProcessors();
+        private int ringSize = 1_024;
+        private ProducerType producerType = ProducerType.SINGLE;
+        private WaitStrategyType waitStrategy = WaitStrategyType.BLOCKING;
+        private String threadName = "partition";
+        private boolean daemon;
+        private Function<? super T, ? extends K> keyExtractor;
+        private IntFunction<? extends EventHandler<EventEnvelope<T>>> handlers;
+        private MetricsRecorder metrics;
+
+        private Builder() {
+            partitions = Integer.highestOneBit(partitions);   // default: power of 2 ≤ cores
+        }
+
+        /** Number of rings / consumer threads; must be a power of two. */
+        public Builder<K, T> partitions(int partitions) {
+            if (Integer.bitCount(partitions) != 1)
+                throw new IllegalArgumentException("partitions must be a power of 2: " + partitions);
+            this.partitions = partitions;
+            return this;
+        }
+
+        /** Per-partition ring capacity. */
+        public Builder<K, T> ringSize(int ringSize) {
+            this.ringSize = ringSize;
+            return this;
+        }
+
+        /** Applies to each ring: MULTI when several threads call {@link PartitionedEngine#publish}. */
+        public Builder<K, T> producerType(ProducerType producerType) {
+            this.producerType = Objects.requireNonNull(producerType, "producerType");
+            return this;
+        }
+
+        /**
+         * Applies to each ring (default {@code BLOCKING}).  Handlers driving
+         * {@link KeyedDispatcher#timers timers} need {@code TIMEOUT_BLOCKING};
+         * {@link #build} fails otherwise.
+         */
+        public Builder<K, T> waitStrategy(WaitStrategyType waitStrategy) {
+            this.waitStrategy = Objects.requireNonNull(waitStrategy, "waitStrategy");
+            return this;
+        }
+
+        /** Consumer threads are named {@code <name>-p<partition>-<n>}. */
+        public Builder<K, T> threadName(String threadName) {
+            this.threadName = Objects.requireNonNull(threadName, "threadName");
+            return this;
+        }
+
+        /** Applies to each consumer thread (default {@code false}). */
+        public Builder<K, T> daemon(boolean daemon) {
+            this.daemon = daemon;
+            return this;
+        }
+
+        public Builder<K, T> keyExtractor(Function<? super T, ? extends K> keyExtractor) {
+            this.keyExtractor = Objects.requireNonNull(keyExtractor, "keyExtractor");
+            return this;
+        }
+
+        /** Called once per partition index; every call must return a new handler. */
+        public Builder<K, T> handlers(IntFunction<? extends EventHandler<EventEnvelope<T>>> handlers) {
+            this.handlers = Objects.requireNonNull(handlers, "handlers");
+            return this;
+        }
+
+        public Builder<K, T> metrics(MetricsRecorder metrics) {
+            this.metrics = Objects.requireNonNull(metrics, "metrics");
+            return this;
+        }
+
+        public PartitionedEngine<K, T> build() {
+            return new PartitionedEngine<>(this);
+        }
+    }
+}
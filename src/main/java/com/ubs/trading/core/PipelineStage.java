@@ -0,0 +1,69 @@
+package com.ubs.trading.core;
+
+import com.lmax.disruptor.EventHandler;
+import com.ubs.trading.pipeline.Pipeline;
+
+import java.util.Objects;
+
+/**
+ * Runs one {@link Pipeline} as its own consumer stage of a multi-stage
+ * {@link DisruptorEngine} topology, e.g. decode → (journal ∥ risk) → send.
+ *
+ * <ul>
+ *   <li>{@link #transform} stores the pipeline's result back into the
+ *       envelope for the stages that follow; it must be the only handler
+ *       of its stage.</li>
+ *   <li>{@link #observe} only reads the payload (journaling, risk checks,
+ *       publishing a copy) and may run in parallel with other observers.</li>
+ * </ul>
+ *
+ * In resident-payload mode a transforming pipeline must mutate the payload
+ * in place and return the same instance.
+ *
+ * @param <T> payload type
+ */
+public final class PipelineStage<T> implements EventHandler<EventEnvelope<T>> {
+
+    private final Pipeline<T> pipeline;
+    private final boolean writesPayload;
+
+    private PipelineStage(Pipeline<T> pipeline, boolean writesPayload) {
+        this.pipeline = Objects.requireNonNull(pipeline, "pipeline");
+        this.writesPayload = writesPayload;
+    }
+
+    /** Stage whose result replaces the payload seen by later stages. */
+    public static <T> PipelineStage<T> transform(Pipeline<T> pipeline) {
+        return new PipelineStage<>(pipeline, true);
+    }
+
+    /** Read-only stage; the pipeline's result is discarded. */
+    public static <T> PipelineStage<T> observe(Pipeline<T> pipeline) {
+        return new PipelineStage<>(pipeline, false);
+    }
+
+    public boolean writesPayload() {
+        return writesPayload;
+    }
+
+    @Override
+    public void onEvent(EventEnvelope<T> env, long seq, boolean endOfBatch) {
+        if (!env.isMessage()) return;
+        T in = env.getPayload();
+        T out = pipeline.execute(in);
+        if (writesPayload) writeBack(env, in, out, pipeline);
+    }
+
+    static <T> void writeBack(EventEnvelope<T> env, T in, T out, Pipeline<T> pipeline) {
+        if (out == in) return;
+        if (env.isResident())
+            throw new IllegalStateException(
+                    "pipeline '%s' replaced a resident payload; mutate it in place".formatted(pipeline.name()));
+        env.set(out, env.getIngestNanos());
+    }
+
+    @Override
+    public String toString() {
+        return (writesPayload ? "transform(" : "observe(") + pipeline.name() + ')';
+    }
+}
@@ -0,0 +1,52 @@
+package com.ubs.trading.core;
+
+import com.lmax.disruptor.WorkHandler;
+import com.ubs.trading.core.Dispatcher.MessageSender;
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+
+/**
+ * One member of a worker pool built by {@link DisruptorEngine.Builder#workerPool}:
+ * every event goes to exactly one worker, which runs the (stateless,
+ * thread-safe) pipeline and either
+ *
+ * <ul>
+ *   <li>writes the result back for the next stage – typically a single
+ *       {@link Dispatcher} that re-establishes publish order – or</li>
+ *   <li>sends it directly, in completion order, with full latency metrics.</li>
+ * </ul>
+ */
+final class PipelineWorker<T> implements WorkHandler<EventEnvelope<T>> {
+
+    private final Pipeline<T> pipeline;
+    private final MessageSender<T> sender;          // null: write back
+    private final MetricsRecorder metrics;
+
+    PipelineWorker(Pipeline<T> pipeline, MessageSender<T> sender, MetricsRecorder metrics) {
+        this.pipeline = pipeline;
+        this.sender = sender;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onEvent(EventEnvelope<T> env) {
+        if (!env.isMessage()) return;
+        if (sender == null) {
+            T in = env.getPayload();
+            PipelineStage.writeBack(env, in, pipeline.execute(in), pipeline);
+            return;
+        }
+
+        long t0 = env.getIngestNanos();
+        long tStart = metrics.markProcessingStart();
+        metrics.recordQueueWait(t0, tStart);
+
+        T out = pipeline.execute(env.getPayload());
+
+        metrics.recordProcessing(tStart);
+        metrics.recordEndToEnd(t0);
+
+        sender.send(out);
+        env.clear();
+    }
+}
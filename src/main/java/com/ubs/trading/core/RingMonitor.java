@@ -0,0 +1,139 @@
+package com.ubs.trading.core;
+
+import com.lmax.disruptor.RingBuffer;
+import com.ubs.trading.core.DisruptorEngine.StallListener;
+import com.ubs.trading.metrics.MetricsRecorder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Ring gauges and the stall watchdog of one {@link DisruptorEngine}, all
+ * tagged {@code ring=<thread name>}:
+ *
+ * <ul>
+ *   <li>{@code ring.remaining.capacity}, {@code ring.backlog} – free slots,
+ *       and slots published but not yet through the last stage;</li>
+ *   <li>{@code ring.consumer.lag{handler}} – cursor minus the handler's
+ *       sequence, in slots, including what waits on earlier stages;</li>
+ *   <li>{@code ring.handler.busy.ratio{handler}} – share of time in batches
+ *       since the previous read;</li>
+ *   <li>{@code ring.batch.size{handler}} – histogram meters, unit messages;</li>
+ *   <li>{@code ring.stalled{handler}} (0/1) and {@code ring.stalls{handler}}
+ *       – see below.</li>
+ * </ul>
+ *
+ * The watchdog samples every handler's sequence a few times per timeout.  A
+ * handler with work available – its sequence behind its upstream barrier,
+ * the cursor for the first stage and the slowest handler of the previous
+ * stage after that – whose sequence has not moved for the whole timeout is
+ * flagged stalled, once per episode, until it advances again.  Stages
+ * waiting behind a stalled one have nothing available, so only the
+ * culprit is flagged.
+ *
+ * <p>The engine {@link MetricsRecorder#claim claims} its {@code ring} tag;
+ * {@link #close()} removes the meters and releases it.
+ */
+final class RingMonitor implements AutoCloseable {
+
+    /** One watched consumer. */
+    static final class Watched {
+        final InstrumentedHandler<?> handler;
+        final LongSupplier sequence;
+        final LongSupplier upstream;                 // highest sequence it may process
+
+        /* watchdog thread only, except the volatile flag */
+        private long lastSequence = Long.MIN_VALUE;
+        private long lastProgress = System.nanoTime();
+        private volatile boolean stalled;
+        private final AtomicLong stalls = new AtomicLong();
+
+        Watched(InstrumentedHandler<?> handler, LongSupplier sequence, LongSupplier upstream) {
+            this.handler = handler;
+            this.sequence = sequence;
+            this.upstream = upstream;
+        }
+    }
+
+    private final String name;
+    private final RingBuffer<?> ring;
+    private final MetricsRecorder metrics;
+    private final List<Watched> watched;
+    private final long timeoutNanos;
+    private final StallListener listener;
+    private final ScheduledExecutorService watchdog;   // null without a stall timeout
+    private boolean closed;
+
+    RingMonitor(String name, RingBuffer<?> ring, List<Watched> watched, MetricsRecorder metrics,
+                Duration stallTimeout, StallListener listener) {
+        this.name = name;
+        this.ring = ring;
+        this.metrics = metrics;
+        this.watched = List.copyOf(watched);
+        this.timeoutNanos = stallTimeout == null ? 0 : stallTimeout.toNanos();
+        this.listener = listener;
+
+        metrics.gauge("ring.remaining.capacity", ring, RingBuffer::remainingCapacity, "ring", name);
+        metrics.gauge("ring.backlog", ring, r -> r.getCursor() - r.getMinimumGatingSequence(), "ring", name);
+        for (Watched w : this.watched) {
+            String h = w.handler.name();
+            metrics.gauge("ring.consumer.lag", w, x -> lag(x), "ring", name, "handler", h);
+            metrics.gauge("ring.handler.busy.ratio", w.handler, InstrumentedHandler::busyRatio,
+                    "ring", name, "handler", h);
+            metrics.gauge("ring.stalled", w, x -> x.stalled ? 1 : 0, "ring", name, "handler", h);
+            metrics.counter("ring.stalls", w.stalls, AtomicLong::get, "ring", name, "handler", h);
+        }
+
+        if (timeoutNanos > 0 && !this.watched.isEmpty()) {
+            watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, name + "-watchdog");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = Math.max(1_000_000, timeoutNanos / 4);
+            watchdog.scheduleAtFixedRate(this::check, period, period, TimeUnit.NANOSECONDS);
+        } else {
+            watchdog = null;
+        }
+    }
+
+    private long lag(Watched w) {
+        return Math.max(0, ring.getCursor() - w.sequence.getAsLong());
+    }
+
+    /* watchdog thread */
+    void check() {
+        long now = System.nanoTime();
+        for (Watched w : watched) {
+            long seq = w.sequence.getAsLong();
+            long available = w.upstream.getAsLong();
+            if (seq >= available || seq != w.lastSequence) {
+                w.lastSequence = seq;
+                w.lastProgress = now;
+                w.stalled = false;
+            } else if (!w.stalled && now - w.lastProgress >= timeoutNanos) {
+                w.stalled = true;
+                w.stalls.incrementAndGet();
+                if (listener != null) listener.onStall(w.handler.name(), available - seq, now - w.lastProgress);
+            }
+        }
+    }
+
+    boolean isStalled(String handler) {
+        for (Watched w : watched) if (w.handler.name().equals(handler)) return w.stalled;
+        throw new IllegalArgumentException("no such handler: " + handler);
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (watchdog != null) watchdog.shutdownNow();
+        metrics.release("ring", name);
+    }
+}
@@ -0,0 +1,386 @@
+package com.ubs.trading.fix;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Flyweight tag=value decoder: {@link #wrap} indexes one FIX message in
+ * place and the getters read values straight from the buffer – no
+ * {@code String}s, no boxing, no per-message allocation.
+ *
+ * <p>{@code wrap} records each field's tag and value position (tags below
+ * {@link #INDEXED_TAGS} get an O(1) lookup slot) and validates the frame:
+ * {@code 8=} first, {@code 9=} second, {@code 10=} last, BodyLength equal to
+ * the bytes between them and the CheckSum equal to the byte sum mod 256.
+ *
+ * <p>The buffer is read with absolute gets, so its position and limit are
+ * untouched; heap and direct buffers both work.  Values are only valid until
+ * the buffer is overwritten.  Repeating groups are visible field by field
+ * ({@link #fieldCount}, {@link #tagAt}); tag lookups return the first
+ * occurrence.  Length-prefixed data fields with an embedded SOH are not
+ * supported.
+ *
+ * <p>One instance per thread.
+ *
+ * <pre>{@code
+ * FixDecoder fix = new FixDecoder();
+ * if (fix.wrap(buf, off, len) == Status.OK) {
+ *     char execType = fix.getChar(FixTags.EXEC_TYPE);
+ *     long qty      = fix.getDecimal(FixTags.ORDER_QTY, 4);   // 1e-4 units
+ *     long orderKey = fix.valueHash(FixTags.CL_ORD_ID);
+ * }
+ * }</pre>
+ */
+public final class FixDecoder {
+
+    public static final byte SOH = 0x01;
+
+    /** Tags below this bound are looked up by array index; higher ones by scan. */
+    public static final int INDEXED_TAGS = 1_024;
+
+    /** Outcome of {@link #wrap}. */
+    public enum Status {
+        OK,
+        /** Not a sequence of {@code tag=value<SOH>} fields, or too many fields. */
+        MALFORMED,
+        /** Missing or misplaced {@code 8=}, {@code 9=} or {@code 10=}. */
+        BAD_HEADER,
+        BAD_BODY_LENGTH,
+        BAD_CHECKSUM
+    }
+
+    private static final long[] POW10 = new long[19];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+    }
+
+    private final int[] tags;
+    private final int[] valueOffsets;
+    private final int[] valueLengths;
+    private final int[] index = new int[INDEXED_TAGS];      // field position + 1; 0 = absent
+
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+    private int fieldCount;
+    private Status status = Status.MALFORMED;
+
+    public FixDecoder() {
+        this(256);
+    }
+
+    /** @param maxFields fields per message; longer messages are {@link Status#MALFORMED} */
+    public FixDecoder(int maxFields) {
+        if (maxFields < 3) throw new IllegalArgumentException("maxFields must be ≥ 3: " + maxFields);
+        this.tags = new int[maxFields];
+        this.valueOffsets = new int[maxFields];
+        this.valueLengths = new int[maxFields];
+    }
+
+    /* ----------------------------------------------------------------- *
+     *  framing
+     * ----------------------------------------------------------------- */
+
+    /**
+     * Total length of the message starting at {@code offset}, derived from
+     * its BodyLength, or -1 if more than {@code available} bytes are needed
+     * to tell.
+     *
+     * @throws IllegalArgumentException if the bytes do not start with
+     *         {@code 8=…<SOH>9=<digits><SOH>}
+     */
+    public static int frameLength(ByteBuffer buf, int offset, int available) {
+        int end = offset + available;
+        int pos = offset;
+        if (available < 2) return -1;
+        if (buf.get(pos) != '8' || buf.get(pos + 1) != '=') throw new IllegalArgumentException(
+                "message does not start with 8= at offset " + offset);
+        pos += 2;
+        while (pos < end && buf.get(pos) != SOH) pos++;
+        if (pos + 3 > end) return -1;
+        if (buf.get(pos + 1) != '9' || buf.get(pos + 2) != '=') throw new IllegalArgumentException(
+                "BodyLength does not follow BeginString at offset " + offset);
+        pos += 3;
+
+        int bodyLength = 0;
+        int digits = 0;
+        byte b;
+        while (pos < end && (b = buf.get(pos)) != SOH) {
+            if (b < '0' || b > '9' || ++digits > 9) throw new IllegalArgumentException(
+                    "bad BodyLength at offset " + offset);
+            bodyLength = bodyLength * 10 + (b - '0');
+            pos++;
+        }
+        if (pos >= end) return -1;
+        if (digits == 0) throw new IllegalArgumentException("empty BodyLength at offset " + offset);
+        return pos + 1 - offset + bodyLength + 7;                 // + "10=nnn<SOH>"
+    }
+
+    /* ----------------------------------------------------------------- *
+     *  decoding
+     * ----------------------------------------------------------------- */
+
+    /** Index and validate the message in {@code buf[offset, offset + length)}. */
+    public Status wrap(ByteBuffer buf, int offset, int length) {
+        for (int i = 0; i < fieldCount; i++) {
+            if (tags[i] < INDEXED_TAGS) index[tags[i]] = 0;
+        }
+        this.buffer = buf;
+        this.offset = offset;
+        this.length = length;
+        this.fieldCount = 0;
+        return status = parse();
+    }
+
+    private Status parse() {
+        int end = offset + length;
+        int pos = offset;
+        while (pos < end) {
+            int tag = 0;
+            byte b;
+            while (pos < end && (b = buffer.get(pos)) != '=') {
+                if (b < '0' || b > '9' || tag > 99_999_999) return Status.MALFORMED;
+                tag = tag * 10 + (b - '0');
+                pos++;
+            }
+            if (pos == end || tag == 0 || fieldCount == tags.length) return Status.MALFORMED;
+
+            int valueStart = ++pos;
+            while (pos < end && buffer.get(pos) != SOH) pos++;
+            if (pos == end) return Status.MALFORMED;               // unterminated field
+
+            tags[fieldCount] = tag;
+            valueOffsets[fieldCount] = valueStart;
+            valueLengths[fieldCount] = pos - valueStart;
+            fieldCount++;
+            if (tag < INDEXED_TAGS && index[tag] == 0) index[tag] = fieldCount;
+            pos++;
+        }
+        return validate();
+    }
+
+    private Status validate() {
+        int last = fieldCount - 1;
+        if (fieldCount < 3
+                || tags[0] != FixTags.BEGIN_STRING
+                || tags[1] != FixTags.BODY_LENGTH
+                || tags[last] != FixTags.CHECK_SUM
+                || valueLengths[last] != 3) return Status.BAD_HEADER;
+
+        int bodyStart = valueOffsets[1] + valueLengths[1] + 1;
+        int trailerStart = valueOffsets[last] - 3;                  // "10="
+        if (digits(1) != trailerStart - bodyStart) return Status.BAD_BODY_LENGTH;
+
+        int sum = 0;
+        for (int i = offset; i < trailerStart; i++) sum += buffer.get(i);
+        return (sum & 0xFF) == digits(last) ? Status.OK : Status.BAD_CHECKSUM;
+    }
+
+    /* unsigned value of an all-digit field, or -1 */
+    private long digits(int field) {
+        int pos = valueOffsets[field];
+        int end = pos + valueLengths[field];
+        if (pos == end || end - pos > 9) return -1;
+        long v = 0;
+        for (; pos < end; pos++) {
+            byte b = buffer.get(pos);
+            if (b < '0' || b > '9') return -1;
+            v = v * 10 + (b - '0');
+        }
+        return v;
+    }
+
+    /* ----------------------------------------------------------------- *
+     *  field access – valid after wrap() until the buffer changes
+     * ----------------------------------------------------------------- */
+
+    public Status status() { return status; }
+
+    public int fieldCount() { return fieldCount; }
+
+    /** Tag of the {@code i}-th field, in message order. */
+    public int tagAt(int i) { return tags[checkField(i)]; }
+
+    public boolean has(int tag) { return find(tag) >= 0; }
+
+    /** Absolute buffer offset of the value of {@code tag}. */
+    public int valueOffset(int tag) { return valueOffsets[require(tag)]; }
+
+    public int valueLength(int tag) { return valueLengths[require(tag)]; }
+
+    public ByteBuffer buffer() { return buffer; }
+
+    /** First byte of the value, e.g. ExecType or Side. */
+    public char getChar(int tag) {
+        return (char) buffer.get(valueOffsets[require(tag)]);
+    }
+
+    /** Signed integer value. */
+    public long getLong(int tag) {
+        return parseLong(require(tag));
+    }
+
+    /**
+     * Decimal value as a fixed-point {@code long} with {@code scale}
+     * fractional digits: {@code "100.25"} at scale 4 is {@code 1_002_500}.
+     * Further digits are truncated.
+     *
+     * @throws NumberFormatException if the value has no digits or a non-digit,
+     *         or does not fit a {@code long} at {@code scale}
+     */
+    public long getDecimal(int tag, int scale) {
+        if (scale < 0 || scale > 18) throw new IllegalArgumentException("scale out of range: " + scale);
+        int f = require(tag);
+        int pos = valueOffsets[f];
+        int end = pos + valueLengths[f];
+        boolean negative = pos < end && buffer.get(pos) == '-';
+        if (negative) pos++;
+
+        long units = 0;
+        int digits = 0;
+        int fraction = -1;                                          // digits after '.', -1 before it
+        for (; pos < end; pos++) {
+            byte b = buffer.get(pos);
+            if (b == '.' && fraction < 0) { fraction = 0; continue; }
+            if (b < '0' || b > '9') throw badValue(tag);
+            digits++;
+            if (fraction >= scale) continue;
+            if (units > Long.MAX_VALUE / 10 - 9) throw badValue(tag);
+            units = units * 10 + (b - '0');
+            if (fraction >= 0) fraction++;
+        }
+        if (digits == 0) throw badValue(tag);
+        long multiplier = POW10[scale - Math.max(fraction, 0)];
+        if (units > Long.MAX_VALUE / multiplier) throw badValue(tag);   // does not fit at this scale
+        units *= multiplier;
+        return negative ? -units : units;
+    }
+
+    /**
+     * Decimal value; exact for values with up to 15 significant digits.
+     *
+     * @throws NumberFormatException if the value has no digits, a non-digit
+     *         or more than 18 digits (after the point, or in all)
+     */
+    public double getDouble(int tag) {
+        int f = require(tag);
+        int pos = valueOffsets[f];
+        int end = pos + valueLengths[f];
+        boolean negative = pos < end && buffer.get(pos) == '-';
+        if (negative) pos++;
+
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        for (; pos < end; pos++) {
+            byte b = buffer.get(pos);
+            if (b == '.' && fraction < 0) { fraction = 0; continue; }
+            if (b < '0' || b > '9' || mantissa > Long.MAX_VALUE / 10 - 9) throw badValue(tag);
+            mantissa = mantissa * 10 + (b - '0');
+            digits++;
+            if (fraction >= 0) fraction++;
+        }
+        if (digits == 0 || fraction >= POW10.length) throw badValue(tag);   // leading zeros keep mantissa small
+        double v = fraction > 0 ? (double) mantissa / POW10[fraction] : mantissa;
+        return negative ? -v : v;
+    }
+
+    /** {@code true} if the value's bytes equal {@code expected} (ASCII). */
+    public boolean valueEquals(int tag, byte[] expected) {
+        int f = find(tag);
+        if (f < 0 || valueLengths[f] != expected.length) return false;
+        int pos = valueOffsets[f];
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(pos + i) != expected[i]) return false;
+        }
+        return true;
+    }
+
+    /** 64-bit FNV-1a hash of the value, e.g. a ClOrdID as a {@code StateStore} key. */
+    public long valueHash(int tag) {
+        int f = require(tag);
+        int pos = valueOffsets[f];
+        int end = pos + valueLengths[f];
+        long h = 0xcbf29ce484222325L;
+        for (; pos < end; pos++) {
+            h ^= buffer.get(pos) & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Copies the value into {@code dst} at {@code dstOffset}.
+     *
+     * @return the value length
+     * @throws IndexOutOfBoundsException if it does not fit
+     */
+    public int copyValue(int tag, byte[] dst, int dstOffset) {
+        int f = require(tag);
+        int len = valueLengths[f];
+        buffer.get(valueOffsets[f], dst, dstOffset, len);
+        return len;
+    }
+
+    /** The value as a {@code String}; allocates – for logging and cold paths. */
+    public String getString(int tag) {
+        int f = require(tag);
+        byte[] bytes = new byte[valueLengths[f]];
+        buffer.get(valueOffsets[f], bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /* ----------------------------------------------------------------- *
+     *  internal
+     * ----------------------------------------------------------------- */
+
+    private int find(int tag) {
+        if (tag >= 0 && tag < INDEXED_TAGS) return index[tag] - 1;
+        for (int i = 0; i < fieldCount; i++) {
+            if (tags[i] == tag) return i;
+        }
+        return -1;
+    }
+
+    private int require(int tag) {
+        int f = find(tag);
+        if (f < 0) throw new IllegalArgumentException("tag " + tag + " not present");
+        return f;
+    }
+
+    private int checkField(int i) {
+        if (i < 0 || i >= fieldCount) throw new IndexOutOfBoundsException(i);
+        return i;
+    }
+
+    private long parseLong(int field) {
+        int pos = valueOffsets[field];
+        int end = pos + valueLengths[field];
+        boolean negative = pos < end && buffer.get(pos) == '-';
+        if (negative) pos++;
+        if (pos == end) throw badValue(tags[field]);
+
+        long v = 0;
+        for (; pos < end; pos++) {
+            byte b = buffer.get(pos);
+            if (b < '0' || b > '9' || v > Long.MAX_VALUE / 10 - 9) throw badValue(tags[field]);
+            v = v * 10 + (b - '0');
+        }
+        return negative ? -v : v;
+    }
+
+    /* kept out of the getters so they stay small enough to inline */
+    private static NumberFormatException badValue(int tag) {
+        return new NumberFormatException("tag " + tag + " is not a number");
+    }
+
+    @Override
+    public String toString() {
+        if (buffer == null) return "FixDecoder[empty]";
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes, 0, length);
+        for (int i = 0; i < bytes.length; i++) if (bytes[i] == SOH) bytes[i] = '|';
+        return "FixDecoder[" + status + ", " + new String(bytes, StandardCharsets.US_ASCII) + ']';
+    }
+}
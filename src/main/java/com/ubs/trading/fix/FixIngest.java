@@ -0,0 +1,96 @@
+package com.ubs.trading.fix;
+
+import com.ubs.trading.core.DisruptorEngine;
+import com.ubs.trading.core.DisruptorEngine.PayloadTranslator;
+import com.ubs.trading.fix.FixDecoder.Status;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Byte stream → ring, without intermediate objects: frames FIX messages,
+ * validates each with a {@link FixDecoder} and lets a translator copy the
+ * needed fields straight into the resident payload of the next ring slot.
+ *
+ * <pre>{@code
+ * FixIngest<Exec> ingest = new FixIngest<>(engine, (slot, fix) -> {
+ *     slot.orderKey = fix.valueHash(FixTags.CL_ORD_ID);
+ *     slot.execType = fix.getChar(FixTags.EXEC_TYPE);
+ *     slot.qty      = fix.getDecimal(FixTags.ORDER_QTY, 4);
+ * });
+ * int used = ingest.onBytes(socketBuffer, 0, n);   // keep the unused tail
+ * }</pre>
+ *
+ * Messages that fail validation are counted and skipped, and so are valid
+ * ones the translator throws on (a required tag missing, say): their slot
+ * goes out discarded and the stream carries on.  Bytes that do not
+ * even start like a FIX message make {@link #onBytes} throw: the stream has
+ * lost framing and the session should be dropped.
+ *
+ * <p>Single producer thread; the engine must be built with a
+ * {@code payloadFactory}.
+ *
+ * @param <T> resident payload type
+ */
+public final class FixIngest<T> {
+
+    private final DisruptorEngine<T> engine;
+    private final PayloadTranslator<T, FixDecoder> translator;
+    private final FixDecoder decoder = new FixDecoder();
+
+    private long accepted;
+    private long rejected;
+    private long failed;
+
+    public FixIngest(DisruptorEngine<T> engine, PayloadTranslator<T, FixDecoder> translator) {
+        this.engine = Objects.requireNonNull(engine, "engine");
+        this.translator = Objects.requireNonNull(translator, "translator");
+    }
+
+    /**
+     * Publishes every complete message in {@code buf[offset, offset + length)}.
+     *
+     * @return bytes consumed; the rest is the start of an incomplete message
+     * @throws IllegalArgumentException if the stream is not framed as FIX
+     */
+    public int onBytes(ByteBuffer buf, int offset, int length) {
+        int pos = offset;
+        int end = offset + length;
+        while (pos < end) {
+            int frame = FixDecoder.frameLength(buf, pos, end - pos);
+            if (frame < 0 || frame > end - pos) break;
+            onMessage(buf, pos, frame);
+            pos += frame;
+        }
+        return pos - offset;
+    }
+
+    /**
+     * Publishes one already framed message; {@code false} if it failed
+     * validation or the translator threw on it.
+     */
+    public boolean onMessage(ByteBuffer buf, int offset, int length) {
+        if (decoder.wrap(buf, offset, length) != Status.OK) {
+            rejected++;
+            return false;
+        }
+        try {
+            engine.publish(translator, decoder);     // a throwing translator leaves its slot discarded
+        } catch (RuntimeException e) {
+            failed++;
+            return false;
+        }
+        accepted++;
+        return true;
+    }
+
+    public long accepted() { return accepted; }
+
+    public long rejected() { return rejected; }
+
+    /** Valid messages the translator threw on, e.g. for a missing tag. */
+    public long failed() { return failed; }
+
+    /** Status of the last message seen, for diagnosing rejections. */
+    public Status lastStatus() { return decoder.status(); }
+}
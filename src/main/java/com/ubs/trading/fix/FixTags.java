@@ -0,0 +1,27 @@
+package com.ubs.trading.fix;
+
+/** Tag numbers used by the decoder and the execution-report ingest path. */
+public final class FixTags {
+
+    public static final int BEGIN_STRING  = 8;
+    public static final int BODY_LENGTH   = 9;
+    public static final int CHECK_SUM     = 10;
+    public static final int CL_ORD_ID     = 11;
+    public static final int CUM_QTY       = 14;
+    public static final int EXEC_ID       = 17;
+    public static final int LAST_PX       = 31;
+    public static final int LAST_QTY      = 32;
+    public static final int MSG_SEQ_NUM   = 34;
+    public static final int MSG_TYPE      = 35;
+    public static final int ORDER_ID      = 37;
+    public static final int ORDER_QTY     = 38;
+    public static final int ORD_STATUS    = 39;
+    public static final int SENDER_COMP_ID = 49;
+    public static final int SIDE          = 54;
+    public static final int SYMBOL        = 55;
+    public static final int TARGET_COMP_ID = 56;
+    public static final int EXEC_TYPE     = 150;
+    public static final int LEAVES_QTY    = 151;
+
+    private FixTags() { }
+}
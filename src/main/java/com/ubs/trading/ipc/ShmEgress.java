@@ -0,0 +1,105 @@
+package com.ubs.trading.ipc;
+
+import com.ubs.trading.core.Dispatcher.MessageSender;
+import com.ubs.trading.journal.PayloadCodec;
+import com.ubs.trading.metrics.MetricsRecorder;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MessageSender} that encodes each outbound message straight into
+ * the next frame of a {@link ShmRing} read by another process.
+ *
+ * <pre>{@code
+ * ShmEgress<Order> egress = new ShmEgress<>(
+ *         ShmRing.open(ShmRing.SHM.resolve("orders-out")), orderCodec, metrics, "orders-out");
+ * new Dispatcher<>(pipeline, metrics, egress);
+ * }</pre>
+ *
+ * {@link #send} spins while the ring is full, so a slow reader pushes back
+ * on the dispatcher and through it on the engine; {@link #trySend} gives
+ * up instead.  Single sending thread: do not use it as the sender of a
+ * terminal worker pool.
+ *
+ * <p>Counters {@code ipc.frames} and {@code ipc.egress.full} (sends that
+ * found the ring full), tagged {@code ring} and {@code direction=out}.
+ *
+ * @param <T> payload type
+ */
+public final class ShmEgress<T> implements MessageSender<T> {
+
+    private final ShmRing ring;
+    private final PayloadCodec<T> codec;
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong full = new AtomicLong();
+
+    public ShmEgress(ShmRing ring, PayloadCodec<T> codec) {
+        this(ring, codec, null, null);
+    }
+
+    /** Registers the counters under {@code ring=name} unless {@code metrics} is null. */
+    public ShmEgress(ShmRing ring, PayloadCodec<T> codec, MetricsRecorder metrics, String name) {
+        this.ring = Objects.requireNonNull(ring, "ring");
+        this.codec = Objects.requireNonNull(codec, "codec");
+        if (metrics != null) {
+            Objects.requireNonNull(name, "name");
+            metrics.counter("ipc.frames", frames, AtomicLong::get, "ring", name, "direction", "out");
+            metrics.counter("ipc.egress.full", full, AtomicLong::get, "ring", name, "direction", "out");
+        }
+    }
+
+    /**
+     * Writes {@code msg} as the next frame, spinning while the ring is full.
+     *
+     * @throws IllegalArgumentException if the encoded message does not fit a frame
+     */
+    @Override
+    public void send(T msg) {
+        ByteBuffer frame = ring.tryClaim();
+        if (frame == null) {
+            full.lazySet(full.get() + 1);
+            do {
+                Thread.onSpinWait();
+                frame = ring.tryClaim();
+            } while (frame == null);
+        }
+        write(msg, frame);
+    }
+
+    /**
+     * {@link #send} that returns {@code false}, writing nothing, if the ring
+     * is full.
+     */
+    public boolean trySend(T msg) {
+        ByteBuffer frame = ring.tryClaim();
+        if (frame == null) {
+            full.lazySet(full.get() + 1);
+            return false;
+        }
+        write(msg, frame);
+        return true;
+    }
+
+    private void write(T msg, ByteBuffer frame) {
+        try {
+            codec.encode(msg, frame);
+        } catch (BufferOverflowException e) {
+            ring.abort();
+            throw new IllegalArgumentException("message exceeds the frame payload of " + ring.maxPayload() + " bytes", e);
+        } catch (RuntimeException e) {
+            ring.abort();
+            throw e;
+        }
+        ring.commit(frame);
+        frames.lazySet(frames.get() + 1);
+    }
+
+    /** Frames written so far. */
+    public long frames() {
+        return frames.get();
+    }
+}
@@ -0,0 +1,250 @@
+package com.ubs.trading.ipc;
+
+import com.ubs.trading.core.DisruptorEngine;
+import com.ubs.trading.core.DisruptorEngine.PayloadTranslator;
+import com.ubs.trading.journal.PayloadCodec;
+import com.ubs.trading.metrics.MetricsRecorder;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Poller thread that drains a {@link ShmRing} written by another process
+ * into a {@link DisruptorEngine}.
+ *
+ * <pre>{@code
+ * ShmRing in = ShmRing.create(ShmRing.SHM.resolve("md-in"), 4_096, 256);
+ * ShmIngress<Quote> ingress = ShmIngress.<Quote>builder()
+ *         .ring(in)
+ *         .engine(engine)
+ *         .translator((slot, frame) -> slot.readFrom(frame))   // or .codec(...)
+ *         .metrics(metrics, "md-in")
+ *         .build();
+ *
+ * // raw FIX frames through the validating decoder instead of an engine:
+ * .frames((frame, sendNanos) -> fix.onMessage(frame, frame.position(), frame.remaining()))
+ * }</pre>
+ *
+ * Each frame is published with the producer's commit time as its ingest
+ * timestamp, so the ingest and end-to-end latencies include the hop
+ * between the processes.  A frame is released only after it is in the
+ * ring, so a full engine backs up into the shared ring and from there into
+ * the producer – nothing is dropped.  A frame that fails to decode is
+ * counted and skipped; in translator mode its slot is already claimed and
+ * goes out {@link com.ubs.trading.core.EventEnvelope#isDiscarded()
+ * discarded}, which every handler skips.  So is a frame whose header is
+ * corrupt (see {@link ShmRing#poll()}).
+ *
+ * <p>By default the poller spins on an empty ring – hops stay in the low
+ * microseconds but the thread owns a core; {@link Builder#busySpin
+ * busySpin(false)} backs off to parking when idle.
+ *
+ * <p>Counters {@code ipc.frames} and {@code ipc.frames.failed}, tagged
+ * {@code ring} and {@code direction=in}.
+ *
+ * @param <T> payload type
+ */
+public final class ShmIngress<T> implements AutoCloseable {
+
+    /** Consumes one frame: {@code frame[position, limit)} is valid until it returns. */
+    @FunctionalInterface
+    public interface FrameHandler { void onFrame(ByteBuffer frame, long sendNanos); }
+
+    private static final int SPINS = 1_000;
+    private static final long IDLE_PARK_NANOS = 20_000;
+
+    /* false: closed while the engine was full, the frame stays in the shared ring */
+    @FunctionalInterface
+    private interface Sink { boolean offer(ByteBuffer frame, long sendNanos); }
+
+    private final ShmRing ring;
+    private final Sink sink;
+    private final boolean busySpin;
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private final Thread poller;
+    private volatile boolean running = true;
+
+    private ShmIngress(Builder<T> b) {
+        this.ring = Objects.requireNonNull(b.ring, "ring");
+        int set = (b.codec != null ? 1 : 0) + (b.translator != null ? 1 : 0) + (b.handler != null ? 1 : 0);
+        if (set != 1) throw new IllegalArgumentException("set exactly one of codec, translator and frames");
+        if (b.handler != null) {
+            FrameHandler handler = b.handler;
+            this.sink = (frame, sendNanos) -> {
+                handler.onFrame(frame, sendNanos);
+                return true;
+            };
+        } else {
+            DisruptorEngine<T> engine = Objects.requireNonNull(b.engine, "engine");
+            PayloadCodec<T> codec = b.codec;
+            PayloadTranslator<T, ByteBuffer> translator = b.translator;
+            this.sink = codec != null
+                    ? (frame, sendNanos) -> {
+                        T message = codec.decode(frame);
+                        for (int round = 1; !engine.tryPublish(message, sendNanos); round++) {
+                            if (!waitForCapacity(round)) return false;
+                        }
+                        return true;
+                    }
+                    : (frame, sendNanos) -> {
+                        for (int round = 1; !engine.tryPublish(translator, frame, sendNanos); round++) {
+                            if (!waitForCapacity(round)) return false;
+                        }
+                        return true;
+                    };
+        }
+        this.busySpin = b.busySpin;
+
+        if (b.metrics != null) {
+            b.metrics.counter("ipc.frames", frames, AtomicLong::get, "ring", b.name, "direction", "in");
+            b.metrics.counter("ipc.frames.failed", failed, AtomicLong::get, "ring", b.name, "direction", "in");
+        }
+        poller = new Thread(this::pollLoop, b.name + "-ingress");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /** Frames handed on so far. */
+    public long frames() {
+        return frames.get();
+    }
+
+    /** Frames whose decoding or handling threw. */
+    public long failed() {
+        return failed.get();
+    }
+
+    /**
+     * Stops polling; frames still in the ring stay there for the next
+     * consumer, including one the poller was waiting to get into a full
+     * engine.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(poller);
+        try {
+            poller.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* ------------------------------------------------------------- */
+    /*  Poller thread                                                 */
+    /* ------------------------------------------------------------- */
+
+    private void pollLoop() {
+        int idle = 0;
+        while (running) {
+            ByteBuffer frame;
+            try {
+                frame = ring.poll();
+            } catch (IllegalStateException e) {           // corrupt header: polled, skip it
+                failed.lazySet(failed.get() + 1);
+                ring.release();
+                continue;
+            }
+            if (frame == null) {
+                idle(++idle);
+                continue;
+            }
+            idle = 0;
+            boolean taken = true;
+            try {
+                taken = sink.offer(frame, ring.polledSendNanos());
+                if (taken) frames.lazySet(frames.get() + 1);
+            } catch (RuntimeException e) {
+                failed.lazySet(failed.get() + 1);
+            } finally {
+                if (taken) ring.release();
+            }
+        }
+    }
+
+    /* the engine is full: back off, or false once closed */
+    private boolean waitForCapacity(int round) {
+        if (!running) return false;
+        idle(round);
+        return true;
+    }
+
+    private void idle(int round) {
+        if (busySpin || round < SPINS) Thread.onSpinWait();
+        else if (round < SPINS + 100) Thread.yield();
+        else LockSupport.parkNanos(IDLE_PARK_NANOS);
+    }
+
+    /* ------------------------------------------------------------- */
+    /*  Builder                                                       */
+    /* ------------------------------------------------------------- */
+
+    public static final class Builder<T> {
+        private ShmRing ring;
+        private DisruptorEngine<T> engine;
+        private PayloadCodec<T> codec;
+        private PayloadTranslator<T, ByteBuffer> translator;
+        private FrameHandler handler;
+        private boolean busySpin = true;
+        private MetricsRecorder metrics;
+        private String name = "shm";
+
+        private Builder() { }
+
+        public Builder<T> ring(ShmRing ring) {
+            this.ring = ring;
+            return this;
+        }
+
+        /** Target of {@link #codec} and {@link #translator}. */
+        public Builder<T> engine(DisruptorEngine<T> engine) {
+            this.engine = engine;
+            return this;
+        }
+
+        /** Decodes each frame into a new payload. */
+        public Builder<T> codec(PayloadCodec<T> codec) {
+            this.codec = codec;
+            return this;
+        }
+
+        /** Copies each frame into the resident payload of the next slot; nothing is allocated. */
+        public Builder<T> translator(PayloadTranslator<T, ByteBuffer> translator) {
+            this.translator = translator;
+            return this;
+        }
+
+        /** Hands each frame to {@code handler} instead of publishing it; no engine needed. */
+        public Builder<T> frames(FrameHandler handler) {
+            this.handler = handler;
+            return this;
+        }
+
+        /** Spin on an empty ring (default) rather than back off to parking. */
+        public Builder<T> busySpin(boolean busySpin) {
+            this.busySpin = busySpin;
+            return this;
+        }
+
+        /** Registers the counters under {@code ring=name}; also names the thread. */
+        public Builder<T> metrics(MetricsRecorder metrics, String name) {
+            this.metrics = metrics;
+            this.name = Objects.requireNonNull(name, "name");
+            return this;
+        }
+
+        /** Starts the poller thread. */
+        public ShmIngress<T> build() {
+            return new ShmIngress<>(this);
+        }
+    }
+}
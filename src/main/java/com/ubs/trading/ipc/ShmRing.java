@@ -0,0 +1,274 @@
+package com.ubs.trading.ipc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Single-producer / single-consumer ring of fixed-size frames in a
+ * memory-mapped file, for handing messages between two processes on one
+ * host without sockets or copies through the kernel.  Put the file on
+ * {@code /dev/shm} ({@link #SHM}) so it never touches a disk.
+ *
+ * <pre>
+ *   0   int magic, int version, int capacity, int frameSize
+ *  64   long head   – frames published, written by the producer only
+ * 128   long tail   – frames consumed, written by the consumer only
+ * 256   capacity × frame: [int length][int 0][long sendNanos][payload]
+ * </pre>
+ *
+ * The counters sit on cache lines of their own and are accessed with
+ * release/acquire semantics: a frame is written with plain stores and
+ * becomes visible to the other side by the release store of {@code head};
+ * a slot is handed back by the release store of {@code tail}.  Each side
+ * caches the other's counter and rereads it only when the ring looks full
+ * (producer) or empty (consumer), so an uncontended hop touches no shared
+ * line but the frame and one counter.
+ *
+ * <p>{@code sendNanos} is the producer's {@link System#nanoTime()}; on Linux
+ * it is the same monotonic clock in every process, so the consumer can
+ * measure the hop.
+ *
+ * <p>One instance per side: one thread may call {@link #tryClaim} /
+ * {@link #commit} and one – usually in another process – {@link #poll} /
+ * {@link #release}.  The views they return are reused.
+ */
+public final class ShmRing {
+
+    /** Tmpfs on Linux: pages stay in memory. */
+    public static final Path SHM = Path.of("/dev/shm");
+
+    static final int MAGIC = 0x53484D52;                  // "SHMR"
+    static final int VERSION = 1;
+    static final int HEAD = 64;
+    static final int TAIL = 128;
+    static final int DATA = 256;
+    /** Bytes of each frame taken by its header. */
+    public static final int FRAME_HEADER = 16;
+
+    private static final VarHandle LONG =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INT =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private final Path file;
+    private final MappedByteBuffer map;
+    private final int capacity;
+    private final int frameSize;
+    private final long mask;
+
+    /* producer side */
+    private long head;
+    private long cachedTail;
+    private final ByteBuffer claimView;
+    private int claimed = -1;                              // frame offset, -1: nothing claimed
+
+    /* consumer side */
+    private long tail;
+    private long cachedHead;
+    private final ByteBuffer pollView;
+    private long polledSendNanos;
+    private boolean polled;
+
+    private ShmRing(Path file, MappedByteBuffer map, int capacity, int frameSize) {
+        this.file = file;
+        this.map = map;
+        this.capacity = capacity;
+        this.frameSize = frameSize;
+        this.mask = capacity - 1;
+        this.head = (long) LONG.getAcquire(map, HEAD);
+        this.tail = (long) LONG.getAcquire(map, TAIL);
+        this.cachedTail = tail;
+        this.cachedHead = head;
+        this.claimView = map.duplicate().order(ByteOrder.nativeOrder());
+        this.pollView = map.duplicate().order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Creates (or truncates) a ring file and maps it.  The magic number is
+     * written last, so a peer that {@link #open opens} the file early fails
+     * instead of reading a half-initialised header.
+     *
+     * @param capacity  frames; a power of two
+     * @param frameSize bytes per frame including the {@value #FRAME_HEADER}-byte
+     *                  header; a multiple of 8
+     */
+    public static ShmRing create(Path file, int capacity, int frameSize) {
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("capacity must be a power of 2: " + capacity);
+        if (frameSize <= FRAME_HEADER || frameSize % 8 != 0)
+            throw new IllegalArgumentException(
+                    "frameSize must be a multiple of 8 larger than " + FRAME_HEADER + ": " + frameSize);
+        long size = DATA + (long) capacity * frameSize;
+        if (size > Integer.MAX_VALUE) throw new IllegalArgumentException("ring exceeds 2 GiB: " + size);
+
+        try (FileChannel ch = FileChannel.open(file, CREATE, READ, WRITE, TRUNCATE_EXISTING)) {
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            map.order(ByteOrder.nativeOrder());
+            map.putInt(4, VERSION).putInt(8, capacity).putInt(12, frameSize);
+            LONG.setRelease(map, HEAD, 0L);
+            LONG.setRelease(map, TAIL, 0L);
+            INT.setRelease(map, 0, MAGIC);
+            return new ShmRing(file, map, capacity, frameSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Maps a ring created by the peer.
+     *
+     * @throws IllegalStateException if the file is not an initialised ring
+     */
+    public static ShmRing open(Path file) {
+        try (FileChannel ch = FileChannel.open(file, READ, WRITE)) {
+            if (ch.size() < DATA) throw new IllegalStateException("not a ring file: " + file);
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+            map.order(ByteOrder.nativeOrder());
+            if ((int) INT.getAcquire(map, 0) != MAGIC || map.getInt(4) != VERSION)
+                throw new IllegalStateException("not an initialised ring (version " + VERSION + "): " + file);
+            int capacity = map.getInt(8);
+            int frameSize = map.getInt(12);
+            if (ch.size() != DATA + (long) capacity * frameSize)
+                throw new IllegalStateException("ring file size does not match its header: " + file);
+            return new ShmRing(file, map, capacity, frameSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /* ------------------------------------------------------------- *
+     *  producer
+     * ------------------------------------------------------------- */
+
+    /**
+     * Claims the next frame.  Returns a view of the mapping positioned at
+     * the frame's payload and limited to its end, or {@code null} if the
+     * ring is full.  Write the payload with relative puts, then
+     * {@link #commit(ByteBuffer)}; the frame is invisible to the consumer
+     * until then.
+     */
+    public ByteBuffer tryClaim() {
+        if (claimed >= 0) throw new IllegalStateException("previous claim not committed");
+        if (head - cachedTail >= capacity) {
+            cachedTail = (long) LONG.getAcquire(map, TAIL);
+            if (head - cachedTail >= capacity) return null;
+        }
+        int offset = offset(head);
+        claimed = offset;
+        claimView.limit(offset + frameSize).position(offset + FRAME_HEADER);
+        return claimView;
+    }
+
+    /** Publishes the claimed frame; the payload ends at the view's position. */
+    public void commit(ByteBuffer view) {
+        if (claimed < 0) throw new IllegalStateException("nothing claimed");
+        commit(view.position() - claimed - FRAME_HEADER);
+    }
+
+    /** Publishes the claimed frame with {@code length} payload bytes. */
+    public void commit(int length) {
+        int offset = claimed;
+        if (offset < 0) throw new IllegalStateException("nothing claimed");
+        if (length < 0 || length > maxPayload())
+            throw new IllegalArgumentException("frame length out of range: " + length);
+        map.putInt(offset, length);
+        map.putLong(offset + 8, System.nanoTime());
+        claimed = -1;
+        LONG.setRelease(map, HEAD, ++head);
+    }
+
+    /** Gives up the claimed frame, e.g. after a failed encode; the slot is reused by the next claim. */
+    public void abort() {
+        claimed = -1;
+    }
+
+    /** Copies {@code src[position, limit)} into a frame; {@code false} if the ring is full. */
+    public boolean offer(ByteBuffer src) {
+        if (src.remaining() > maxPayload())
+            throw new IllegalArgumentException("frame of " + src.remaining() + " bytes exceeds " + maxPayload());
+        ByteBuffer dst = tryClaim();
+        if (dst == null) return false;
+        dst.put(src);
+        commit(dst);
+        return true;
+    }
+
+    /* ------------------------------------------------------------- *
+     *  consumer
+     * ------------------------------------------------------------- */
+
+    /**
+     * The oldest unconsumed frame's payload, or {@code null} if the ring is
+     * empty.  The payload is a view of the mapping bounded by its position
+     * and limit; it stays valid, and the slot reserved, until
+     * {@link #release()}.  Polling again without releasing returns the same
+     * frame.
+     *
+     * @throws IllegalStateException if the frame's length is out of range,
+     *         which only a broken producer writes; the frame still counts as
+     *         polled, so {@link #release()} skips it
+     */
+    public ByteBuffer poll() {
+        if (tail >= cachedHead) {
+            cachedHead = (long) LONG.getAcquire(map, HEAD);
+            if (tail >= cachedHead) return null;
+        }
+        int offset = offset(tail);
+        int length = map.getInt(offset);
+        polledSendNanos = map.getLong(offset + 8);
+        polled = true;
+        if (length < 0 || length > maxPayload())
+            throw new IllegalStateException("corrupt frame " + tail + ": length " + length);
+        pollView.limit(offset + FRAME_HEADER + length).position(offset + FRAME_HEADER);
+        return pollView;
+    }
+
+    /** Producer's {@code nanoTime} when it committed the last polled frame. */
+    public long polledSendNanos() {
+        return polledSendNanos;
+    }
+
+    /** Hands the polled frame's slot back to the producer. */
+    public void release() {
+        if (!polled) throw new IllegalStateException("nothing polled");
+        polled = false;
+        LONG.setRelease(map, TAIL, ++tail);
+    }
+
+    /* ------------------------------------------------------------- */
+
+    private int offset(long sequence) {
+        return DATA + (int) (sequence & mask) * frameSize;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int maxPayload() {
+        return frameSize - FRAME_HEADER;
+    }
+
+    /** Frames published but not yet released, as seen from either side; a hint only. */
+    public long size() {
+        return (long) LONG.getAcquire(map, HEAD) - (long) LONG.getAcquire(map, TAIL);
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    @Override
+    public String toString() {
+        return "ShmRing[" + file + ", capacity=" + capacity + ", frameSize=" + frameSize + ']';
+    }
+}
@@ -0,0 +1,49 @@
+package com.ubs.trading.journal;
+
+import java.time.Duration;
+
+/**
+ * When a {@link JournalWriter} forces appended records from the page cache
+ * to disk.  Records are in the mapped file as soon as they are appended, so
+ * they survive a process crash either way; flushing only protects against
+ * losing the host.
+ *
+ * <p>A policy is evaluated on every append and again while the journal is
+ * idle (see {@link JournalWriter#flushIfDue()}), so time-based policies
+ * also cover the last records before traffic stops.
+ */
+@FunctionalInterface
+public interface FlushPolicy {
+
+    /**
+     * @param pending          records appended since the last flush (≥ 1)
+     * @param nanosSinceFlush  age of the oldest unflushed record, by {@link System#nanoTime()}
+     * @param endOfBatch       the Disruptor has no further event ready
+     */
+    boolean shouldFlush(int pending, long nanosSinceFlush, boolean endOfBatch);
+
+    /** Leave write-back to the OS; fastest, host crash may lose recent records. */
+    static FlushPolicy never() {
+        return (pending, nanos, endOfBatch) -> false;
+    }
+
+    /** Every {@code records} appends. */
+    static FlushPolicy everyRecords(int records) {
+        if (records < 1) throw new IllegalArgumentException("records must be ≥ 1: " + records);
+        return (pending, nanos, endOfBatch) -> pending >= records;
+    }
+
+    /**
+     * At most {@code interval} of records at risk – provided the writer is
+     * also polled while idle, as {@link JournalHandler} does.
+     */
+    static FlushPolicy interval(Duration interval) {
+        long limit = interval.toNanos();
+        return (pending, nanos, endOfBatch) -> nanos >= limit;
+    }
+
+    /** Once per Disruptor batch: a burst costs one flush. */
+    static FlushPolicy endOfBatch() {
+        return (pending, nanos, endOfBatch) -> endOfBatch;
+    }
+}
@@ -0,0 +1,63 @@
+package com.ubs.trading.journal;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
+import com.lmax.disruptor.TimeoutHandler;
+import com.ubs.trading.core.EventEnvelope;
+
+import java.util.Objects;
+
+/**
+ * Disruptor consumer that journals every envelope.  Declare it in the same
+ * stage as the dispatcher so it runs on its own thread, in parallel, and
+ * adds nothing to the critical path:
+ *
+ * <pre>{@code
+ * DisruptorEngine.<Order>builder()
+ *         .handlers(new JournalHandler<>(writer), dispatcher)
+ *         ...
+ * }</pre>
+ *
+ * Put it in front of the dispatcher ({@code .handler(journal).then(dispatcher)})
+ * instead when a message may only be processed once it is journaled – and
+ * always with resident payloads mutated in place, which a parallel journal
+ * could otherwise read half-updated.
+ *
+ * <p>On wait-strategy timeouts the writer's flush policy is evaluated
+ * again, so an {@link FlushPolicy#interval interval} policy also forces the
+ * last records once traffic stops.  That needs an engine whose wait
+ * strategy times out, e.g. {@code WaitStrategyType.TIMEOUT_BLOCKING}.
+ *
+ * <p>The writer is flushed and closed when the engine shuts down.
+ */
+public final class JournalHandler<T> implements EventHandler<EventEnvelope<T>>, LifecycleAware, TimeoutHandler {
+
+    private final JournalWriter<T> writer;
+
+    public JournalHandler(JournalWriter<T> writer) {
+        this.writer = Objects.requireNonNull(writer, "writer");
+    }
+
+    @Override
+    public void onEvent(EventEnvelope<T> env, long seq, boolean endOfBatch) {
+        if (!env.isMessage()) return;                 // an async resume or a discarded slot
+        writer.append(env.getIngestNanos(), env.getPayload(), endOfBatch);
+    }
+
+    @Override
+    public void onTimeout(long sequence) {
+        writer.flushIfDue();
+    }
+
+    @Override
+    public void onStart() { }
+
+    @Override
+    public void onShutdown() {
+        writer.close();
+    }
+
+    public JournalWriter<T> writer() {
+        return writer;
+    }
+}
@@ -0,0 +1,97 @@
+package com.ubs.trading.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Cursor over every record of a journal directory, oldest first, reading
+ * the memory-mapped segments in place.
+ *
+ * <pre>{@code
+ * try (JournalReader r = new JournalReader(dir)) {
+ *     while (r.next()) {
+ *         handle(r.sequence(), r.ingestNanos(), codec.decode(r.payload()));
+ *     }
+ * }
+ * }</pre>
+ *
+ * {@link #payload()} is a view into the mapping, valid until the next call
+ * to {@link #next()}; no bytes are copied and nothing is allocated per
+ * record.  Single-threaded.
+ */
+public final class JournalReader implements AutoCloseable {
+
+    private final Path dir;
+    private final long[] segments;
+    private int segmentPos = -1;
+
+    private MappedByteBuffer segment;
+    private ByteBuffer view;                       // reused payload window over 'segment'
+    private int position;                          // start of the current record
+    private int length;                            // 0 before the first next()
+
+    public JournalReader(Path dir) {
+        this.dir = dir;
+        this.segments = Segments.list(dir);
+    }
+
+    /** Moves to the next record; {@code false} once the journal is exhausted. */
+    public boolean next() {
+        if (segment != null) {
+            position += length;
+            length = Segments.recordLength(segment, position);
+            if (length > 0) return true;
+        }
+        while (++segmentPos < segments.length) {
+            map(segments[segmentPos]);
+            length = Segments.recordLength(segment, 0);
+            if (length > 0) return true;
+        }
+        segment = null;
+        view = null;
+        length = 0;
+        return false;
+    }
+
+    public long sequence() {
+        return segment.getLong(position + Segments.SEQUENCE);
+    }
+
+    public long ingestNanos() {
+        return segment.getLong(position + Segments.INGEST);
+    }
+
+    /** Payload bytes of the current record, from position to limit. */
+    public ByteBuffer payload() {
+        view.limit(position + length).position(position + Segments.HEADER);
+        return view;
+    }
+
+    /** Header plus payload bytes of the current record. */
+    public int recordLength() {
+        return length;
+    }
+
+    @Override
+    public void close() {
+        segment = null;                             // mapping is released by GC
+        view = null;
+        segmentPos = segments.length;
+    }
+
+    private void map(long index) {
+        try (FileChannel ch = FileChannel.open(Segments.path(dir, index), READ)) {
+            segment = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        view = segment.duplicate();
+        position = 0;
+    }
+}
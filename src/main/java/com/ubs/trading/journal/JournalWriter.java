@@ -0,0 +1,237 @@
+package com.ubs.trading.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Appends records to rolling memory-mapped segment files (see
+ * {@link Segments} for the layout).  An append is a few buffer writes into
+ * the page cache – no syscall – and the {@link FlushPolicy} decides when
+ * the dirty range is forced to disk.
+ *
+ * <p>Opening a directory that already holds a journal starts a new segment
+ * and continues the sequence after the last record found, so sequences are
+ * unique and increasing across restarts.
+ *
+ * <p>Single-threaded; see {@link JournalHandler} for the Disruptor consumer.
+ *
+ * @param <T> payload type
+ */
+public final class JournalWriter<T> implements AutoCloseable {
+
+    private final Path dir;
+    private final PayloadCodec<T> codec;
+    private final int segmentSize;
+    private final int maxRecordSize;
+    private final FlushPolicy flushPolicy;
+
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+    private int position;
+    private long nextSequence;
+
+    /* flush bookkeeping */
+    private int flushedPosition;
+    private int pending;
+    private long oldestPendingNanos;                   // clock time of the first unflushed append
+
+    private long records;
+    private long bytes;
+    private long flushes;
+
+    private JournalWriter(Builder<T> b) {
+        this.dir = Objects.requireNonNull(b.dir, "directory");
+        this.codec = Objects.requireNonNull(b.codec, "codec");
+        this.segmentSize = b.segmentSize;
+        this.maxRecordSize = b.maxRecordSize;
+        this.flushPolicy = b.flushPolicy;
+        if (maxRecordSize > segmentSize)
+            throw new IllegalArgumentException("maxRecordSize exceeds segmentSize");
+
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long[] existing = Segments.list(dir);
+        this.nextSequence = lastSequence(existing) + 1;
+        long first = existing.length == 0 ? 0 : existing[existing.length - 1] + 1;
+        map(first);
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Append one record.
+     *
+     * @param endOfBatch passed to the flush policy
+     * @return the record's sequence
+     * @throws IllegalStateException if the encoded payload exceeds {@code maxRecordSize}
+     */
+    public long append(long ingestNanos, T payload, boolean endOfBatch) {
+        if (position + maxRecordSize > segmentSize) roll();
+
+        int start = position;
+        segment.limit(start + maxRecordSize).position(start + Segments.HEADER);
+        int length;
+        try {
+            codec.encode(payload, segment);
+            length = segment.position() - start;
+        } catch (BufferOverflowException e) {
+            throw new IllegalStateException("record exceeds maxRecordSize " + maxRecordSize, e);
+        } finally {
+            segment.limit(segmentSize);
+        }
+
+        long sequence = nextSequence++;
+        segment.putLong(start + Segments.SEQUENCE, sequence);
+        segment.putLong(start + Segments.INGEST, ingestNanos);
+        segment.putInt(start + Segments.LENGTH, length);          // commits the record
+        position = start + length;
+
+        records++;
+        bytes += length;
+        long now = System.nanoTime();
+        if (pending++ == 0) oldestPendingNanos = now;
+        if (flushPolicy.shouldFlush(pending, now - oldestPendingNanos, endOfBatch)) flush();
+        return sequence;
+    }
+
+    /**
+     * Evaluates the flush policy without appending, as at the end of a
+     * batch; call while idle so that time-based policies hold when traffic
+     * stops.
+     *
+     * @return whether it flushed
+     */
+    public boolean flushIfDue() {
+        if (pending == 0) return false;
+        if (!flushPolicy.shouldFlush(pending, System.nanoTime() - oldestPendingNanos, true)) return false;
+        flush();
+        return true;
+    }
+
+    /** Force everything appended so far to disk. */
+    public void flush() {
+        if (position > flushedPosition) {
+            segment.force(flushedPosition, position - flushedPosition);
+            flushes++;
+        }
+        flushedPosition = position;
+        pending = 0;
+    }
+
+    /** Flushes; the mapping is released when the buffer is collected. */
+    @Override
+    public void close() {
+        flush();
+    }
+
+    /** Sequence the next append will get. */
+    public long nextSequence() { return nextSequence; }
+
+    public long segmentIndex() { return segmentIndex; }
+
+    public long recordsWritten() { return records; }
+
+    public long bytesWritten() { return bytes; }
+
+    public long flushes() { return flushes; }
+
+    /* ----------------------------------------------------------------- */
+
+    private void roll() {
+        flush();
+        map(segmentIndex + 1);
+    }
+
+    private void map(long index) {
+        try (FileChannel ch = FileChannel.open(Segments.path(dir, index), CREATE_NEW, READ, WRITE)) {
+            segment = ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segmentIndex = index;
+        position = 0;
+        flushedPosition = 0;
+    }
+
+    /* last sequence in the newest non-empty segment, or -1 */
+    private long lastSequence(long[] indices) {
+        for (int i = indices.length - 1; i >= 0; i--) {
+            try (FileChannel ch = FileChannel.open(Segments.path(dir, indices[i]), READ)) {
+                MappedByteBuffer seg = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                long last = -1;
+                int pos = 0;
+                int len;
+                while ((len = Segments.recordLength(seg, pos)) > 0) {
+                    last = seg.getLong(pos + Segments.SEQUENCE);
+                    pos += len;
+                }
+                if (last >= 0) return last;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return -1;
+    }
+
+    /* ================================================================= *
+     *  Builder
+     * ================================================================= */
+
+    public static final class Builder<T> {
+
+        private Path dir;
+        private PayloadCodec<T> codec;
+        private int segmentSize = 64 << 20;
+        private int maxRecordSize = 64 << 10;
+        private FlushPolicy flushPolicy = FlushPolicy.endOfBatch();
+
+        private Builder() { }
+
+        public Builder<T> directory(Path dir) {
+            this.dir = Objects.requireNonNull(dir, "dir");
+            return this;
+        }
+
+        public Builder<T> codec(PayloadCodec<T> codec) {
+            this.codec = Objects.requireNonNull(codec, "codec");
+            return this;
+        }
+
+        /** Bytes per segment file (default 64 MiB). */
+        public Builder<T> segmentSize(int bytes) {
+            if (bytes < Segments.HEADER) throw new IllegalArgumentException("segment too small: " + bytes);
+            this.segmentSize = bytes;
+            return this;
+        }
+
+        /** Upper bound for header + encoded payload (default 64 KiB). */
+        public Builder<T> maxRecordSize(int bytes) {
+            if (bytes <= Segments.HEADER) throw new IllegalArgumentException("record too small: " + bytes);
+            this.maxRecordSize = bytes;
+            return this;
+        }
+
+        /** Default {@link FlushPolicy#endOfBatch()}. */
+        public Builder<T> flushPolicy(FlushPolicy flushPolicy) {
+            this.flushPolicy = Objects.requireNonNull(flushPolicy, "flushPolicy");
+            return this;
+        }
+
+        public JournalWriter<T> build() {
+            return new JournalWriter<>(this);
+        }
+    }
+}
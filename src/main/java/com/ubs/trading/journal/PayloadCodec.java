@@ -0,0 +1,38 @@
+package com.ubs.trading.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serialises payloads into journal records.
+ *
+ * @param <T> payload type
+ */
+public interface PayloadCodec<T> {
+
+    /**
+     * Writes {@code payload} at {@code dst}'s position, advancing it.  The
+     * limit is the maximum record size; overflowing it fails the append.
+     */
+    void encode(T payload, ByteBuffer dst);
+
+    /** Reads a payload from {@code src[position, limit)}, exactly one record's bytes. */
+    T decode(ByteBuffer src);
+
+    /** UTF-8 strings. */
+    static PayloadCodec<String> utf8() {
+        return new PayloadCodec<>() {
+            @Override
+            public void encode(String payload, ByteBuffer dst) {
+                dst.put(payload.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public String decode(ByteBuffer src) {
+                byte[] bytes = new byte[src.remaining()];
+                src.get(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+}
@@ -0,0 +1,286 @@
+package com.ubs.trading.journal;
+
+import com.ubs.trading.core.DisruptorEngine;
+import com.ubs.trading.core.DisruptorEngine.PayloadTranslator;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds a journal back through a {@link DisruptorEngine}, in sequence
+ * order, from the calling thread.
+ *
+ * <pre>{@code
+ * ReplayEngine.Result r = ReplayEngine.<Order>builder()
+ *         .directory(journalDir)
+ *         .codec(orderCodec)          // or .translator(...) for resident payloads
+ *         .engine(engine)
+ *         .speed(1.0)                 // original timing; 0 = as fast as possible
+ *         .build()
+ *         .run();
+ * }</pre>
+ *
+ * <p>Records are read in place from the mapped segments (see
+ * {@link JournalReader}).  With {@link Builder#translator} on a
+ * resident-payload engine the bytes go straight from the mapping into the
+ * ring slot: nothing is copied or allocated per record.
+ *
+ * <p>By default ingest timestamps are rebased onto the replay clock, so
+ * the latency metrics stay meaningful: a paced replay stamps each message
+ * with the time it is due – the recorded gaps divided by the speed, parked
+ * while far off, spun for the last stretch – and an as-fast-as-possible
+ * replay stamps it with the time it is published.
+ * {@link Builder#rebase rebase(false)} publishes the raw recorded values.
+ *
+ * <p>Recorded timestamps are {@link System#nanoTime()} readings, whose
+ * origin changes when a journal is continued by another JVM.  Pacing
+ * therefore replays a negative gap, or one longer than
+ * {@link Builder#maxGap maxGap}, as no gap at all.
+ *
+ * @param <T> payload type
+ */
+public final class ReplayEngine<T> {
+
+    /** Below this remaining wait the pacer spins rather than parks. */
+    private static final long SPIN_NANOS = 50_000;
+
+    private final Path dir;
+    private final DisruptorEngine<T> engine;
+    private final PayloadCodec<T> codec;
+    private final PayloadTranslator<T, ByteBuffer> translator;
+    private final double speed;
+    private final boolean rebase;
+    private final long maxGapNanos;
+    private final boolean awaitDrain;
+    private final long drainTimeoutNanos;
+    private final long fromSequence;
+
+    private ReplayEngine(Builder<T> b) {
+        this.dir = Objects.requireNonNull(b.dir, "directory");
+        this.engine = Objects.requireNonNull(b.engine, "engine");
+        if ((b.codec == null) == (b.translator == null))
+            throw new IllegalArgumentException("set exactly one of codec and translator");
+        this.codec = b.codec;
+        this.translator = b.translator;
+        this.speed = b.speed;
+        this.rebase = b.rebase;
+        this.maxGapNanos = b.maxGap.toNanos();
+        this.awaitDrain = b.awaitDrain;
+        this.drainTimeoutNanos = b.drainTimeout.toNanos();
+        this.fromSequence = b.fromSequence;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Replays the whole journal, blocking while the ring is full, and – unless
+     * disabled – until the engine has processed every replayed message or
+     * the drain timeout passes ({@link Result#drained()}).
+     */
+    public Result run() {
+        long records = 0;
+        long bytes = 0;
+        long firstSequence = -1;
+        long lastSequence = -1;
+        long previousRecorded = 0;
+        long elapsedRecorded = 0;                     // sum of the paced gaps so far
+        long start = System.nanoTime();
+
+        try (JournalReader reader = new JournalReader(dir)) {
+            while (reader.next()) {
+                long sequence = reader.sequence();
+                if (sequence < fromSequence) continue;
+
+                long recorded = reader.ingestNanos();
+                if (records == 0) {
+                    firstSequence = sequence;
+                } else {
+                    long gap = recorded - previousRecorded;
+                    if (gap > 0 && gap <= maxGapNanos) elapsedRecorded += gap;
+                }
+                previousRecorded = recorded;
+
+                long ingest;
+                if (!rebase) {
+                    ingest = recorded;
+                    if (speed > 0) awaitTime(start + scaled(elapsedRecorded));
+                } else if (speed > 0) {
+                    ingest = start + scaled(elapsedRecorded);
+                    awaitTime(ingest);
+                } else {
+                    ingest = System.nanoTime();
+                }
+                ByteBuffer payload = reader.payload();
+                if (translator != null) {
+                    engine.publish(translator, payload, ingest);
+                } else {
+                    engine.publish(codec.decode(payload), ingest);
+                }
+                records++;
+                bytes += reader.recordLength();
+                lastSequence = sequence;
+            }
+        }
+        boolean drained = !awaitDrain || awaitDrain();
+        return new Result(records, bytes, firstSequence, lastSequence, System.nanoTime() - start, drained);
+    }
+
+    /* false if the backlog is still there at the deadline, e.g. a stalled handler */
+    private boolean awaitDrain() {
+        long deadline = System.nanoTime() + drainTimeoutNanos;
+        while (engine.backlog() > 0) {
+            if (System.nanoTime() - deadline >= 0) return false;
+            Thread.onSpinWait();
+        }
+        return true;
+    }
+
+    private long scaled(long recordedNanos) {
+        return (long) (recordedNanos / speed);
+    }
+
+    private static void awaitTime(long due) {
+        long remaining;
+        while ((remaining = due - System.nanoTime()) > 0) {
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------- */
+    /*  Result                                                        */
+    /* ------------------------------------------------------------- */
+
+    /**
+     * Outcome of {@link #run()}.  Sequences are -1 when nothing was replayed;
+     * elapsed time includes the drain.  {@code drained} is {@code false} if
+     * the engine still had a backlog when the drain timeout ran out; it is
+     * {@code true} when the drain was not awaited.
+     */
+    public record Result(long records, long bytes, long firstSequence, long lastSequence,
+                         long elapsedNanos, boolean drained) {
+
+        public double messagesPerSecond() {
+            return elapsedNanos == 0 ? 0 : records * 1e9 / elapsedNanos;
+        }
+
+        public double bytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytes * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("replayed %,d records (%,d bytes) in %.1f ms: %,.0f msg/s, %.1f MB/s%s",
+                    records, bytes, elapsedNanos / 1e6, messagesPerSecond(), bytesPerSecond() / 1e6,
+                    drained ? "" : " (drain timed out)");
+        }
+    }
+
+    /* ------------------------------------------------------------- */
+    /*  Builder                                                       */
+    /* ------------------------------------------------------------- */
+
+    public static final class Builder<T> {
+        private Path dir;
+        private DisruptorEngine<T> engine;
+        private PayloadCodec<T> codec;
+        private PayloadTranslator<T, ByteBuffer> translator;
+        private double speed;
+        private boolean rebase = true;
+        private Duration maxGap = Duration.ofSeconds(10);
+        private boolean awaitDrain = true;
+        private Duration drainTimeout = Duration.ofSeconds(30);
+        private long fromSequence;
+
+        private Builder() { }
+
+        public Builder<T> directory(Path dir) {
+            this.dir = dir;
+            return this;
+        }
+
+        public Builder<T> engine(DisruptorEngine<T> engine) {
+            this.engine = engine;
+            return this;
+        }
+
+        /** Decode each record into a new payload; for object-publishing engines. */
+        public Builder<T> codec(PayloadCodec<T> codec) {
+            this.codec = codec;
+            return this;
+        }
+
+        /**
+         * Fill resident payloads straight from the mapped record bytes; the
+         * buffer is only valid inside the call.
+         */
+        public Builder<T> translator(PayloadTranslator<T, ByteBuffer> translator) {
+            this.translator = translator;
+            return this;
+        }
+
+        /**
+         * Pacing relative to the recorded timing: 1.0 replays the original
+         * inter-arrival gaps, 2.0 halves them; 0 (default) publishes as fast
+         * as the ring accepts.
+         */
+        public Builder<T> speed(double speed) {
+            if (!(speed >= 0) || Double.isInfinite(speed))
+                throw new IllegalArgumentException("speed must be finite and ≥ 0: " + speed);
+            this.speed = speed;
+            return this;
+        }
+
+        /** {@code false}: publish the recorded timestamps as they are (default true). */
+        public Builder<T> rebase(boolean rebase) {
+            this.rebase = rebase;
+            return this;
+        }
+
+        /**
+         * Longest recorded gap a paced replay waits out (default 10 s);
+         * longer and negative gaps, e.g. across a restart, count as none.
+         */
+        public Builder<T> maxGap(Duration maxGap) {
+            if (maxGap.isNegative()) throw new IllegalArgumentException("maxGap must be ≥ 0: " + maxGap);
+            this.maxGap = maxGap;
+            return this;
+        }
+
+        /** {@code false}: return as soon as the last record is published (default true). */
+        public Builder<T> awaitDrain(boolean awaitDrain) {
+            this.awaitDrain = awaitDrain;
+            return this;
+        }
+
+        /**
+         * Longest wait for the engine to drain after the last record (default
+         * 30 s); {@link #run()} then returns with {@link Result#drained()}
+         * {@code false} rather than hang on a stalled handler.
+         */
+        public Builder<T> drainTimeout(Duration drainTimeout) {
+            if (drainTimeout.isNegative())
+                throw new IllegalArgumentException("drainTimeout must be ≥ 0: " + drainTimeout);
+            this.drainTimeout = drainTimeout;
+            return this;
+        }
+
+        /** Skip records with a lower sequence. */
+        public Builder<T> fromSequence(long fromSequence) {
+            this.fromSequence = fromSequence;
+            return this;
+        }
+
+        public ReplayEngine<T> build() {
+            return new ReplayEngine<>(this);
+        }
+    }
+}
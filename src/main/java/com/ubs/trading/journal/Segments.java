@@ -0,0 +1,62 @@
+package com.ubs.trading.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * On-disk layout shared by writer and reader.
+ *
+ * <p>A journal is a directory of fixed-size, zero-filled segment files
+ * {@code segment-<index>.journal}.  Each holds back-to-back records:
+ *
+ * <pre>
+ *   int  recordLength     header + payload bytes; 0 = end of segment
+ *   long sequence
+ *   long ingestNanos
+ *   byte[recordLength - HEADER] payload
+ * </pre>
+ *
+ * The length is written last, so a half-written record reads as the end.
+ */
+final class Segments {
+
+    static final int HEADER = 4 + 8 + 8;
+
+    static final int LENGTH = 0;
+    static final int SEQUENCE = 4;
+    static final int INGEST = 12;
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".journal";
+
+    private Segments() { }
+
+    static Path path(Path dir, long index) {
+        return dir.resolve(PREFIX + "%010d".formatted(index) + SUFFIX);
+    }
+
+    /** Segment indices present in {@code dir}, ascending. */
+    static long[] list(Path dir) {
+        if (!Files.isDirectory(dir)) return new long[0];
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(PREFIX) && n.endsWith(SUFFIX))
+                    .mapToLong(n -> Long.parseLong(n.substring(PREFIX.length(), n.length() - SUFFIX.length())))
+                    .sorted()
+                    .toArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Length of the record at {@code pos}, or 0 if the segment ends there. */
+    static int recordLength(ByteBuffer segment, int pos) {
+        if (pos + HEADER > segment.capacity()) return 0;
+        int len = segment.getInt(pos + LENGTH);
+        return len >= HEADER && pos + len <= segment.capacity() ? len : 0;
+    }
+}
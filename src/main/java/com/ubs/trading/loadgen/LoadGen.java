@@ -0,0 +1,75 @@
+package com.ubs.trading.loadgen;
+
+import com.ubs.trading.core.Dispatcher;
+import com.ubs.trading.core.DisruptorEngine;
+import com.ubs.trading.core.DisruptorEngine.WaitStrategyType;
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command-line rate sweep against a pass-through engine:
+ *
+ * <pre>
+ * ./gradlew loadgen -Ploadgen.args="rates=100000,1000000,3000000 duration=5 wait=BUSY_SPIN"
+ * </pre>
+ *
+ * Options ({@code key=value}): {@code rates} (msg/s, comma separated),
+ * {@code duration} and {@code warmup} (seconds per rate), {@code ring},
+ * {@code wait} (a {@link WaitStrategyType}) and {@code out}
+ * (CSV file).  Prints the percentile table and writes the CSV.
+ */
+public final class LoadGen {
+
+    private LoadGen() { }
+
+    public static void main(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("expected key=value: " + a);
+            opts.put(a.substring(0, eq), a.substring(eq + 1));
+        }
+        double[] rates = Arrays.stream(opts.getOrDefault("rates", "50000,100000,250000,500000,1000000")
+                .split(",")).mapToDouble(Double::parseDouble).toArray();
+        Duration duration = seconds(opts.getOrDefault("duration", "5"));
+        Duration warmup = seconds(opts.getOrDefault("warmup", "2"));
+        Path out = Path.of(opts.getOrDefault("out", "build/reports/loadgen/latency.csv"));
+
+        MetricsRecorder metrics = new MetricsRecorder(new SimpleMeterRegistry());
+        DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+                .ringSize(Integer.parseInt(opts.getOrDefault("ring", "65536")))
+                .waitStrategy(WaitStrategyType.valueOf(opts.getOrDefault("wait", "BUSY_SPIN")))
+                .daemon(true)
+                .handler(new Dispatcher<>(Pipeline.build("passthrough", true, String::strip),
+                        metrics, msg -> { }))
+                .metrics(metrics)
+                .build();
+
+        List<RatePoint> points = LoadGenerator.<String>builder()
+                .engine(engine)
+                .metrics(metrics)
+                .payloads(i -> "35=D|11=ORD-1|55=VOD.L|54=1|38=100")
+                .warmup(warmup)
+                .duration(duration)
+                .build()
+                .sweep(rates);
+
+        engine.shutdown();
+        metrics.close();
+        System.out.print(LoadGenerator.table(points));
+        LoadGenerator.writeCsv(points, out);
+        System.out.println("written " + out.toAbsolutePath());
+    }
+
+    private static Duration seconds(String value) {
+        return Duration.ofNanos((long) (Double.parseDouble(value) * 1e9));
+    }
+}
@@ -0,0 +1,206 @@
+package com.ubs.trading.loadgen;
+
+import com.ubs.trading.core.DisruptorEngine;
+import com.ubs.trading.metrics.LatencyHistogram;
+import com.ubs.trading.metrics.LatencySnapshot;
+import com.ubs.trading.metrics.MetricsRecorder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongFunction;
+
+/**
+ * Open-loop load: publishes at a fixed target rate, regardless of how fast
+ * the engine consumes, and measures latency from each message's intended
+ * send time rather than the time it was actually published.
+ *
+ * <p>A closed-loop or timer-driven producer that is held up by a stalled
+ * consumer simply sends later, and the messages a real feed would have
+ * queued during the stall are never measured ("coordinated omission").
+ * Here the {@link RatePacer} schedule keeps running, the intended time is
+ * passed as the envelope's ingest timestamp, and the end-to-end histogram
+ * therefore includes the full queueing delay.
+ *
+ * <pre>{@code
+ * LoadGenerator<String> gen = LoadGenerator.<String>builder()
+ *         .engine(engine).metrics(metrics)
+ *         .payloads(i -> "msg")
+ *         .warmup(Duration.ofSeconds(2)).duration(Duration.ofSeconds(5))
+ *         .build();
+ * LoadGenerator.writeCsv(gen.sweep(100_000, 500_000, 1_000_000), Path.of("curve.csv"));
+ * }</pre>
+ *
+ * <p>Runs on the calling thread, which spins for the whole run.
+ *
+ * @param <T> payload type
+ */
+public final class LoadGenerator<T> {
+
+    private final DisruptorEngine<T> engine;
+    private final LatencyHistogram latency;
+    private final LongFunction<? extends T> payloads;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final long drainTimeoutNanos;
+
+    private long sequence;                         // payload index across runs
+
+    private LoadGenerator(Builder<T> b) {
+        this.engine = Objects.requireNonNull(b.engine, "engine");
+        MetricsRecorder metrics = Objects.requireNonNull(b.metrics, "metrics");
+        this.latency = metrics.endToEnd();
+        this.payloads = Objects.requireNonNull(b.payloads, "payloads");
+        this.warmupNanos = b.warmup.toNanos();
+        this.durationNanos = b.duration.toNanos();
+        if (durationNanos <= 0) throw new IllegalArgumentException("duration must be > 0");
+        this.drainTimeoutNanos = b.drainTimeout.toNanos();
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Warm up, then publish at {@code messagesPerSecond} for the configured
+     * duration and wait for the engine to drain.  A drain that outlasts the
+     * drain timeout, after the warm-up or the measured run, fails the point
+     * ({@link RatePoint#drained()}).
+     */
+    public RatePoint run(double messagesPerSecond) {
+        boolean drained = true;
+        if (warmupNanos > 0) {
+            drive(new RatePacer(messagesPerSecond), warmupNanos);
+            drained = awaitDrain();
+        }
+        LatencySnapshot before = latency.snapshot();
+        RatePacer pacer = new RatePacer(messagesPerSecond);
+        long start = System.nanoTime();
+        long sent = drive(pacer, durationNanos);
+        long elapsed = System.nanoTime() - start;
+        drained &= awaitDrain();
+
+        return new RatePoint(messagesPerSecond, sent * 1e9 / elapsed, sent,
+                latency.snapshot().minus(before), drained);
+    }
+
+    /** {@link #run} at each rate in turn. */
+    public List<RatePoint> sweep(double... rates) {
+        List<RatePoint> points = new ArrayList<>(rates.length);
+        for (double rate : rates) points.add(run(rate));
+        return points;
+    }
+
+    private long drive(RatePacer pacer, long nanos) {
+        long n = pacer.messagesIn(nanos);
+        for (long i = 0; i < n; i++) {
+            long intended = pacer.await(i);
+            engine.publish(payloads.apply(sequence++), intended);
+        }
+        return n;
+    }
+
+    /* false if the backlog is still there at the deadline */
+    private boolean awaitDrain() {
+        long deadline = System.nanoTime() + drainTimeoutNanos;
+        while (engine.backlog() > 0) {
+            if (System.nanoTime() - deadline >= 0) return false;
+            Thread.onSpinWait();
+        }
+        return true;
+    }
+
+    /* ------------------------------------------------------------- */
+    /*  Output                                                        */
+    /* ------------------------------------------------------------- */
+
+    /** One row per point; latencies in microseconds. */
+    public static void writeCsv(List<RatePoint> points, Path file) {
+        List<String> lines = new ArrayList<>(points.size() + 1);
+        lines.add(RatePoint.csvHeader());
+        for (RatePoint p : points) lines.add(p.csvRow());
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            Files.write(file, lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Console table of the same columns as {@link #writeCsv}. */
+    public static String table(List<RatePoint> points) {
+        StringBuilder sb = new StringBuilder(String.format("%12s %12s", "target/s", "achieved/s"));
+        for (double q : RatePoint.QUANTILES) sb.append(String.format(" %10s", "p" + RatePoint.label(q)));
+        sb.append(String.format(" %10s%n", "max µs"));
+        for (RatePoint p : points) {
+            sb.append(String.format("%,12.0f %,12.0f", p.targetRate(), p.achievedRate()));
+            for (double q : RatePoint.QUANTILES) {
+                sb.append(String.format(" %10.1f", p.latency().valueAtQuantile(q) / 1_000.0));
+            }
+            sb.append(String.format(" %10.1f%s%s%n", p.latency().max() / 1_000.0,
+                    p.saturated() ? "  saturated" : "", p.drained() ? "" : "  undrained"));
+        }
+        return sb.toString();
+    }
+
+    /* ------------------------------------------------------------- */
+    /*  Builder                                                       */
+    /* ------------------------------------------------------------- */
+
+    public static final class Builder<T> {
+        private DisruptorEngine<T> engine;
+        private MetricsRecorder metrics;
+        private LongFunction<? extends T> payloads;
+        private Duration warmup = Duration.ZERO;
+        private Duration duration = Duration.ofSeconds(5);
+        private Duration drainTimeout = Duration.ofSeconds(30);
+
+        private Builder() { }
+
+        /** Object-publishing engine to drive. */
+        public Builder<T> engine(DisruptorEngine<T> engine) {
+            this.engine = engine;
+            return this;
+        }
+
+        /** The engine's recorder; its end-to-end histogram is read. */
+        public Builder<T> metrics(MetricsRecorder metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /** Payload of the {@code i}-th message; called on the publishing thread. */
+        public Builder<T> payloads(LongFunction<? extends T> payloads) {
+            this.payloads = payloads;
+            return this;
+        }
+
+        /** Untimed run at the same rate before each measured one (default none). */
+        public Builder<T> warmup(Duration warmup) {
+            this.warmup = warmup;
+            return this;
+        }
+
+        /** Measured run length per rate (default 5 s). */
+        public Builder<T> duration(Duration duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        /** Longest wait for the engine to drain after each run (default 30 s). */
+        public Builder<T> drainTimeout(Duration drainTimeout) {
+            this.drainTimeout = drainTimeout;
+            return this;
+        }
+
+        public LoadGenerator<T> build() {
+            return new LoadGenerator<>(this);
+        }
+    }
+}
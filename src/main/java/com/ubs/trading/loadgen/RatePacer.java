@@ -0,0 +1,48 @@
+package com.ubs.trading.loadgen;
+
+/**
+ * Constant-rate schedule: message {@code i} is due at
+ * {@code start + i / rate}.  {@link #await} busy-spins until a message is
+ * due and returns its <em>intended</em> send time, which is what latency
+ * should be measured from.
+ *
+ * <p>The schedule never slips: if the caller falls behind (a full ring, a
+ * GC pause) the following messages are due immediately and are sent
+ * back-to-back until it catches up, the way a real feed would keep
+ * arriving.  Spinning keeps the jitter at the {@code nanoTime} resolution,
+ * at the cost of one fully busy core.
+ */
+public final class RatePacer {
+
+    private final long start;
+    private final double periodNanos;
+
+    /** Schedule starting now. */
+    public RatePacer(double messagesPerSecond) {
+        this(messagesPerSecond, System.nanoTime());
+    }
+
+    public RatePacer(double messagesPerSecond, long startNanos) {
+        if (!(messagesPerSecond > 0) || Double.isInfinite(messagesPerSecond))
+            throw new IllegalArgumentException("rate must be finite and > 0: " + messagesPerSecond);
+        this.periodNanos = 1e9 / messagesPerSecond;
+        this.start = startNanos;
+    }
+
+    /** {@code nanoTime} at which message {@code i} is due. */
+    public long intendedTime(long i) {
+        return start + (long) (i * periodNanos);
+    }
+
+    /** Spins until message {@code i} is due; returns its intended time. */
+    public long await(long i) {
+        long due = intendedTime(i);
+        while (System.nanoTime() - due < 0) Thread.onSpinWait();
+        return due;
+    }
+
+    /** Messages due in the first {@code nanos} of the schedule. */
+    public long messagesIn(long nanos) {
+        return (long) Math.ceil(nanos / periodNanos);
+    }
+}
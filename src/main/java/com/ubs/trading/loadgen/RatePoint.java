@@ -0,0 +1,56 @@
+package com.ubs.trading.loadgen;
+
+import com.ubs.trading.metrics.LatencySnapshot;
+
+/**
+ * One point of a throughput/latency curve.  Latencies are measured from
+ * each message's intended send time, in nanoseconds.
+ *
+ * @param targetRate   scheduled messages per second
+ * @param achievedRate messages actually published per second; below target
+ *                     when the producer was held up, e.g. by a full ring
+ * @param latency      end-to-end latencies recorded during the run
+ * @param drained      {@code false} if the engine still had a backlog when
+ *                     the drain timeout ran out: the latencies then miss the
+ *                     slowest messages and the point is not valid
+ */
+public record RatePoint(double targetRate, double achievedRate, long messages,
+                        LatencySnapshot latency, boolean drained) {
+
+    /** Percentiles in CSV and console output. */
+    static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999, 0.9999};
+
+    /** The producer could not keep up with the schedule (achieved rate under 95% of target). */
+    public boolean saturated() {
+        return achievedRate < 0.95 * targetRate;
+    }
+
+    static String csvHeader() {
+        StringBuilder sb = new StringBuilder("target_rate,achieved_rate,messages");
+        for (double q : QUANTILES) sb.append(",p").append(label(q)).append("_us");
+        return sb.append(",max_us,mean_us,saturated,drained").toString();
+    }
+
+    String csvRow() {
+        StringBuilder sb = new StringBuilder()
+                .append(Math.round(targetRate)).append(',')
+                .append(Math.round(achievedRate)).append(',')
+                .append(messages);
+        for (double q : QUANTILES) sb.append(',').append(micros(latency.valueAtQuantile(q)));
+        return sb.append(',').append(micros(latency.max()))
+                .append(',').append(micros(latency.mean()))
+                .append(',').append(saturated())
+                .append(',').append(drained)
+                .toString();
+    }
+
+    /* 0.999 -> "99.9" */
+    static String label(double quantile) {
+        return java.math.BigDecimal.valueOf(quantile).movePointRight(2)
+                .stripTrailingZeros().toPlainString();
+    }
+
+    private static String micros(double nanos) {
+        return String.format(java.util.Locale.ROOT, "%.3f", nanos / 1_000.0);
+    }
+}
@@ -0,0 +1,57 @@
+package com.ubs.trading.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock‑free, allocation‑free log‑linear histogram of nanosecond values (HdrHistogram‑style
+ * bucketing, ≤ 0.8 % relative error, range 0 ns – 18 min). Values below 256 are exact, so it also
+ * serves for small counts such as batch sizes.
+ *
+ * <p>{@link #record} is one bucket‑index computation plus one atomic increment, so it is safe to
+ * share between consumer threads (partitions, worker pools). Counts are cumulative and never
+ * reset: a reader takes {@link #snapshot()}s and subtracts the previous one to get an interval, so
+ * recording never waits for or races with a reader – a value recorded during a snapshot simply
+ * lands in the next interval.
+ */
+public final class LatencyHistogram {
+
+  static final int SUB_BITS = 7;
+  private static final int SUB = 1 << SUB_BITS; // sub‑buckets per power of two
+  static final long MAX_VALUE = (1L << 40) - 1;
+  static final int BUCKETS = index(MAX_VALUE) + 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  /** Record one value; negatives count as 0, values beyond the range as the maximum. */
+  public void record(long value) {
+    counts.getAndIncrement(index(value));
+  }
+
+  /** Cumulative counts since creation (allocates; reader side only). */
+  public LatencySnapshot snapshot() {
+    long[] copy = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      copy[i] = counts.get(i);
+    }
+    return new LatencySnapshot(copy);
+  }
+
+  /* ------------------------------------------------------------------ */
+  /*  bucketing: linear below 2·SUB, then SUB buckets per power of two  */
+  /* ------------------------------------------------------------------ */
+
+  static int index(long v) {
+    if (v < 2 * SUB) return v < 0 ? 0 : (int) v;
+    if (v > MAX_VALUE) v = MAX_VALUE;
+    int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+    return (shift + 1) * SUB + (int) (v >>> shift) - SUB;
+  }
+
+  /** Largest value that maps to bucket {@code index}. */
+  static long highestEquivalentValue(int index) {
+    if (index < 2 * SUB) return index;
+    int shift = index / SUB - 1;
+    long sub = index % SUB + SUB;
+    return ((sub + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,89 @@
+package com.ubs.trading.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable bucket counts taken from a {@link LatencyHistogram}: either cumulative ({@link
+ * LatencyHistogram#snapshot()}) or an interval ({@link #minus}). Values are reported as the upper
+ * bound of their bucket, in nanoseconds.
+ */
+public final class LatencySnapshot {
+
+  static final LatencySnapshot EMPTY = new LatencySnapshot(new long[LatencyHistogram.BUCKETS]);
+
+  private final long[] counts; // owned, never mutated after construction
+  private final long total;
+
+  LatencySnapshot(long[] counts) {
+    this.counts = counts;
+    long n = 0;
+    for (long c : counts) n += c;
+    this.total = n;
+  }
+
+  /** Values recorded between {@code earlier} and this snapshot. */
+  public LatencySnapshot minus(LatencySnapshot earlier) {
+    long[] diff = new long[counts.length];
+    for (int i = 0; i < counts.length; i++) {
+      diff[i] = counts[i] - earlier.counts[i];
+    }
+    return new LatencySnapshot(diff);
+  }
+
+  public long count() {
+    return total;
+  }
+
+  /**
+   * @param quantile in {@code [0, 1]}, e.g. {@code 0.99}
+   * @return smallest bucket value with at least {@code quantile} of the samples at or below it; 0
+   *     when empty
+   */
+  public long valueAtQuantile(double quantile) {
+    if (total == 0) return 0;
+    long rank = Math.max(1, (long) Math.ceil(quantile * total));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) return LatencyHistogram.highestEquivalentValue(i);
+    }
+    return LatencyHistogram.MAX_VALUE;
+  }
+
+  public long max() {
+    for (int i = counts.length - 1; i >= 0; i--) {
+      if (counts[i] != 0) return LatencyHistogram.highestEquivalentValue(i);
+    }
+    return 0;
+  }
+
+  public double mean() {
+    if (total == 0) return 0;
+    double sum = 0;
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] != 0) sum += (double) counts[i] * LatencyHistogram.highestEquivalentValue(i);
+    }
+    return sum / total;
+  }
+
+  @Override
+  public String toString() {
+    return "LatencySnapshot{count="
+        + total
+        + ", mean="
+        + micros((long) mean())
+        + ", p50="
+        + micros(valueAtQuantile(0.50))
+        + ", p99="
+        + micros(valueAtQuantile(0.99))
+        + ", p99.9="
+        + micros(valueAtQuantile(0.999))
+        + ", max="
+        + micros(max())
+        + '}';
+  }
+
+  private static String micros(long nanos) {
+    return TimeUnit.NANOSECONDS.toMicros(nanos) + "µs";
+  }
+}
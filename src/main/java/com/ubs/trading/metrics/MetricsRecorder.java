@@ -1,46 +1,252 @@
 package com.ubs.trading.metrics;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
 
-/** Records ingest, processing and end‑to‑end latencies. */
-public final class MetricsRecorder {
+/**
+ * Records ingest (queue‑wait), processing and end‑to‑end latencies, plus rejected publishes.
+ *
+ * <p>The hot path only touches {@link LatencyHistogram}s: no locks, no allocation, no Micrometer
+ * calls. A daemon thread ({@code metrics-publisher}) takes a snapshot of each histogram every
+ * interval, subtracts the previous one and exposes the result as Micrometer meters:
+ *
+ * <ul>
+ *   <li>{@code <name>.percentile{phi=0.5|0.95|0.99|0.999}} – gauge, last interval, ns
+ *   <li>{@code <name>.max}, {@code <name>.mean} – gauges, last interval, ns
+ *   <li>{@code <name>.count} – function counter, cumulative
+ * </ul>
+ *
+ * for {@code name} in {@code msg.ingest.latency}, {@code msg.processing.latency} and {@code
+ * msg.e2e.latency}, plus {@code pipeline.stage.latency{pipeline, step}} for instrumented
+ * pipelines ({@link #stage}). Flushed batch sizes of batching senders go to {@code
+ * msg.send.batch.size} (same meters, unit {@code messages}).
+ */
+public final class MetricsRecorder implements AutoCloseable {
 
-  private final Timer ingest;
-  private final Timer processing;
-  private final Timer e2e;
+  private static final double[] QUANTILES = {0.5, 0.95, 0.99, 0.999};
+
+  private final MeterRegistry reg;
+  private final LatencyHistogram ingest;
+  private final LatencyHistogram processing;
+  private final LatencyHistogram e2e;
+  private final LatencyHistogram sendBatch;
+  private final Counter rejected;
+
+  private final Map<String, Published> histograms = new ConcurrentHashMap<>();
+  private final List<Published> published = new CopyOnWriteArrayList<>();
+  private final Set<String> claims = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService publisher;
 
   public MetricsRecorder(MeterRegistry reg) {
-    ingest = buildTimer("msg.ingest.latency", reg);
-    processing = buildTimer("msg.processing.latency", reg);
-    e2e = buildTimer("msg.e2e.latency", reg);
+    this(reg, Duration.ofSeconds(1));
+  }
+
+  /** @param interval how often interval snapshots are published to {@code reg} */
+  public MetricsRecorder(MeterRegistry reg, Duration interval) {
+    this.reg = reg;
+    ingest = histogram("msg.ingest.latency");
+    processing = histogram("msg.processing.latency");
+    e2e = histogram("msg.e2e.latency");
+    sendBatch = register("msg.send.batch.size", "messages").histogram;
+    rejected =
+        Counter.builder("msg.rejected")
+            .description("messages refused by a non-blocking publish because the ring was full")
+            .register(reg);
+
+    publisher =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "metrics-publisher");
+              t.setDaemon(true);
+              return t;
+            });
+    long period = interval.toNanos();
+    publisher.scheduleAtFixedRate(this::publish, period, period, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Histogram published like the built‑in ones under {@code name} and {@code tags} (key, value
+   * pairs); created on first request, shared by later requests for the same name and tags.
+   */
+  public LatencyHistogram histogram(String name, String... tags) {
+    return histograms
+        .computeIfAbsent(name + Arrays.toString(tags), k -> register(name, "nanoseconds", tags))
+        .histogram;
+  }
+
+  /**
+   * {@link #histogram} for values that are not durations, e.g. batch sizes; {@code baseUnit} is
+   * reported on the meters.
+   */
+  public LatencyHistogram distribution(String name, String baseUnit, String... tags) {
+    return histograms
+        .computeIfAbsent(name + Arrays.toString(tags), k -> register(name, baseUnit, tags))
+        .histogram;
   }
 
-  private static Timer buildTimer(String name, MeterRegistry reg) {
-    return Timer.builder(name)
-        .publishPercentiles(0.5, 0.95, 0.99)
-        .publishPercentileHistogram()
+  /** Step timings of an instrumented pipeline; see {@code Pipeline.instrument}. */
+  public LatencyHistogram stage(String pipeline, String step) {
+    return histogram("pipeline.stage.latency", "pipeline", pipeline, "step", step);
+  }
+
+  private Published register(String name, String unit, String... tags) {
+    Published p = new Published(new LatencyHistogram(), tags);
+    for (double q : QUANTILES) {
+      Gauge.builder(name + ".percentile", p, x -> x.interval.valueAtQuantile(q))
+          .tags(tags)
+          .tag("phi", Double.toString(q))
+          .baseUnit(unit)
+          .register(reg);
+    }
+    Gauge.builder(name + ".max", p, x -> x.interval.max())
+        .tags(tags)
+        .baseUnit(unit)
+        .register(reg);
+    Gauge.builder(name + ".mean", p, x -> x.interval.mean())
+        .tags(tags)
+        .baseUnit(unit)
         .register(reg);
+    FunctionCounter.builder(name + ".count", p, x -> x.total).tags(tags).register(reg);
+    published.add(p);
+    return p;
+  }
+
+  /**
+   * Cumulative count kept by a component itself (e.g. conflation counters) and read only when the
+   * registry is scraped, so the component's hot path never calls Micrometer.
+   */
+  public <S> void counter(String name, S source, ToDoubleFunction<S> count, String... tags) {
+    FunctionCounter.builder(name, source, count).tags(tags).register(reg);
+  }
+
+  /** Current value kept by a component, e.g. a queue depth; read only when scraped. */
+  public <S> void gauge(String name, S source, ToDoubleFunction<S> value, String... tags) {
+    Gauge.builder(name, source, value).tags(tags).register(reg);
+  }
+
+  /**
+   * Reserves the meters tagged {@code tag=value} for one owner, e.g. {@code ring=<name>} for one
+   * engine. Micrometer hands back the existing meter for an equal id, so a second owner would
+   * otherwise silently lose its meters.
+   *
+   * @throws IllegalStateException if another owner holds the claim
+   */
+  public void claim(String tag, String value) {
+    if (!claims.add(tag + '=' + value)) {
+      throw new IllegalStateException(
+          "meters tagged " + tag + '=' + value + " are already registered by another owner");
+    }
+  }
+
+  /** Removes every meter and histogram tagged {@code tag=value} and ends its {@link #claim}. */
+  public synchronized void release(String tag, String value) {
+    for (Meter m : List.copyOf(reg.getMeters())) {
+      if (value.equals(m.getId().getTag(tag))) reg.remove(m);
+    }
+    histograms.values().removeIf(p -> p.tagged(tag, value));
+    published.removeIf(p -> p.tagged(tag, value));
+    claims.remove(tag + '=' + value);
+  }
+
+  /** Rolls every histogram into a new interval now; also runs on the publisher thread. */
+  public synchronized void publish() {
+    for (Published p : published) p.roll();
+  }
+
+  /** Stops the publisher thread; recording keeps working. */
+  @Override
+  public void close() {
+    publisher.shutdownNow();
+  }
+
+  public LatencyHistogram ingest() {
+    return ingest;
+  }
+
+  public LatencyHistogram processing() {
+    return processing;
+  }
+
+  public LatencyHistogram endToEnd() {
+    return e2e;
+  }
+
+  public LatencyHistogram sendBatchSizes() {
+    return sendBatch;
   }
 
   /* --- recording helpers ------------------------------------------------ */
 
   public long markIngest() { // call on arrival, returns t0
-    long now = System.nanoTime();
-    ingest.record(0, TimeUnit.NANOSECONDS); // count message
-    return now;
+    return System.nanoTime();
   }
 
   public long markProcessingStart() {
     return System.nanoTime();
   }
 
+  /** Time the message waited in the ring: publish to consumer pick‑up. */
+  public void recordQueueWait(long tIngest, long tStart) {
+    ingest.record(tStart - tIngest);
+  }
+
   public void recordProcessing(long tStart) {
-    processing.record(System.nanoTime() - tStart, TimeUnit.NANOSECONDS);
+    processing.record(System.nanoTime() - tStart);
   }
 
   public void recordEndToEnd(long tIngest) {
-    e2e.record(System.nanoTime() - tIngest, TimeUnit.NANOSECONDS);
+    e2e.record(System.nanoTime() - tIngest);
+  }
+
+  /** Messages handed to a batching sender between two flushes. */
+  public void recordSendBatch(int size) {
+    sendBatch.record(size);
+  }
+
+  public void recordRejected(int count) {
+    rejected.increment(count);
+  }
+
+  /* --- publisher state, touched only under publish() -------------------- */
+
+  private static final class Published {
+    final LatencyHistogram histogram;
+    final String[] tags; // key, value pairs
+    LatencySnapshot last = LatencySnapshot.EMPTY;
+    volatile LatencySnapshot interval = LatencySnapshot.EMPTY;
+    volatile long total;
+
+    Published(LatencyHistogram histogram, String[] tags) {
+      this.histogram = histogram;
+      this.tags = tags;
+    }
+
+    boolean tagged(String tag, String value) {
+      for (int i = 0; i + 1 < tags.length; i += 2) {
+        if (tags[i].equals(tag) && tags[i + 1].equals(value)) return true;
+      }
+      return false;
+    }
+
+    void roll() {
+      LatencySnapshot now = histogram.snapshot();
+      interval = now.minus(last);
+      total = now.count();
+      last = now;
+    }
   }
 }
@@ -0,0 +1,73 @@
+package com.ubs.trading.overload;
+
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * Overflow holding the latest message per key, keys in first-parked order.
+ * Pre-allocated for {@code keys} entries; never grows.
+ */
+final class KeyedOverflow<T> implements Overflow<T> {
+
+    private final ToIntFunction<? super T> key;
+    private final Object[] latest;
+    private final long[] ingest;
+
+    /* FIFO of parked keys; each key at most once */
+    private final int[] order;
+    private final int mask;
+    private long head;
+    private long tail;
+    private long polledIngest;
+
+    KeyedOverflow(ToIntFunction<? super T> key, int keys) {
+        if (keys < 1) throw new IllegalArgumentException("keys must be ≥ 1: " + keys);
+        this.key = Objects.requireNonNull(key, "key");
+        this.latest = new Object[keys];
+        this.ingest = new long[keys];
+        int capacity = Integer.highestOneBit(keys - 1 | 1) << 1;
+        this.order = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    @Override
+    public int add(T message, long ingestNanos) {
+        int k = key.applyAsInt(message);
+        if (k < 0 || k >= latest.length)
+            throw new IllegalArgumentException("key out of range [0, " + latest.length + "): " + k);
+
+        boolean replaced = latest[k] != null;
+        latest[k] = message;
+        ingest[k] = ingestNanos;
+        if (!replaced) order[(int) tail++ & mask] = k;
+        return replaced ? 1 : 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    @Override
+    public long size() {
+        return tail - head;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        int k = order[(int) head++ & mask];
+        T message = (T) latest[k];
+        latest[k] = null;                              // a newer message re-parks the key
+        polledIngest = ingest[k];
+        return message;
+    }
+
+    @Override
+    public long polledIngestNanos() {
+        return polledIngest;
+    }
+
+    @Override
+    public void close() { }
+}
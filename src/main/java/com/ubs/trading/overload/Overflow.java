@@ -0,0 +1,35 @@
+package com.ubs.trading.overload;
+
+/**
+ * FIFO of messages waiting for ring capacity.  Not thread-safe; the guard
+ * serialises access.
+ */
+interface Overflow<T> extends AutoCloseable {
+
+    /** @return messages dropped to make room (0 or 1) */
+    int add(T message, long ingestNanos);
+
+    boolean isEmpty();
+
+    /** Messages waiting. */
+    long size();
+
+    /**
+     * Removes and returns the oldest message; only while not empty.  If it
+     * throws, the message is still removed.
+     */
+    T poll();
+
+    /** Ingest timestamp of the message last returned by {@link #poll}. */
+    long polledIngestNanos();
+
+    /**
+     * Does slow set-up work ahead of {@link #add}, such as creating storage,
+     * so the producer holding the lock does not.  Called by the drain thread
+     * without the lock; the only method that may be.
+     */
+    default void prepare() { }
+
+    @Override
+    void close();
+}
@@ -0,0 +1,354 @@
+package com.ubs.trading.overload;
+
+import com.lmax.disruptor.dsl.ProducerType;
+import com.ubs.trading.core.DisruptorEngine;
+import com.ubs.trading.journal.PayloadCodec;
+import com.ubs.trading.metrics.MetricsRecorder;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * Publishes into a {@link DisruptorEngine} under an {@link OverloadPolicy}:
+ * what happens to a message that finds the ring full.
+ *
+ * <pre>{@code
+ * OverloadGuard<Fill> fills = OverloadGuard.<Fill>builder()
+ *         .engine(engine)                            // ProducerType.MULTI
+ *         .spill(Path.of("/var/tmp/fills-overflow"), fillCodec)
+ *         .build();
+ * fills.publish(fill);                               // never blocks, never drops
+ * }</pre>
+ *
+ * <p>While the ring has room every policy is a plain non-blocking publish.
+ * {@link OverloadPolicy#DROP_OLDEST_BY_KEY} and {@link OverloadPolicy#SPILL}
+ * park the excess in an overflow and a drain thread ({@code <name>-overflow})
+ * moves it back into the ring, oldest first, as capacity returns.  Until the
+ * overflow is empty new messages queue behind it, so per-producer order is
+ * kept.  Overflowed messages keep their original ingest timestamp: the time
+ * spent waiting shows up in the end-to-end latency.  Because the drain
+ * thread publishes too, these two policies need a {@link ProducerType#MULTI}
+ * engine.
+ *
+ * <p>Metrics, tagged {@code guard} (the builder's name) and {@code policy}:
+ * {@code msg.overload.blocked} (publishes that had to wait), {@code
+ * msg.overload.dropped}, {@code msg.overload.overflowed}, {@code
+ * msg.overload.drained} and {@code msg.overload.failed} (parked messages the
+ * overflow could not read back, e.g. a spill record the codec rejects)
+ * counters, and the {@code msg.overload.pending} gauge.
+ *
+ * <p>{@link #publish} is thread-safe as far as the engine's producer type
+ * allows.  The overflow path takes a lock; the common path does not.
+ * {@link #close()} waits a bounded time for the overflow to drain – an
+ * engine that was shut down never takes it – and counts what is left as
+ * dropped.  Should the drain thread itself die, parking fails from then on
+ * rather than filling an overflow nobody empties.
+ *
+ * @param <T> payload type
+ */
+public final class OverloadGuard<T> implements AutoCloseable {
+
+    private final DisruptorEngine<T> engine;
+    private final MetricsRecorder metrics;
+    private final OverloadPolicy policy;
+    private final Overflow<T> overflow;                 // null for BLOCK / DROP_NEWEST
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean overflowing;               // set and cleared under lock
+    private final Thread drainer;
+    private final long closeTimeoutNanos;
+    private volatile boolean running = true;
+    private volatile boolean abandoned;                 // close() gave up on draining
+    private volatile Throwable drainFailure;            // the drain thread died of it
+
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+    private final AtomicLong drained = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile long pending;
+
+    private OverloadGuard(Builder<T> b) {
+        this.engine = Objects.requireNonNull(b.engine, "engine");
+        this.metrics = engine.metrics();
+        this.policy = b.policy;
+        this.closeTimeoutNanos = b.closeTimeout.toNanos();
+        this.overflow = switch (policy) {
+            case BLOCK, DROP_NEWEST -> null;
+            case DROP_OLDEST_BY_KEY -> new KeyedOverflow<>(b.key, b.keys);
+            case SPILL -> new SpillQueue<>(Objects.requireNonNull(b.spillDir, "spill directory"),
+                    Objects.requireNonNull(b.codec, "codec"), b.segmentSize);
+        };
+        if (overflow != null && engine.producerType() != ProducerType.MULTI)
+            throw new IllegalArgumentException(policy + " needs a ProducerType.MULTI engine");
+
+        String[] tags = {"guard", b.name, "policy", policy.name().toLowerCase(Locale.ROOT).replace('_', '-')};
+        metrics.counter("msg.overload.blocked", blocked, AtomicLong::get, tags);
+        metrics.counter("msg.overload.dropped", dropped, AtomicLong::get, tags);
+        metrics.counter("msg.overload.overflowed", overflowed, AtomicLong::get, tags);
+        metrics.counter("msg.overload.drained", drained, AtomicLong::get, tags);
+        metrics.counter("msg.overload.failed", failed, AtomicLong::get, tags);
+        metrics.gauge("msg.overload.pending", this, OverloadGuard::pending, tags);
+
+        if (overflow != null) {
+            drainer = new Thread(this::drainLoop, b.name + "-overflow");
+            drainer.setDaemon(true);
+            drainer.start();
+        } else {
+            drainer = null;
+        }
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Publish {@code message} under the policy.
+     *
+     * @return {@code false} if it was refused ({@link OverloadPolicy#DROP_NEWEST}
+     *         only); a message that later replaces it in a keyed overflow still
+     *         returns {@code true}, and the replaced one is counted as dropped
+     * @throws IllegalStateException if the message would be parked but the
+     *         drain thread has died
+     */
+    public boolean publish(T message) {
+        long t0 = metrics.markIngest();
+        if (!overflowing && engine.tryPublish(message, t0)) return true;
+
+        switch (policy) {
+            case BLOCK -> {
+                blocked.incrementAndGet();
+                engine.publish(message, t0);
+                return true;
+            }
+            case DROP_NEWEST -> {
+                dropped.incrementAndGet();
+                metrics.recordRejected(1);
+                return false;
+            }
+            default -> {
+                park(message, t0);
+                return true;
+            }
+        }
+    }
+
+    private void park(T message, long t0) {
+        Throwable cause = drainFailure;
+        if (cause != null) throw new IllegalStateException("overflow drain thread died", cause);
+        lock.lock();
+        try {
+            /* the drain thread may have emptied the overflow since we looked */
+            if (!overflowing && engine.tryPublish(message, t0)) return;
+            overflowing = true;
+            int replaced = overflow.add(message, t0);
+            if (replaced > 0) dropped.addAndGet(replaced);
+            else overflowed.incrementAndGet();
+            pending = overflow.size();
+        } finally {
+            lock.unlock();
+        }
+        LockSupport.unpark(drainer);
+    }
+
+    /** Messages waiting in the overflow. */
+    public long pending() {
+        return pending;
+    }
+
+    public long blocked() {
+        return blocked.get();
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    public long overflowed() {
+        return overflowed.get();
+    }
+
+    public long drained() {
+        return drained.get();
+    }
+
+    /** Parked messages skipped because the overflow could not read them back. */
+    public long failed() {
+        return failed.get();
+    }
+
+    public OverloadPolicy policy() {
+        return policy;
+    }
+
+    /**
+     * Waits up to the close timeout for the overflow to drain into the ring,
+     * then stops the drain thread; messages still parked are dropped and
+     * counted.  Call once producers have stopped.
+     */
+    @Override
+    public void close() {
+        if (drainer == null) return;
+        running = false;
+        LockSupport.unpark(drainer);
+        boolean interrupted = false;
+        long deadline = System.nanoTime() + closeTimeoutNanos;
+        while (drainer.isAlive()) {
+            if (System.nanoTime() - deadline >= 0) abandoned = true;   // the ring does not drain
+            try {
+                drainer.join(1);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                abandoned = true;
+            }
+        }
+        lock.lock();
+        try {
+            dropped.addAndGet(overflow.size());
+            pending = 0;
+            overflowing = false;
+        } finally {
+            lock.unlock();
+        }
+        overflow.close();
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /* ------------------------------------------------------------- */
+    /*  Drain thread                                                  */
+    /* ------------------------------------------------------------- */
+
+    private void drainLoop() {
+        try {
+            drain();
+        } catch (Throwable t) {
+            drainFailure = t;                           // park() refuses from now on
+            throw t;
+        }
+    }
+
+    private void drain() {
+        int misses = 0;
+        T held = null;                                  // polled, not yet in the ring
+        long heldIngest = 0;
+        while ((running || overflowing) && !abandoned) {
+            if (!overflowing) {
+                LockSupport.parkNanos(1_000_000);      // woken by park()
+                continue;
+            }
+            overflow.prepare();
+            if (held == null) {
+                lock.lock();
+                try {
+                    held = overflow.poll();
+                    heldIngest = overflow.polledIngestNanos();
+                } catch (RuntimeException e) {          // record consumed but unreadable: skip it
+                    failed.incrementAndGet();
+                    pending = overflow.size();
+                    if (overflow.isEmpty()) overflowing = false;
+                    continue;
+                } finally {
+                    lock.unlock();
+                }
+            }
+            if (!engine.tryPublish(held, heldIngest)) {  // ring still full
+                backoff(++misses);
+                continue;
+            }
+            held = null;
+            misses = 0;
+            drained.incrementAndGet();
+
+            lock.lock();
+            try {
+                pending = overflow.size();
+                if (overflow.isEmpty()) overflowing = false;   // producers publish directly again
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (held != null) dropped.incrementAndGet();   // abandoned on its way into the ring
+    }
+
+    private static void backoff(int misses) {
+        if (misses < 100) Thread.onSpinWait();
+        else if (misses < 200) Thread.yield();
+        else LockSupport.parkNanos(10_000);
+    }
+
+    /* ------------------------------------------------------------- */
+    /*  Builder                                                       */
+    /* ------------------------------------------------------------- */
+
+    public static final class Builder<T> {
+        private DisruptorEngine<T> engine;
+        private OverloadPolicy policy = OverloadPolicy.BLOCK;
+        private ToIntFunction<? super T> key;
+        private int keys;
+        private Path spillDir;
+        private PayloadCodec<T> codec;
+        private int segmentSize = 64 << 20;
+        private String name = "overload";
+        private Duration closeTimeout = Duration.ofSeconds(5);
+
+        private Builder() { }
+
+        public Builder<T> engine(DisruptorEngine<T> engine) {
+            this.engine = engine;
+            return this;
+        }
+
+        /** {@link OverloadPolicy#BLOCK} or {@link OverloadPolicy#DROP_NEWEST}. */
+        public Builder<T> policy(OverloadPolicy policy) {
+            if (policy == OverloadPolicy.DROP_OLDEST_BY_KEY || policy == OverloadPolicy.SPILL)
+                throw new IllegalArgumentException(policy + ": use dropOldestByKey() or spill()");
+            this.policy = policy;
+            return this;
+        }
+
+        /** {@link OverloadPolicy#DROP_OLDEST_BY_KEY} with dense keys in {@code [0, keys)}. */
+        public Builder<T> dropOldestByKey(ToIntFunction<? super T> key, int keys) {
+            this.policy = OverloadPolicy.DROP_OLDEST_BY_KEY;
+            this.key = key;
+            this.keys = keys;
+            return this;
+        }
+
+        /** {@link OverloadPolicy#SPILL} into {@code dir}; its {@code spill-*.dat} files are reset. */
+        public Builder<T> spill(Path dir, PayloadCodec<T> codec) {
+            this.policy = OverloadPolicy.SPILL;
+            this.spillDir = dir;
+            this.codec = codec;
+            return this;
+        }
+
+        /** Spill segment file size (default 64 MiB). */
+        public Builder<T> segmentSize(int bytes) {
+            this.segmentSize = bytes;
+            return this;
+        }
+
+        /** Names the drain thread and tags the metrics {@code guard=name}. */
+        public Builder<T> name(String name) {
+            this.name = Objects.requireNonNull(name, "name");
+            return this;
+        }
+
+        /** How long {@link OverloadGuard#close()} waits for the overflow to drain (default 5 s). */
+        public Builder<T> closeTimeout(Duration closeTimeout) {
+            this.closeTimeout = Objects.requireNonNull(closeTimeout, "closeTimeout");
+            return this;
+        }
+
+        public OverloadGuard<T> build() {
+            return new OverloadGuard<>(this);
+        }
+    }
+}
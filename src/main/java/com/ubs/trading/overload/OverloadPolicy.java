@@ -0,0 +1,27 @@
+package com.ubs.trading.overload;
+
+/**
+ * What an {@link OverloadGuard} does with a message that finds the ring full.
+ */
+public enum OverloadPolicy {
+
+    /** Wait for a free slot – the engine's own behaviour; the producer stalls. */
+    BLOCK,
+
+    /** Refuse the message; {@code publish} returns {@code false} and it is counted. */
+    DROP_NEWEST,
+
+    /**
+     * Park the message in a per-key overflow slot; a newer message for the
+     * same key replaces (drops) the parked one.  Bounded by the key count;
+     * for state that is superseded, e.g. quotes.
+     */
+    DROP_OLDEST_BY_KEY,
+
+    /**
+     * Append the message to a memory-mapped overflow queue on local disk,
+     * drained back into the ring in order.  Nothing is dropped; for messages
+     * that must not be lost, e.g. fills.
+     */
+    SPILL
+}
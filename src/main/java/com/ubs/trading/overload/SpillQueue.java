@@ -0,0 +1,202 @@
+package com.ubs.trading.overload;
+
+import com.ubs.trading.journal.PayloadCodec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Unbounded FIFO spilled to rolling memory-mapped files in a local
+ * directory.  A record is {@code [int length][long ingestNanos][payload]},
+ * length including the 12-byte header; a zero length marks the end of the
+ * written part of a segment.  Segments are deleted once fully read.
+ *
+ * <p>Overflow, not a journal: the files are not forced to disk and are
+ * removed on open and close, so the queue does not survive a restart.
+ *
+ * <p>Creating and mapping a segment is file-system work, so the drain thread
+ * keeps a spare one ready ({@link #prepare()}) and a roll on the producer's
+ * path only takes it.  A producer that outruns the drain thread maps its
+ * own.
+ */
+final class SpillQueue<T> implements Overflow<T> {
+
+    static final int HEADER = 12;
+    private static final String PREFIX = "spill-";
+
+    private final Path dir;
+    private final PayloadCodec<T> codec;
+    private final int segmentSize;
+
+    /* first = segment being read, last = segment being written */
+    private final ArrayDeque<MappedByteBuffer> segments = new ArrayDeque<>();
+    private final ArrayDeque<Path> files = new ArrayDeque<>();
+    private final AtomicLong nextIndex = new AtomicLong();
+    private volatile Segment spare;                     // set by prepare() only, taken by roll()
+
+    private ByteBuffer writeView;
+    private int writePos;
+    private ByteBuffer readView;
+    private int readPos;
+
+    private long size;
+    private long polledIngest;
+
+    SpillQueue(Path dir, PayloadCodec<T> codec, int segmentSize) {
+        if (segmentSize < 4_096) throw new IllegalArgumentException("segmentSize must be ≥ 4096");
+        this.dir = dir;
+        this.codec = codec;
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(dir);
+            deleteSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        roll();
+        readView = segments.peekFirst().duplicate();
+    }
+
+    @Override
+    public int add(T message, long ingestNanos) {
+        if (!write(message, ingestNanos)) {
+            roll();
+            if (!write(message, ingestNanos))
+                throw new IllegalStateException("record does not fit a spill segment of " + segmentSize + " bytes");
+        }
+        size++;
+        return 0;
+    }
+
+    /* false if the record does not fit the rest of the current segment */
+    private boolean write(T message, long ingestNanos) {
+        int pos = writePos;
+        if (segmentSize - pos <= HEADER + Integer.BYTES) return false;
+        writeView.clear();
+        writeView.limit(segmentSize - Integer.BYTES);      // room for the next end marker
+        writeView.position(pos + HEADER);
+        try {
+            codec.encode(message, writeView);
+        } catch (BufferOverflowException e) {
+            return false;
+        }
+        int length = writeView.position() - pos;
+        writeView.putLong(pos + Integer.BYTES, ingestNanos);
+        writeView.putInt(pos, length);
+        writePos = pos + length;
+        return true;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    /** A record the codec cannot decode is still consumed before the exception propagates. */
+    @Override
+    public T poll() {
+        int length = advance();
+        polledIngest = readView.getLong(readPos + Integer.BYTES);
+        readView.limit(readPos + length).position(readPos + HEADER);
+        try {
+            return codec.decode(readView);
+        } finally {
+            readView.clear();
+            readPos += length;
+            size--;
+        }
+    }
+
+    @Override
+    public long polledIngestNanos() {
+        return polledIngest;
+    }
+
+    /* length of the head record, moving to the next segment past an end marker */
+    private int advance() {
+        int length = readView.getInt(readPos);
+        if (length == 0) {
+            segments.pollFirst();
+            Path done = files.pollFirst();
+            readView = segments.peekFirst().duplicate();
+            readPos = 0;
+            length = readView.getInt(0);
+            try {
+                delete(done);
+            } catch (UncheckedIOException e) {
+                // left behind for deleteSegments() on the next open; the queue itself is consistent
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public void prepare() {
+        if (spare != null) return;
+        try {
+            spare = map();
+        } catch (UncheckedIOException e) {
+            // roll() maps its own and reports the failure to the producer
+        }
+    }
+
+    @Override
+    public void close() {
+        segments.clear();
+        while (!files.isEmpty()) delete(files.pollFirst());
+        Segment s = spare;
+        spare = null;
+        if (s != null) delete(s.file);
+    }
+
+    private void roll() {
+        Segment next = spare;
+        if (next != null) spare = null;
+        else next = map();
+        segments.addLast(next.buffer);
+        files.addLast(next.file);
+        writeView = next.buffer.duplicate();
+        writePos = 0;
+    }
+
+    private Segment map() {
+        Path file = dir.resolve(String.format("%s%010d.dat", PREFIX, nextIndex.getAndIncrement()));
+        try (FileChannel ch = FileChannel.open(file, CREATE_NEW, READ, WRITE)) {
+            return new Segment(file, ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Segment(Path file, MappedByteBuffer buffer) { }
+
+    private void deleteSegments() throws IOException {
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(dir, PREFIX + "*.dat")) {
+            for (Path p : stale) Files.delete(p);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);                // the mapping stays valid until unmapped by GC
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.ubs.trading.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Composes a step list into one executor built from fixed‑arity classes.
+ *
+ * <p>Compared with a loop over a {@code List<Function>}:
+ *
+ * <ul>
+ *   <li>each step position has its own {@code apply} call site, so the JIT sees one receiver type
+ *       per site instead of every lambda in the chain at a single site;
+ *   <li>no iterator and no per‑step exception handler in short‑circuit mode: one handler wraps
+ *       the whole chain (exception tables cost nothing until something throws);
+ *   <li>chains longer than {@link #MAX_ARITY} are split into chunks, each fused, and the chunks
+ *       fused again, so a 10‑step pipeline is three nested classes rather than ten loop turns.
+ * </ul>
+ *
+ * Classes are shared by every pipeline of the same arity, so a site is only monomorphic while one
+ * pipeline dominates it; per‑pipeline specialisation would need generated bytecode.
+ */
+final class FusedSteps {
+
+  static final int MAX_ARITY = 4;
+
+  private FusedSteps() {}
+
+  static <T> Function<T, T> fuse(List<Function<T, T>> steps, boolean shortCircuit) {
+    if (steps.isEmpty()) return Function.identity();
+    if (steps.size() > MAX_ARITY) return fuse(chunk(steps, shortCircuit), shortCircuit);
+
+    Function<T, T> a = steps.get(0);
+    Function<T, T> b = steps.size() > 1 ? steps.get(1) : null;
+    Function<T, T> c = steps.size() > 2 ? steps.get(2) : null;
+    Function<T, T> d = steps.size() > 3 ? steps.get(3) : null;
+
+    return shortCircuit
+        ? switch (steps.size()) {
+          case 1 -> new Strict1<>(a);
+          case 2 -> new Strict2<>(a, b);
+          case 3 -> new Strict3<>(a, b, c);
+          default -> new Strict4<>(a, b, c, d);
+        }
+        : switch (steps.size()) {
+          case 1 -> new Lenient1<>(a);
+          case 2 -> new Lenient2<>(a, b);
+          case 3 -> new Lenient3<>(a, b, c);
+          default -> new Lenient4<>(a, b, c, d);
+        };
+  }
+
+  private static <T> List<Function<T, T>> chunk(List<Function<T, T>> steps, boolean shortCircuit) {
+    List<Function<T, T>> chunks = new ArrayList<>();
+    for (int i = 0; i < steps.size(); i += MAX_ARITY) {
+      chunks.add(fuse(steps.subList(i, Math.min(i + MAX_ARITY, steps.size())), shortCircuit));
+    }
+    return chunks;
+  }
+
+  // Modern pattern‑matching syntax requires JDK16+
+  static RuntimeException wrap(Exception ex) {
+    return (ex instanceof RuntimeException rte) ? rte : new RuntimeException(ex);
+  }
+
+  /* ------------------------------------------------------------------ */
+  /*  short‑circuit: first failure propagates                           */
+  /* ------------------------------------------------------------------ */
+
+  private record Strict1<T>(Function<T, T> a) implements Function<T, T> {
+    @Override
+    public T apply(T v) {
+      try {
+        return a.apply(v);
+      } catch (Exception ex) {
+        throw wrap(ex);
+      }
+    }
+  }
+
+  private record Strict2<T>(Function<T, T> a, Function<T, T> b) implements Function<T, T> {
+    @Override
+    public T apply(T v) {
+      try {
+        return b.apply(a.apply(v));
+      } catch (Exception ex) {
+        throw wrap(ex);
+      }
+    }
+  }
+
+  private record Strict3<T>(Function<T, T> a, Function<T, T> b, Function<T, T> c)
+      implements Function<T, T> {
+    @Override
+    public T apply(T v) {
+      try {
+        return c.apply(b.apply(a.apply(v)));
+      } catch (Exception ex) {
+        throw wrap(ex);
+      }
+    }
+  }
+
+  private record Strict4<T>(Function<T, T> a, Function<T, T> b, Function<T, T> c, Function<T, T> d)
+      implements Function<T, T> {
+    @Override
+    public T apply(T v) {
+      try {
+        return d.apply(c.apply(b.apply(a.apply(v))));
+      } catch (Exception ex) {
+        throw wrap(ex);
+      }
+    }
+  }
+
+  /* ------------------------------------------------------------------ */
+  /*  lenient: a failing step is skipped, last good value carries on    */
+  /* ------------------------------------------------------------------ */
+
+  private record Lenient1<T>(Function<T, T> a) implements Function<T, T> {
+    @Override
+    public T apply(T v) {
+      try {
+        v = a.apply(v);
+      } catch (Exception ignored) {
+        // keep last good value
+      }
+      return v;
+    }
+  }
+
+  private record Lenient2<T>(Function<T, T> a, Function<T, T> b) implements Function<T, T> {
+    @Override
+    public T apply(T v) {
+      try {
+        v = a.apply(v);
+      } catch (Exception ignored) {
+        // keep last good value
+      }
+      try {
+        v = b.apply(v);
+      } catch (Exception ignored) {
+        // keep last good value
+      }
+      return v;
+    }
+  }
+
+  private record Lenient3<T>(Function<T, T> a, Function<T, T> b, Function<T, T> c)
+      implements Function<T, T> {
+    @Override
+    public T apply(T v) {
+      try {
+        v = a.apply(v);
+      } catch (Exception ignored) {
+        // keep last good value
+      }
+      try {
+        v = b.apply(v);
+      } catch (Exception ignored) {
+        // keep last good value
+      }
+      try {
+        v = c.apply(v);
+      } catch (Exception ignored) {
+        // keep last good value
+      }
+      return v;
+    }
+  }
+
+  private record Lenient4<T>(
+      Function<T, T> a, Function<T, T> b, Function<T, T> c, Function<T, T> d)
+      implements Function<T, T> {
+    @Override
+    public T apply(T v) {
+      try {
+        v = a.apply(v);
+      } catch (Exception ignored) {
+        // keep last good value
+      }
+      try {
+        v = b.apply(v);
+      } catch (Exception ignored) {
+        // keep last good value
+      }
+      try {
+        v = c.apply(v);
+      } catch (Exception ignored) {
+        // keep last good value
+      }
+      try {
+        v = d.apply(v);
+      } catch (Exception ignored) {
+        // keep last good value
+      }
+      return v;
+    }
+  }
+}
@@ -1,8 +1,14 @@
 package com.ubs.trading.pipeline;
 
-import java.util.ArrayList;
+import com.ubs.trading.metrics.LatencyHistogram;
+import com.ubs.trading.metrics.MetricsRecorder;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -23,8 +29,26 @@ import java.util.function.Function;
  * Pipeline<String> q = Pipeline.named("builder")
  *         .addAction(String::strip)
  *         .addAction(s -> s.repeat(2));
+ *
+ * // 3) In‑place stages for mutable, ring‑resident payloads (no allocation)
+ * Pipeline<Quote> r = Pipeline.buildInPlace("quotes", true,
+ *         q -> q.bid -= spread,
+ *         q -> q.ask += spread);
  * }</pre>
  *
+ * <p>Execution runs a <em>fused</em> executor: the steps are composed once into fixed‑arity
+ * classes (one call site per step position, no iterator, one try/catch per chain in short‑circuit
+ * mode). It is built on first {@link #execute} or eagerly via {@link #compile()}.
+ *
+ * <p>{@link #instrument} opts a pipeline into per‑step timing: every Nth message runs the steps
+ * one by one and records each into {@code pipeline.stage.latency{pipeline, step}}; all other
+ * messages take the fused path untouched.
+ *
+ * <p>{@link #addAsync} steps hand slow work (a credit check, a reference‑data lookup) to another
+ * thread. They split the pipeline into synchronous segments; an {@code AsyncDispatcher} runs a
+ * segment, parks the message while the call is outstanding and resumes it at the next segment, so
+ * the consumer thread never waits. Such pipelines cannot be {@link #execute executed} directly.
+ *
  * @param <T> the homogeneous type that flows through every pipeline stage
  */
 public final class Pipeline<T> {
@@ -35,7 +59,12 @@ public final class Pipeline<T> {
 
   private final String name;
   private final boolean shortCircuit;
-  private final List<Function<T, T>> actions;
+  private final Step<T> last; // persistent list, newest step first; null when empty
+  private final Instrumentation instrumentation; // null when not instrumented
+
+  /* built on first use; racy single-check is safe because executors are immutable */
+  private Function<T, T> executor;
+  private Segments<T> segments; // async pipelines only
 
   /* ------------------------------------------------------------------ */
   /*  public factories                                                  */
@@ -44,7 +73,7 @@ public final class Pipeline<T> {
   /** Build a full pipeline in one call. */
   @SafeVarargs
   public static <T> Pipeline<T> build(String name, boolean shortCircuit, Function<T, T>... steps) {
-    Pipeline<T> p = new Pipeline<>(name, shortCircuit, List.of());
+    Pipeline<T> p = new Pipeline<>(name, shortCircuit, null, null);
     for (Function<T, T> s : steps) {
       p = p.addAction(s);
     }
@@ -53,23 +82,95 @@ public final class Pipeline<T> {
 
   /** Named pipeline, <i>shortCircuit = true</i> by default. */
   public static <T> Pipeline<T> named(String name) {
-    return new Pipeline<>(name, true, List.of());
+    return new Pipeline<>(name, true, null, null);
   }
 
   public static <T> Pipeline<T> named(String name, boolean shortCircuit) {
-    return new Pipeline<>(name, shortCircuit, List.of());
+    return new Pipeline<>(name, shortCircuit, null, null);
+  }
+
+  /** Build a pipeline of in‑place stages; see {@link #addInPlace}. */
+  @SafeVarargs
+  public static <T> Pipeline<T> buildInPlace(
+      String name, boolean shortCircuit, Consumer<? super T>... steps) {
+    Pipeline<T> p = new Pipeline<>(name, shortCircuit, null, null);
+    for (Consumer<? super T> s : steps) {
+      p = p.addInPlace(s);
+    }
+    return p;
   }
 
   /* ------------------------------------------------------------------ */
   /*  builder                                                           */
   /* ------------------------------------------------------------------ */
 
-  /** Adds a transformation step and returns a <em>new</em> pipeline. */
+  /**
+   * Adds a transformation step and returns a <em>new</em> pipeline. O(1): the new pipeline shares
+   * all existing steps with this one.
+   */
   public Pipeline<T> addAction(Function<T, T> step) {
+    return addAction(null, step);
+  }
+
+  /**
+   * {@link #addAction(Function)} with a label used as the {@code step} tag of stage metrics;
+   * unlabelled steps are tagged with their index.
+   */
+  public Pipeline<T> addAction(String label, Function<T, T> step) {
+    Objects.requireNonNull(step, "step");
+    return new Pipeline<>(name, shortCircuit, new Step<>(last, label, step), instrumentation);
+  }
+
+  /**
+   * Adds a stage that mutates its argument and passes the same instance on. Meant for mutable,
+   * ring‑resident payloads. With {@code shortCircuit = false} a failing stage may leave the payload
+   * partially updated.
+   */
+  public Pipeline<T> addInPlace(Consumer<? super T> step) {
+    return addInPlace(null, step);
+  }
+
+  /** {@link #addInPlace(Consumer)} with a stage‑metrics label. */
+  public Pipeline<T> addInPlace(String label, Consumer<? super T> step) {
     Objects.requireNonNull(step, "step");
-    List<Function<T, T>> next = new ArrayList<>(actions);
-    next.add(step);
-    return new Pipeline<>(name, shortCircuit, List.copyOf(next));
+    return addAction(label, new InPlace<>(step));
+  }
+
+  /**
+   * Adds an asynchronous step: {@code call} starts the work and returns a stage that completes
+   * with the step's result. It runs on the consumer thread and must not block; the stage may
+   * complete on any thread. A failed stage counts as a failing step.
+   */
+  public Pipeline<T> addAsync(
+      String label, Function<? super T, ? extends CompletionStage<T>> call) {
+    Objects.requireNonNull(call, "call");
+    return addAction(label, new AsyncCall<>(call));
+  }
+
+  /**
+   * {@link #addAsync(String, Function)} for a blocking call, run on {@code executor} – typically
+   * {@code Executors.newVirtualThreadPerTaskExecutor()}, or a bounded pool for a service that
+   * limits concurrent requests.
+   */
+  public Pipeline<T> addAsync(String label, Function<T, T> blockingCall, Executor executor) {
+    Objects.requireNonNull(blockingCall, "blockingCall");
+    Objects.requireNonNull(executor, "executor");
+    return addAsync(
+        label, v -> CompletableFuture.supplyAsync(() -> blockingCall.apply(v), executor));
+  }
+
+  /**
+   * Returns a copy that times each step of every {@code sampleEvery}‑th message into {@link
+   * MetricsRecorder#stage}. Sampled messages run the steps unfused, with two {@code nanoTime}
+   * reads per step; the rest pay one counter decrement. The counter is not synchronised, so a
+   * pipeline shared by several threads samples approximately every Nth message.
+   */
+  public Pipeline<T> instrument(MetricsRecorder metrics, int sampleEvery) {
+    Objects.requireNonNull(metrics, "metrics");
+    if (sampleEvery < 1) {
+      throw new IllegalArgumentException("sampleEvery must be ≥ 1: " + sampleEvery);
+    }
+    return new Pipeline<>(name, shortCircuit, last, new Instrumentation(metrics, sampleEvery));
   }
 
   /* ------------------------------------------------------------------ */
@@ -80,18 +181,110 @@ public final class Pipeline<T> {
    * Execute the pipeline.
    *
    * @throws RuntimeException if a step throws and {@code shortCircuit} is true
+   * @throws IllegalStateException if the pipeline has async steps
    */
   public T execute(T input) {
-    T value = input;
-    for (Function<T, T> step : actions) {
-      try {
-        value = step.apply(value);
-      } catch (Exception ex) {
-        if (shortCircuit) throw wrap(ex); // halt & propagate
-        // else: swallow and keep last good value
+    Function<T, T> f = executor;
+    if (f == null) {
+      executor = f = executor();
+    }
+    return f.apply(input);
+  }
+
+  /**
+   * Fuse the steps now rather than on the first {@link #execute}, e.g. during start‑up.
+   *
+   * @return this pipeline
+   */
+  public Pipeline<T> compile() {
+    if (isAsync()) {
+      segmented();
+    } else if (executor == null) {
+      executor = executor();
+    }
+    return this;
+  }
+
+  private Function<T, T> executor() {
+    if (isAsync()) {
+      String msg = "pipeline '" + name + "' has async steps; run it with an AsyncDispatcher";
+      return v -> {
+        throw new IllegalStateException(msg);
+      };
+    }
+    return executor(steps(), 0, size());
+  }
+
+  /* fused executor of steps [from, to) */
+  private Function<T, T> executor(List<Function<T, T>> all, int from, int to) {
+    List<Function<T, T>> steps = all.subList(from, to);
+    Function<T, T> fused = FusedSteps.fuse(steps, shortCircuit);
+    if (instrumentation == null || steps.isEmpty()) return fused;
+
+    LatencyHistogram[] stages = new LatencyHistogram[steps.size()];
+    for (Step<T> s = last; s != null; s = s.prev) {
+      if (s.index < from || s.index >= to) continue;
+      String step = s.label != null ? s.label : Integer.toString(s.index);
+      stages[s.index - from] = instrumentation.metrics.stage(name, step);
+    }
+    return new SampledSteps<>(fused, steps, stages, instrumentation.sampleEvery, shortCircuit);
+  }
+
+  /* ------------------------------------------------------------------ */
+  /*  segmented execution (async pipelines)                             */
+  /* ------------------------------------------------------------------ */
+
+  /** Whether the pipeline has {@link #addAsync async} steps. */
+  public boolean isAsync() {
+    return last != null && last.asyncSteps > 0;
+  }
+
+  /** Synchronous segments: one more than the number of async steps. */
+  public int segments() {
+    return last == null ? 1 : last.asyncSteps + 1;
+  }
+
+  /**
+   * Runs the synchronous steps of {@code segment}: those after the {@code segment}‑th async step
+   * and before the next one. Same error semantics as {@link #execute}.
+   */
+  public T executeSegment(int segment, T input) {
+    return segmented().runs[segment].apply(input);
+  }
+
+  /**
+   * Starts the async step that ends {@code segment}.
+   *
+   * @throws IndexOutOfBoundsException for the last segment, which no async step ends
+   */
+  public CompletionStage<T> callAsync(int segment, T input) {
+    return segmented().calls[segment].start(input);
+  }
+
+  private Segments<T> segmented() {
+    Segments<T> s = segments;
+    if (s == null) {
+      segments = s = buildSegments();
+    }
+    return s;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Segments<T> buildSegments() {
+    List<Function<T, T>> steps = steps();
+    Function<T, T>[] runs = new Function[segments()];
+    AsyncCall<T>[] calls = new AsyncCall[segments() - 1];
+    int from = 0;
+    int segment = 0;
+    for (int i = 0; i < steps.size(); i++) {
+      if (steps.get(i) instanceof AsyncCall<T> call) {
+        runs[segment] = executor(steps, from, i);
+        calls[segment++] = call;
+        from = i + 1;
       }
     }
-    return value;
+    runs[segment] = executor(steps, from, steps.size());
+    return new Segments<>(runs, calls);
   }
 
   /* ------------------------------------------------------------------ */
@@ -103,17 +296,80 @@ public final class Pipeline<T> {
   }
 
   public int size() {
-    return actions.size();
+    return last == null ? 0 : last.index + 1;
+  }
+
+  public boolean shortCircuit() {
+    return shortCircuit;
+  }
+
+  public boolean isInstrumented() {
+    return instrumentation != null;
+  }
+
+  /** Steps in execution order. */
+  List<Function<T, T>> steps() {
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Function<T, T>[] steps = new Function[size()];
+    for (Step<T> s = last; s != null; s = s.prev) {
+      steps[s.index] = s.fn;
+    }
+    return Arrays.asList(steps);
   }
 
   /* ------------------------------------------------------------------ */
   /*  internal                                                         */
   /* ------------------------------------------------------------------ */
 
-  private Pipeline(String name, boolean shortCircuit, List<Function<T, T>> actions) {
+  private Pipeline(
+      String name, boolean shortCircuit, Step<T> last, Instrumentation instrumentation) {
     this.name = Objects.requireNonNull(name, "name");
     this.shortCircuit = shortCircuit;
-    this.actions = actions; // already immutable
+    this.last = last;
+    this.instrumentation = instrumentation;
+  }
+
+  private record Instrumentation(MetricsRecorder metrics, int sampleEvery) {}
+
+  private record Segments<T>(Function<T, T>[] runs, AsyncCall<T>[] calls) {}
+
+  /* placeholder in the step list; the segment executors never apply it */
+  private record AsyncCall<T>(Function<? super T, ? extends CompletionStage<T>> call)
+      implements Function<T, T> {
+    @SuppressWarnings("unchecked")
+    CompletionStage<T> start(T value) {
+      return (CompletionStage<T>) call.apply(value);
+    }
+
+    @Override
+    public T apply(T value) {
+      throw new IllegalStateException("async step applied synchronously");
+    }
+  }
+
+  private record InPlace<T>(Consumer<? super T> step) implements Function<T, T> {
+    @Override
+    public T apply(T value) {
+      step.accept(value);
+      return value;
+    }
+  }
+
+  /* immutable cons cell; index is the step's position in execution order */
+  private static final class Step<T> {
+    final Step<T> prev;
+    final String label; // null: tagged by index
+    final Function<T, T> fn;
+    final int index;
+    final int asyncSteps; // async steps up to and including this one
+
+    Step(Step<T> prev, String label, Function<T, T> fn) {
+      this.prev = prev;
+      this.label = label;
+      this.fn = fn;
+      this.index = prev == null ? 0 : prev.index + 1;
+      this.asyncSteps = (prev == null ? 0 : prev.asyncSteps) + (fn instanceof AsyncCall ? 1 : 0);
+    }
   }
 
   @Override
@@ -121,14 +377,10 @@ public final class Pipeline<T> {
     return "Pipeline["
         + name
         + ", steps="
-        + actions.size()
+        + size()
         + ", shortCircuit="
         + shortCircuit
+        + (isAsync() ? ", async=" + (segments() - 1) : "")
         + ']';
   }
-
-  // Modern pattern‑matching syntax requires JDK16+
-  private static RuntimeException wrap(Exception ex) {
-    return (ex instanceof RuntimeException rte) ? rte : new RuntimeException(ex);
-  }
 }
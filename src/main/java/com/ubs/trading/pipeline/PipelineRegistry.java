@@ -1,34 +1,49 @@
 package com.ubs.trading.pipeline;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Thread‑safe registry that maps a symbolic name to a {@link Pipeline}.
+ * Thread‑safe registry that maps a symbolic name to a {@link Pipeline}, with integer handles for
+ * the hot path.
  *
  * <p>Intended usage:
  *
  * <pre>{@code
- * PipelineRegistry registry = new PipelineRegistry();
- * registry.register("hello", helloPipeline);
+ * PipelineRegistry<Order> registry = new PipelineRegistry<>();
+ * int hello = registry.register("hello", helloPipeline);    // or registry.handle("hello")
  *
- * Pipeline<String> p = registry.lookup("hello")
- *                              .orElseThrow(() -> new IllegalArgumentException("Unknown key"));
+ * // per message: one volatile read and one array load, no hashing or allocation
+ * Pipeline<Order> p = registry.require(hello);
+ *
+ * // while traffic flows
+ * long v = registry.version(hello);
+ * registry.replace(hello, v, helloPipelineV2);               // false if someone got there first
  * }</pre>
  *
- * <p>The registry never exposes its internal map; callers receive either
+ * <p>Names are resolved once into a stable handle – an index into an array of pipelines. Writers
+ * (register, replace, remove) are serialised and publish a fresh copy of the array through a
+ * volatile field, so readers never lock and always see a consistent (pipeline, version) pair.
+ *
+ * <p>A replacement takes effect for the next lookup. A message whose consumer already looked up the
+ * old pipeline finishes on it; nothing is paused, dropped or run twice. Pipelines are {@link
+ * Pipeline#compile() compiled} before they are published, so the first message after a swap does
+ * not pay for fusing.
  *
- * <ul>
- *   <li>an {@code Optional<Pipeline<String>>} via {@link #lookup}, or
- *   <li>an <i>immutable snapshot</i> via {@link #asMap} (useful for debugging).
- * </ul>
+ * @param <T> payload type of the registered pipelines
  */
-public final class PipelineRegistry {
+public final class PipelineRegistry<T> {
+
+  /** Name → handle; handles are never reused for another name. Off the hot path. */
+  private final Map<String, Integer> handles = new ConcurrentHashMap<>();
 
-  /** Underlying storage – high‑concurrency friendly. */
-  private final Map<String, Pipeline<String>> map = new ConcurrentHashMap<>();
+  /** Immutable snapshot, replaced as a whole by writers. */
+  private volatile Table<T> table = Table.empty();
 
   /* ------------------------------------------------------------------ *
    *  Registration API
@@ -39,30 +54,104 @@ public final class PipelineRegistry {
    *
    * @param key unique human‑readable identifier (case sensitive)
    * @param pipeline non‑null pipeline instance
-   * @return {@code true} if a new key was inserted, {@code false} if an existing key was replaced
+   * @return the key's handle, stable for the registry's lifetime
+   */
+  public synchronized int register(String key, Pipeline<T> pipeline) {
+    Objects.requireNonNull(pipeline, "pipeline");
+    int handle = handle(key);
+    publish(handle, pipeline.compile());
+    return handle;
+  }
+
+  /**
+   * Handle for {@code key}, allocating an empty slot if the key is new, so consumers can be wired
+   * before the first pipeline is registered.
    */
-  public boolean register(String key, Pipeline<String> pipeline) {
-    return map.put(key, pipeline) == null;
+  public synchronized int handle(String key) {
+    Objects.requireNonNull(key, "key");
+    Integer h = handles.get(key);
+    if (h != null) return h;
+
+    Table<T> t = table;
+    int handle = t.pipelines.length;
+    table = t.grow(key);
+    handles.put(key, handle);
+    return handle;
   }
 
-  /** Remove a pipeline; harmless if the key does not exist. */
-  public void remove(String key) {
-    map.remove(key);
+  /**
+   * Replace the pipeline behind {@code handle}.
+   *
+   * @return the new version
+   */
+  public synchronized long replace(int handle, Pipeline<T> pipeline) {
+    Objects.requireNonNull(pipeline, "pipeline");
+    checkHandle(handle);
+    return publish(handle, pipeline.compile());
+  }
+
+  /**
+   * Replace the pipeline behind {@code handle} only if it is still at {@code expectedVersion}.
+   *
+   * @return {@code false}, changing nothing, if another writer replaced it first
+   */
+  public synchronized boolean replace(int handle, long expectedVersion, Pipeline<T> pipeline) {
+    Objects.requireNonNull(pipeline, "pipeline");
+    checkHandle(handle);
+    if (table.versions[handle] != expectedVersion) return false;
+    publish(handle, pipeline.compile());
+    return true;
+  }
+
+  /** Remove a pipeline; harmless if the key does not exist. The key keeps its handle. */
+  public synchronized void remove(String key) {
+    Integer h = handles.get(key);
+    if (h != null && table.pipelines[h] != null) publish(h, null);
   }
 
   /* ------------------------------------------------------------------ *
    *  Lookup API
    * ------------------------------------------------------------------ */
 
+  /** Hot‑path lookup: the current pipeline behind {@code handle}, or {@code null} if none. */
+  public Pipeline<T> get(int handle) {
+    return table.pipelines[handle];
+  }
+
+  /**
+   * {@link #get} that throws if nothing is registered.
+   *
+   * @throws IllegalStateException if the slot is empty
+   */
+  public Pipeline<T> require(int handle) {
+    Pipeline<T> p = table.pipelines[handle];
+    if (p == null) throw empty(handle);
+    return p;
+  }
+
+  /** Whether {@code handle} was issued by this registry; its slot may still be empty. */
+  public boolean isValid(int handle) {
+    return handle >= 0 && handle < table.pipelines.length;
+  }
+
+  /**
+   * Version of the pipeline behind {@code handle}: 0 for a never‑registered slot, incremented by
+   * every register, replace and remove.
+   */
+  public long version(int handle) {
+    return table.versions[handle];
+  }
+
   /**
    * @return an {@code Optional} containing the pipeline, or empty if not registered.
    */
-  public Optional<Pipeline<String>> lookup(String key) {
-    return Optional.ofNullable(map.get(key));
+  public Optional<Pipeline<T>> lookup(String key) {
+    Integer h = handles.get(key);
+    return h == null ? Optional.empty() : Optional.ofNullable(get(h));
   }
 
   /** Shorthand that throws if the key is missing. */
-  public Pipeline<String> require(String key) {
+  public Pipeline<T> require(String key) {
     return lookup(key)
         .orElseThrow(() -> new IllegalArgumentException("No pipeline for key: " + key));
   }
@@ -72,12 +161,67 @@ public final class PipelineRegistry {
    * ------------------------------------------------------------------ */
 
   /** Immutable snapshot of current registry contents. */
-  public Map<String, Pipeline<String>> asMap() {
-    return Collections.unmodifiableMap(map);
+  public Map<String, Pipeline<T>> asMap() {
+    Table<T> t = table;
+    Map<String, Pipeline<T>> snapshot = new LinkedHashMap<>();
+    for (int h = 0; h < t.names.length; h++) {
+      if (t.pipelines[h] != null) snapshot.put(t.names[h], t.pipelines[h]);
+    }
+    return Collections.unmodifiableMap(snapshot);
   }
 
   /** Number of registered pipelines. */
   public int size() {
-    return map.size();
+    Table<T> t = table;
+    int n = 0;
+    for (Pipeline<T> p : t.pipelines) if (p != null) n++;
+    return n;
+  }
+
+  /* ------------------------------------------------------------------ *
+   *  internal
+   * ------------------------------------------------------------------ */
+
+  /* caller holds the lock */
+  private long publish(int handle, Pipeline<T> pipeline) {
+    Table<T> t = table.with(handle, pipeline);
+    table = t;
+    return t.versions[handle];
+  }
+
+  private void checkHandle(int handle) {
+    if (!isValid(handle)) {
+      throw new IllegalArgumentException("unknown handle: " + handle);
+    }
+  }
+
+  /* kept out of require() so it stays small enough to inline */
+  private IllegalStateException empty(int handle) {
+    String name = handle < table.names.length ? table.names[handle] : "?";
+    return new IllegalStateException("No pipeline registered for " + name + " (" + handle + ')');
+  }
+
+  /* pipelines[h], versions[h] and names[h] describe handle h; never mutated once published */
+  private record Table<T>(Pipeline<T>[] pipelines, long[] versions, String[] names) {
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <T> Table<T> empty() {
+      return new Table<>(new Pipeline[0], new long[0], new String[0]);
+    }
+
+    Table<T> grow(String name) {
+      int n = pipelines.length;
+      String[] ns = Arrays.copyOf(names, n + 1);
+      ns[n] = name;
+      return new Table<>(Arrays.copyOf(pipelines, n + 1), Arrays.copyOf(versions, n + 1), ns);
+    }
+
+    Table<T> with(int handle, Pipeline<T> pipeline) {
+      Pipeline<T>[] ps = pipelines.clone();
+      long[] vs = versions.clone();
+      ps[handle] = pipeline;
+      vs[handle]++;
+      return new Table<>(ps, vs, names);
+    }
   }
 }
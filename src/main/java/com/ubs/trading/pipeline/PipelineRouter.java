@@ -0,0 +1,119 @@
+package com.ubs.trading.pipeline;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * Stateless content‑based routing: a key extractor maps each message to a small int code (message
+ * type, instrument class, …) and the code indexes a dense table of pipelines.
+ *
+ * <pre>{@code
+ * PipelineRouter<Order> router = PipelineRouter.<Order>by(o -> o.msgType)   // e.g. 'D', 'F', 'G'
+ *     .route('D', newOrder)
+ *     .route('F', cancel)
+ *     .route('G', amend)
+ *     .otherwise(reject)
+ *     .build();
+ * }</pre>
+ *
+ * <p>{@link #select} is one extractor call, a bounds check and an array load; codes with no route,
+ * codes outside the table and extractor failures all yield the default pipeline, so routing never
+ * throws. Immutable and thread‑safe.
+ *
+ * @param <T> payload type
+ */
+public final class PipelineRouter<T> {
+
+  /** Largest accepted code; keeps the dense table bounded. */
+  public static final int MAX_CODE = 65_535;
+
+  private final ToIntFunction<? super T> key;
+  private final Pipeline<T>[] table; // unrouted codes hold fallback
+  private final Pipeline<T> fallback;
+
+  private PipelineRouter(Builder<T> b) {
+    this.key = b.key;
+    this.fallback = Objects.requireNonNull(b.fallback, "default pipeline (otherwise)").compile();
+    this.table = b.routes.clone();
+    for (int i = 0; i < table.length; i++) {
+      table[i] = table[i] == null ? fallback : table[i].compile();
+    }
+  }
+
+  /** Start a router keyed by {@code key}. */
+  public static <T> Builder<T> by(ToIntFunction<? super T> key) {
+    return new Builder<>(Objects.requireNonNull(key, "key"));
+  }
+
+  /** The pipeline for {@code payload}; the default one if its code has no route. */
+  public Pipeline<T> select(T payload) {
+    int code;
+    try {
+      code = key.applyAsInt(payload);
+    } catch (RuntimeException e) {
+      return fallback;
+    }
+    Pipeline<T>[] t = table;
+    return code >= 0 && code < t.length ? t[code] : fallback;
+  }
+
+  /** The pipeline routed for {@code code}, or the default one. */
+  public Pipeline<T> route(int code) {
+    return code >= 0 && code < table.length ? table[code] : fallback;
+  }
+
+  public Pipeline<T> fallback() {
+    return fallback;
+  }
+
+  @Override
+  public String toString() {
+    long routed = Arrays.stream(table).filter(p -> p != fallback).count();
+    return "PipelineRouter[routes=" + routed + ", default=" + fallback.name() + ']';
+  }
+
+  /* ------------------------------------------------------------------ */
+  /*  builder                                                           */
+  /* ------------------------------------------------------------------ */
+
+  public static final class Builder<T> {
+    private final ToIntFunction<? super T> key;
+    private Pipeline<T>[] routes = newTable(0);
+    private Pipeline<T> fallback;
+
+    private Builder(ToIntFunction<? super T> key) {
+      this.key = key;
+    }
+
+    /**
+     * Route {@code code} to {@code pipeline}, replacing an earlier route for the same code.
+     *
+     * @throws IllegalArgumentException if {@code code} is outside {@code [0, MAX_CODE]}
+     */
+    public Builder<T> route(int code, Pipeline<T> pipeline) {
+      Objects.requireNonNull(pipeline, "pipeline");
+      if (code < 0 || code > MAX_CODE) {
+        throw new IllegalArgumentException("code must be in [0, " + MAX_CODE + "]: " + code);
+      }
+      if (code >= routes.length) routes = Arrays.copyOf(routes, code + 1);
+      routes[code] = pipeline;
+      return this;
+    }
+
+    /** Default pipeline for unrouted codes; required. */
+    public Builder<T> otherwise(Pipeline<T> pipeline) {
+      this.fallback = pipeline;
+      return this;
+    }
+
+    public PipelineRouter<T> build() {
+      return new PipelineRouter<>(this);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Pipeline<T>[] newTable(int size) {
+      return new Pipeline[size];
+    }
+  }
+}
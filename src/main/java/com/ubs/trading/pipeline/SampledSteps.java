@@ -0,0 +1,61 @@
+package com.ubs.trading.pipeline;
+
+import com.ubs.trading.metrics.LatencyHistogram;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Executor of an instrumented pipeline: runs the fused chain, except for every Nth message, which
+ * runs the steps one at a time and records each step's duration into its stage histogram.
+ *
+ * <p>Error semantics match {@link FusedSteps}: a failing step propagates in short‑circuit mode and
+ * is skipped otherwise. A failing step's time is still recorded.
+ */
+final class SampledSteps<T> implements Function<T, T> {
+
+  private final Function<T, T> fused;
+  private final Function<T, T>[] steps;
+  private final LatencyHistogram[] stages;
+  private final int sampleEvery;
+  private final boolean shortCircuit;
+
+  private int countdown; // racy by design: losing a decrement only shifts the next sample
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  SampledSteps(
+      Function<T, T> fused,
+      List<Function<T, T>> steps,
+      LatencyHistogram[] stages,
+      int sampleEvery,
+      boolean shortCircuit) {
+    this.fused = fused;
+    this.steps = steps.toArray(new Function[0]);
+    this.stages = stages;
+    this.sampleEvery = sampleEvery;
+    this.shortCircuit = shortCircuit;
+    this.countdown = sampleEvery;
+  }
+
+  @Override
+  public T apply(T v) {
+    if (--countdown > 0) return fused.apply(v);
+    countdown = sampleEvery;
+    return timed(v);
+  }
+
+  /* kept separate so the fast path above stays small enough to inline */
+  private T timed(T v) {
+    for (int i = 0; i < steps.length; i++) {
+      long t0 = System.nanoTime();
+      try {
+        v = steps[i].apply(v);
+      } catch (Exception ex) {
+        if (shortCircuit) throw FusedSteps.wrap(ex);
+        // lenient: keep last good value
+      } finally {
+        stages[i].record(System.nanoTime() - t0);
+      }
+    }
+    return v;
+  }
+}
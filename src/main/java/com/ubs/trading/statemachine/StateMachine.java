@@ -4,10 +4,20 @@ import com.ubs.trading.pipeline.Pipeline;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
 
 /**
  * Table‑driven state machine whose transitions return a Pipeline&lt;T&gt;.
  *
+ * <p>Two forms:
+ * <ul>
+ *   <li><b>dynamic</b> – the map-backed table built with {@link #add}; may be
+ *       extended at any time.</li>
+ *   <li><b>compiled</b> – an immutable {@code Transition[][]} produced by
+ *       {@link #compile}, indexed by dense int codes (enum ordinals), so a
+ *       lookup is an array read with no hashing or boxing.</li>
+ * </ul>
+ *
  * @param <S> state   type (enum or String recommended)
  * @param <E> event type *and* payload type flowing through the pipeline
  */
@@ -15,30 +25,224 @@ public final class StateMachine<S, E> {
 
     public static record Transition<S, T>(S nextState, Pipeline<T> pipeline) {}
 
-    private final Map<S, Map<E, Transition<S, E>>> table = new ConcurrentHashMap<>();
-    private volatile S current;
+    private final Map<S, Map<E, Transition<S, E>>> table;
+    private final Compiled<S, E> compiled;           // null in dynamic form
+    private final S initial;
+    private volatile S current;                      // dynamic form
+    private volatile int currentCode;                // compiled form
+
+    public StateMachine(S initialState) {
+        this(new ConcurrentHashMap<>(), null, initialState);
+    }
+
+    private StateMachine(Map<S, Map<E, Transition<S, E>>> table,
+                         Compiled<S, E> compiled,
+                         S initialState) {
+        this.table = table;
+        this.compiled = compiled;
+        this.initial = initialState;
+        this.current = initialState;
+        this.currentCode = compiled == null ? -1 : compiled.initialCode;
+    }
 
-    public StateMachine(S initialState) { this.current = initialState; }
+    /**
+     * Fresh machine at the initial state that <em>shares</em> this machine's
+     * transition table – one cheap instance per tracked entity.  Transitions
+     * added later to either machine are visible to both.
+     */
+    public StateMachine<S, E> copy() {
+        return new StateMachine<>(table, compiled, initial);
+    }
 
     /* builder --------------------------------------------------------- */
 
     public StateMachine<S, E> add(S from, E event, S to, Pipeline<E> pipeline) {
+        if (compiled != null)
+            throw new IllegalStateException("compiled state machine is immutable");
         table.computeIfAbsent(from, k -> new ConcurrentHashMap<>())
                 .put(event, new Transition<>(to, pipeline));
         return this;
     }
 
+    /**
+     * Freeze the current table into an array-indexed machine.
+     *
+     * <p>Every state and event key used in the table must map to a distinct
+     * code in {@code [0, count)}; the result starts at the initial state and
+     * is independent of later {@link #add} calls on this machine.
+     *
+     * @param stateCode  dense code of a state, e.g. {@code Enum::ordinal}
+     * @param eventCode  dense code of an event; evaluated once per message
+     * @throws IllegalArgumentException if a code is out of range or two
+     *         events of the same state share a code
+     */
+    public StateMachine<S, E> compile(ToIntFunction<? super S> stateCode, int stateCount,
+                                      ToIntFunction<? super E> eventCode, int eventCount) {
+        return new StateMachine<>(table,
+                Compiled.of(table, initial, stateCode, stateCount, eventCode, eventCount),
+                initial);
+    }
+
+    /** {@link #compile(ToIntFunction, int, ToIntFunction, int)} for enum states. */
+    public StateMachine<S, E> compile(ToIntFunction<? super E> eventCode, int eventCount) {
+        if (!(initial instanceof Enum<?> e))
+            throw new IllegalStateException("state type is not an enum: " + initial);
+        return compile(s -> ((Enum<?>) s).ordinal(),
+                e.getDeclaringClass().getEnumConstants().length,
+                eventCode, eventCount);
+    }
+
+    public boolean isCompiled() { return compiled != null; }
+
     /* runtime --------------------------------------------------------- */
 
     public Pipeline<E> onEvent(E event) {
+        if (compiled != null) return onCompiledEvent(event);
+
         Map<E, Transition<S, E>> row = table.get(current);
-        if (row == null || !row.containsKey(event))
-            throw new IllegalStateException("No transition for %s / %s".formatted(current, event));
+        Transition<S, E> t = row == null ? null : row.get(event);
+        if (t == null) throw noTransition(current, event);
 
-        Transition<S, E> t = row.get(event);
         current = t.nextState();
         return t.pipeline();
     }
 
-    public S state() { return current; }
+    private Pipeline<E> onCompiledEvent(E event) {
+        int s = currentCode;
+        int e = compiled.eventCode.applyAsInt(event);
+        Transition<S, E>[] row = compiled.transitions[s];
+        if (e < 0 || e >= row.length || row[e] == null)
+            throw noTransition(compiled.state(s), event);
+
+        currentCode = compiled.next[s][e];
+        return row[e].pipeline();
+    }
+
+    /** Whether the current state has a transition for {@code event}, e.g. a timeout that may be stale. */
+    public boolean accepts(E event) {
+        if (compiled != null) {
+            int e = compiled.eventCode.applyAsInt(event);
+            Transition<S, E>[] row = compiled.transitions[currentCode];
+            return e >= 0 && e < row.length && row[e] != null;
+        }
+        Map<E, Transition<S, E>> row = table.get(current);
+        return row != null && row.containsKey(event);
+    }
+
+    public S state() {
+        return compiled != null ? compiled.state(currentCode) : current;
+    }
+
+    /* externally held state (compiled form only) ----------------------- *
+     * Lets one compiled table drive many entities whose state codes live   *
+     * elsewhere, e.g. in a primitive StateStore, without a machine each.   */
+
+    public int initialCode() { return requireCompiled().initialCode; }
+
+    /** Dense code of {@code event}, as given to {@link #compile}. */
+    public int eventCode(E event) { return requireCompiled().eventCode.applyAsInt(event); }
+
+    /**
+     * Pipeline of the transition {@code (stateCode, eventCode)}; does not
+     * touch this machine's own current state.
+     *
+     * @throws IllegalStateException if no such transition exists
+     */
+    public Pipeline<E> pipeline(int stateCode, int eventCode) {
+        Transition<S, E>[] row = requireCompiled().transitions[stateCode];
+        if (eventCode < 0 || eventCode >= row.length || row[eventCode] == null)
+            throw noTransition(compiled.state(stateCode), eventCode);
+        return row[eventCode].pipeline();
+    }
+
+    /** Whether {@link #pipeline(int, int)} would find a transition. */
+    public boolean hasTransition(int stateCode, int eventCode) {
+        Transition<S, E>[] row = requireCompiled().transitions[stateCode];
+        return eventCode >= 0 && eventCode < row.length && row[eventCode] != null;
+    }
+
+    /** Target state code of a transition previously resolved via {@link #pipeline}. */
+    public int nextCode(int stateCode, int eventCode) {
+        return requireCompiled().next[stateCode][eventCode];
+    }
+
+    public S stateOf(int stateCode) { return requireCompiled().state(stateCode); }
+
+    private Compiled<S, E> requireCompiled() {
+        if (compiled == null) throw new IllegalStateException("state machine is not compiled");
+        return compiled;
+    }
+
+    /* kept out of the lookup methods so they stay small enough to inline */
+    private static IllegalStateException noTransition(Object state, Object event) {
+        return new IllegalStateException("No transition for %s / %s".formatted(state, event));
+    }
+
+    /* ----------------------------------------------------------------- *
+     *  Immutable array form
+     * ----------------------------------------------------------------- */
+
+    private static final class Compiled<S, E> {
+
+        final Transition<S, E>[][] transitions;      // [stateCode][eventCode]
+        final int[][] next;                          // next state code, same shape
+        final Object[] states;                       // code → state
+        final ToIntFunction<? super E> eventCode;
+        final int initialCode;
+
+        private Compiled(Transition<S, E>[][] transitions, int[][] next, Object[] states,
+                         ToIntFunction<? super E> eventCode, int initialCode) {
+            this.transitions = transitions;
+            this.next = next;
+            this.states = states;
+            this.eventCode = eventCode;
+            this.initialCode = initialCode;
+        }
+
+        @SuppressWarnings("unchecked")
+        S state(int code) { return (S) states[code]; }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        static <S, E> Compiled<S, E> of(Map<S, Map<E, Transition<S, E>>> table, S initial,
+                                        ToIntFunction<? super S> stateCode, int stateCount,
+                                        ToIntFunction<? super E> eventCode, int eventCount) {
+            Transition<S, E>[][] transitions = new Transition[stateCount][eventCount];
+            int[][] next = new int[stateCount][eventCount];
+            Object[] states = new Object[stateCount];
+
+            int initialCode = register(states, stateCode, initial);
+
+            table.forEach((from, row) -> {
+                int s = register(states, stateCode, from);
+                row.forEach((event, t) -> {
+                    int e = code(eventCode, event, eventCount, "event");
+                    if (transitions[s][e] != null)
+                        throw new IllegalArgumentException(
+                                "event %s of state %s reuses code %d".formatted(event, from, e));
+                    int n = register(states, stateCode, t.nextState());
+                    transitions[s][e] = t;
+                    next[s][e] = n;
+                });
+            });
+            return new Compiled<>(transitions, next, states, eventCode, initialCode);
+        }
+
+        /* records code → state and rejects two states sharing a code */
+        private static <S> int register(Object[] states, ToIntFunction<? super S> stateCode, S state) {
+            int c = code(stateCode, state, states.length, "state");
+            if (states[c] != null && !states[c].equals(state))
+                throw new IllegalArgumentException(
+                        "states %s and %s share code %d".formatted(states[c], state, c));
+            states[c] = state;
+            return c;
+        }
+
+        private static <X> int code(ToIntFunction<? super X> fn, X value, int count, String what) {
+            int c = fn.applyAsInt(value);
+            if (c < 0 || c >= count)
+                throw new IllegalArgumentException(
+                        "%s %s has code %d outside [0, %d)".formatted(what, value, c, count));
+            return c;
+        }
+    }
 }
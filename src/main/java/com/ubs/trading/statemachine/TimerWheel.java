@@ -0,0 +1,311 @@
+package com.ubs.trading.statemachine;
+
+import com.ubs.trading.metrics.MetricsRecorder;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Hashed timer wheel for per-entity timeouts (quote expiry, ack timeout)
+ * owned by one consumer thread.
+ *
+ * <pre>{@code
+ * TimerWheel timers = TimerWheel.builder()
+ *         .tick(Duration.ofMillis(1))
+ *         .wheelSize(4_096)              // buckets; ~4 s per revolution
+ *         .capacity(500_000)             // max pending timers
+ *         .build();
+ *
+ * long id = timers.schedule(rfqId, QUOTE_EXPIRED, System.nanoTime() + ttl);
+ * ...
+ * timers.cancel(id);                     // quote answered in time
+ * }</pre>
+ *
+ * <p>Timers live in pre-allocated parallel arrays and are chained into
+ * doubly linked bucket lists by index: {@link #schedule} and
+ * {@link #cancel} are O(1) and allocate nothing.  A timer is hashed to the
+ * bucket of its deadline tick; {@link #poll} walks the buckets of the ticks
+ * that have passed and fires the timers that are due, leaving those that
+ * belong to a later revolution in place.  Deadlines are rounded up to the
+ * next tick, so a timer fires at most one tick plus the poll interval late,
+ * never early.
+ *
+ * <p>Timer ids carry a generation, so cancelling a timer that already fired
+ * – or whose slot has since been reused – is a harmless no-op.
+ *
+ * <p>Not thread-safe: schedule, cancel and poll on the owning thread, e.g.
+ * from pipeline steps run by a {@code KeyedDispatcher}, which also polls.
+ */
+public final class TimerWheel {
+
+    /** Receives an expired timer; may schedule and cancel timers. */
+    @FunctionalInterface
+    public interface Expiry { void onExpiry(long key, int kind); }
+
+    /** Never returned by {@link #schedule}; a convenient "no timer" marker. */
+    public static final long NONE = 0;
+
+    private static final int FREE = -1;
+
+    private final long tickNanos;
+    private final long originNanos;
+    private final int mask;
+    private final int expiring;                        // extra list: due, about to fire
+    private final int overdue;                         // extra list: scheduled for a tick already polled
+
+    private final int[] heads;                          // bucket → first timer, -1 = empty
+    private final long[] ticks;                         // timer → deadline tick
+    private final long[] keys;
+    private final int[] kinds;
+    private final int[] next;
+    private final int[] prev;
+    private final int[] bucket;                         // timer → list it is on, FREE if unused
+    private final int[] generation;
+
+    private int freeHead;
+    private int size;
+    private long currentTick;                           // next tick to process
+
+    private long scheduled;
+    private long cancelled;
+    private long fired;
+
+    private TimerWheel(Builder b) {
+        if (Integer.bitCount(b.wheelSize) != 1)
+            throw new IllegalArgumentException("wheelSize must be a power of 2: " + b.wheelSize);
+        if (b.capacity < 1) throw new IllegalArgumentException("capacity must be ≥ 1: " + b.capacity);
+        this.tickNanos = b.tick.toNanos();
+        if (tickNanos < 1) throw new IllegalArgumentException("tick must be positive: " + b.tick);
+        this.originNanos = b.originNanos;
+        this.mask = b.wheelSize - 1;
+        this.expiring = b.wheelSize;
+        this.overdue = b.wheelSize + 1;
+
+        this.heads = new int[b.wheelSize + 2];
+        Arrays.fill(heads, -1);
+        this.ticks = new long[b.capacity];
+        this.keys = new long[b.capacity];
+        this.kinds = new int[b.capacity];
+        this.next = new int[b.capacity];
+        this.prev = new int[b.capacity];
+        this.bucket = new int[b.capacity];
+        this.generation = new int[b.capacity];
+        Arrays.fill(bucket, FREE);
+        Arrays.fill(generation, 1);
+        for (int i = 0; i < b.capacity; i++) next[i] = i + 1 < b.capacity ? i + 1 : -1;
+        this.freeHead = 0;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /* ----------------------------------------------------------------- *
+     *  schedule / cancel
+     * ----------------------------------------------------------------- */
+
+    /**
+     * Fires {@code (key, kind)} once {@link #poll} is called at or after
+     * {@code deadlineNanos} ({@link System#nanoTime()} scale).  A deadline in
+     * the past fires on the next poll.
+     *
+     * @return id for {@link #cancel}; never {@link #NONE}
+     * @throws IllegalStateException if {@code capacity} timers are pending
+     */
+    public long schedule(long key, int kind, long deadlineNanos) {
+        int t = freeHead;
+        if (t < 0) throw new IllegalStateException("timer capacity exhausted: " + ticks.length);
+        freeHead = next[t];
+
+        long tick = ceilDiv(deadlineNanos - originNanos, tickNanos);
+        ticks[t] = tick;
+        keys[t] = key;
+        kinds[t] = kind;
+        link(t, tick < currentTick ? overdue : (int) tick & mask);
+        size++;
+        scheduled++;
+        return (long) generation[t] << 32 | t;
+    }
+
+    /**
+     * Cancels a pending timer.
+     *
+     * @return {@code false} if it already fired or was cancelled
+     */
+    public boolean cancel(long timerId) {
+        int t = (int) timerId;
+        if (t < 0 || t >= ticks.length || bucket[t] == FREE || generation[t] != (int) (timerId >>> 32))
+            return false;
+        unlink(t);
+        release(t);
+        cancelled++;
+        return true;
+    }
+
+    /* ----------------------------------------------------------------- *
+     *  expiry
+     * ----------------------------------------------------------------- */
+
+    /**
+     * Fires every timer due at {@code nowNanos}: first those scheduled with
+     * a deadline that had already been polled past, then the rest in
+     * deadline-tick order (in no particular order within one tick).  Timers scheduled by
+     * {@code expiry} are due on a later poll at the earliest.  After a gap
+     * longer than a revolution every bucket is swept once, and overdue
+     * timers fire in bucket order.
+     *
+     * @return timers fired
+     */
+    public int poll(long nowNanos, Expiry expiry) {
+        long target = Math.floorDiv(nowNanos - originNanos, tickNanos);
+        int n = fire(expiry);                          // left over by a throwing expiry
+        collect(overdue, Long.MAX_VALUE);
+        n += fire(expiry);
+        if (target < currentTick) return n;
+        if (size == 0) {
+            currentTick = target + 1;
+            return n;
+        }
+
+        if (target - currentTick > mask) {
+            currentTick = target + 1;
+            for (int b = 0; b <= mask; b++) collect(b, target);
+            return n + fire(expiry);
+        }
+        while (currentTick <= target) {
+            long tick = currentTick++;
+            collect((int) tick & mask, tick);
+            n += fire(expiry);
+        }
+        return n;
+    }
+
+    /* moves the due timers of one bucket onto the expiring list */
+    private void collect(int b, long dueTick) {
+        for (int t = heads[b]; t >= 0; ) {
+            int following = next[t];
+            if (ticks[t] <= dueTick) {
+                unlink(t);
+                link(t, expiring);
+            }
+            t = following;
+        }
+    }
+
+    /* the expiring list is re-read each round: an expiry may cancel a timer on it */
+    private int fire(Expiry expiry) {
+        int n = 0;
+        for (int t = heads[expiring]; t >= 0; t = heads[expiring]) {
+            long key = keys[t];
+            int kind = kinds[t];
+            unlink(t);
+            release(t);
+            fired++;
+            n++;
+            expiry.onExpiry(key, kind);
+        }
+        return n;
+    }
+
+    /* ----------------------------------------------------------------- *
+     *  introspection
+     * ----------------------------------------------------------------- */
+
+    /** Pending timers. */
+    public int size() { return size; }
+
+    public int capacity() { return ticks.length; }
+
+    public long tickNanos() { return tickNanos; }
+
+    public long scheduledCount() { return scheduled; }
+
+    public long cancelledCount() { return cancelled; }
+
+    public long firedCount() { return fired; }
+
+    /** Registers pending-timer gauge and scheduled / cancelled / fired counters tagged {@code wheel=name}. */
+    public void registerMetrics(MetricsRecorder metrics, String name) {
+        metrics.gauge("timer.wheel.pending", this, TimerWheel::size, "wheel", name);
+        metrics.counter("timer.wheel.scheduled", this, TimerWheel::scheduledCount, "wheel", name);
+        metrics.counter("timer.wheel.cancelled", this, TimerWheel::cancelledCount, "wheel", name);
+        metrics.counter("timer.wheel.fired", this, TimerWheel::firedCount, "wheel", name);
+    }
+
+    /* ----------------------------------------------------------------- *
+     *  internal
+     * ----------------------------------------------------------------- */
+
+    private void link(int t, int list) {
+        int head = heads[list];
+        bucket[t] = list;
+        prev[t] = -1;
+        next[t] = head;
+        if (head >= 0) prev[head] = t;
+        heads[list] = t;
+    }
+
+    private void unlink(int t) {
+        int p = prev[t];
+        int n = next[t];
+        if (p >= 0) next[p] = n;
+        else heads[bucket[t]] = n;
+        if (n >= 0) prev[n] = p;
+    }
+
+    /* back onto the free list; the new generation invalidates outstanding ids */
+    private void release(int t) {
+        bucket[t] = FREE;
+        if (++generation[t] == 0) generation[t] = 1;   // keeps ids ≠ NONE
+        next[t] = freeHead;
+        freeHead = t;
+        size--;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    /* ================================================================= *
+     *  Builder
+     * ================================================================= */
+
+    public static final class Builder {
+
+        private Duration tick = Duration.ofMillis(1);
+        private int wheelSize = 1_024;
+        private int capacity = 65_536;
+        private long originNanos = System.nanoTime();
+
+        private Builder() { }
+
+        /** Resolution: deadlines round up to a multiple of it. */
+        public Builder tick(Duration tick) {
+            this.tick = Objects.requireNonNull(tick, "tick");
+            return this;
+        }
+
+        /** Buckets; a power of two.  Timers further out than one revolution stay put for later ones. */
+        public Builder wheelSize(int wheelSize) {
+            this.wheelSize = wheelSize;
+            return this;
+        }
+
+        /** Maximum pending timers; all storage is allocated up front. */
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /** Time of tick 0, {@link System#nanoTime()} scale; defaults to the builder's creation. */
+        public Builder origin(long originNanos) {
+            this.originNanos = originNanos;
+            return this;
+        }
+
+        public TimerWheel build() {
+            return new TimerWheel(this);
+        }
+    }
+}
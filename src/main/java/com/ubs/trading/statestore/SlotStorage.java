@@ -0,0 +1,63 @@
+package com.ubs.trading.statestore;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Flat array of {@code long} words backing a {@link StateStore}.
+ *
+ * <p>Two implementations: {@link #onHeap} (one {@code long[]}, a single
+ * object for the GC to trace) and {@link #offHeap} (a direct buffer the GC
+ * never scans).  Neither is thread-safe.
+ */
+public sealed interface SlotStorage permits SlotStorage.Heap, SlotStorage.OffHeap {
+
+    long get(int word);
+
+    void put(int word, long value);
+
+    /** Number of {@code long} words. */
+    int words();
+
+    static SlotStorage onHeap(int words) {
+        return new Heap(words);
+    }
+
+    static SlotStorage offHeap(int words) {
+        return new OffHeap(words);
+    }
+
+    /* ----------------------------------------------------------------- */
+
+    final class Heap implements SlotStorage {
+
+        private final long[] data;
+
+        private Heap(int words) { this.data = new long[words]; }
+
+        @Override public long get(int word) { return data[word]; }
+
+        @Override public void put(int word, long value) { data[word] = value; }
+
+        @Override public int words() { return data.length; }
+    }
+
+    final class OffHeap implements SlotStorage {
+
+        private final ByteBuffer data;
+        private final int words;
+
+        private OffHeap(int words) {
+            if (words > Integer.MAX_VALUE / Long.BYTES)
+                throw new IllegalArgumentException("off-heap store limited to 2 GiB: " + words + " words");
+            this.words = words;
+            this.data = ByteBuffer.allocateDirect(words * Long.BYTES).order(ByteOrder.nativeOrder());
+        }
+
+        @Override public long get(int word) { return data.getLong(word << 3); }
+
+        @Override public void put(int word, long value) { data.putLong(word << 3, value); }
+
+        @Override public int words() { return words; }
+    }
+}
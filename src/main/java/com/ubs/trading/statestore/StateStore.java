@@ -0,0 +1,324 @@
+package com.ubs.trading.statestore;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Open-addressing table of entity key → state ordinal (+ a few {@code long}
+ * attributes) for millions of live entities without per-entry objects.
+ *
+ * <p>Layout: one flat {@link SlotStorage}, {@code 2 + attributes} words per
+ * slot: {@code [key][state + 1][attr0 .. attrN-1]}; a stored state of 0 marks
+ * an empty slot, so any {@code long} is a valid key.  Collisions use linear
+ * probing and deletion uses backward shifting, so there are no tombstones and
+ * probe chains stay short under churn.
+ *
+ * <p>Writing a <em>terminal</em> state (e.g. {@code FILLED}) removes the entry
+ * instead of storing it, so closed orders free their slot immediately.  A
+ * late or duplicate event for such a key then finds nothing and looks like a
+ * new entity; {@link Builder#keepTerminal} stores terminal states instead, so
+ * closed entities stay recognisable until {@link #remove} frees them.
+ *
+ * <p>Not thread-safe: own one store per consumer thread / partition.  Metric
+ * gauges read plain fields and are approximate when sampled elsewhere.
+ *
+ * <pre>{@code
+ * StateStore store = StateStore.builder()
+ *         .capacity(2_000_000)           // max live entities
+ *         .attributes(2)                 // e.g. cumQty, leavesQty
+ *         .offHeap(true)
+ *         .terminal(OrdState.FILLED, OrdState.CANCELED)
+ *         .build();
+ * }</pre>
+ */
+public final class StateStore {
+
+    /** Returned by {@link #state} for keys that are not stored. */
+    public static final int MISSING = -1;
+
+    private static final int KEY = 0;
+    private static final int STATE = 1;
+    private static final int ATTR = 2;
+    private static final double MAX_LOAD = 0.7;
+
+    private final SlotStorage slots;
+    private final int stride;
+    private final int attributes;
+    private final int mask;
+    private final int maxSize;
+    private final boolean[] terminal;
+    private final boolean keepTerminal;
+
+    private int size;
+
+    /* probe statistics */
+    private long lookups;
+    private long probes;
+    private int maxProbe;
+    private long terminalRemovals;
+
+    private StateStore(Builder b) {
+        int tableSlots = tableSlots(b.capacity);
+        long words = (long) tableSlots * (ATTR + b.attributes);
+        if (words > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("capacity too large: " + b.capacity);
+
+        this.attributes = b.attributes;
+        this.stride = ATTR + b.attributes;
+        this.mask = tableSlots - 1;
+        this.maxSize = b.capacity;
+        this.terminal = b.terminal.clone();
+        this.keepTerminal = b.keepTerminal;
+        this.slots = b.offHeap ? SlotStorage.offHeap((int) words) : SlotStorage.onHeap((int) words);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /* ----------------------------------------------------------------- *
+     *  lookup
+     * ----------------------------------------------------------------- */
+
+    /** State ordinal of {@code key}, or {@link #MISSING}. */
+    public int state(long key) {
+        int slot = find(key);
+        return slot < 0 ? MISSING : (int) slots.get(slot * stride + STATE) - 1;
+    }
+
+    public boolean contains(long key) {
+        return find(key) >= 0;
+    }
+
+    /** Attribute {@code index} of {@code key}; 0 if the key is not stored. */
+    public long attribute(long key, int index) {
+        Objects.checkIndex(index, attributes);
+        int slot = find(key);
+        return slot < 0 ? 0L : slots.get(slot * stride + ATTR + index);
+    }
+
+    /* ----------------------------------------------------------------- *
+     *  mutation
+     * ----------------------------------------------------------------- */
+
+    /**
+     * Insert or update {@code key}.  Attributes of a new entry start at 0.
+     *
+     * @return {@code false} if {@code state} is terminal and the entry was removed instead
+     *         (never with {@link Builder#keepTerminal})
+     * @throws IllegalStateException if the store already holds {@code capacity} entries
+     */
+    public boolean put(long key, int state) {
+        if (state < 0) throw new IllegalArgumentException("negative state ordinal: " + state);
+        if (!keepTerminal && state < terminal.length && terminal[state]) {
+            if (remove(key)) terminalRemovals++;
+            return false;
+        }
+
+        int slot = home(key);
+        int probe = 1;
+        while (slots.get(slot * stride + STATE) != 0) {
+            if (slots.get(slot * stride + KEY) == key) {
+                slots.put(slot * stride + STATE, state + 1L);
+                recordProbe(probe);
+                return true;
+            }
+            slot = (slot + 1) & mask;
+            probe++;
+        }
+        recordProbe(probe);
+
+        if (size == maxSize)
+            throw new IllegalStateException("state store full: " + size + " entries");
+        int base = slot * stride;
+        slots.put(base + KEY, key);
+        slots.put(base + STATE, state + 1L);
+        for (int i = 0; i < attributes; i++) slots.put(base + ATTR + i, 0L);
+        size++;
+        return true;
+    }
+
+    /** @return {@code false} if the key is not stored */
+    public boolean attribute(long key, int index, long value) {
+        Objects.checkIndex(index, attributes);
+        int slot = find(key);
+        if (slot < 0) return false;
+        slots.put(slot * stride + ATTR + index, value);
+        return true;
+    }
+
+    /** @return {@code true} if an entry was removed */
+    public boolean remove(long key) {
+        int slot = find(key);
+        if (slot < 0) return false;
+        shiftBack(slot);
+        size--;
+        return true;
+    }
+
+    /* ----------------------------------------------------------------- *
+     *  metrics
+     * ----------------------------------------------------------------- */
+
+    public int size() { return size; }
+
+    /** Maximum number of live entries. */
+    public int capacity() { return maxSize; }
+
+    /** Fraction of table slots in use (load factor). */
+    public double occupancy() { return (double) size / (mask + 1); }
+
+    public int maxProbeLength() { return maxProbe; }
+
+    public double meanProbeLength() { return lookups == 0 ? 0 : (double) probes / lookups; }
+
+    public long terminalRemovals() { return terminalRemovals; }
+
+    /** Registers size, occupancy, probe-length and terminal-removal meters tagged {@code store=name}. */
+    public void registerMetrics(MeterRegistry registry, String name) {
+        Gauge.builder("statestore.size", this, StateStore::size)
+                .tag("store", name).register(registry);
+        Gauge.builder("statestore.occupancy", this, StateStore::occupancy)
+                .tag("store", name).register(registry);
+        Gauge.builder("statestore.probe.max", this, StateStore::maxProbeLength)
+                .tag("store", name).register(registry);
+        Gauge.builder("statestore.probe.mean", this, StateStore::meanProbeLength)
+                .tag("store", name).register(registry);
+        FunctionCounter.builder("statestore.terminal.removals", this, StateStore::terminalRemovals)
+                .tag("store", name).register(registry);
+    }
+
+    /* ----------------------------------------------------------------- *
+     *  internal
+     * ----------------------------------------------------------------- */
+
+    private int find(long key) {
+        int slot = home(key);
+        int probe = 1;
+        while (slots.get(slot * stride + STATE) != 0) {
+            if (slots.get(slot * stride + KEY) == key) {
+                recordProbe(probe);
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+            probe++;
+        }
+        recordProbe(probe);
+        return -1;
+    }
+
+    /* Knuth's algorithm R: pull later chain members back into the hole */
+    private void shiftBack(int hole) {
+        int next = hole;
+        while (true) {
+            next = (next + 1) & mask;
+            if (slots.get(next * stride + STATE) == 0) break;
+
+            int home = home(slots.get(next * stride + KEY));
+            boolean stays = hole <= next
+                    ? hole < home && home <= next
+                    : hole < home || home <= next;
+            if (stays) continue;
+
+            for (int w = 0; w < stride; w++) {
+                slots.put(hole * stride + w, slots.get(next * stride + w));
+            }
+            hole = next;
+        }
+        slots.put(hole * stride + STATE, 0L);
+    }
+
+    private int home(long key) {
+        return (int) mix(key) & mask;
+    }
+
+    /* MurmurHash3 fmix64 – sequential order ids must not cluster */
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private void recordProbe(int probe) {
+        lookups++;
+        probes += probe;
+        if (probe > maxProbe) maxProbe = probe;
+    }
+
+    private static int tableSlots(int capacity) {
+        long wanted = (long) Math.ceil(capacity / MAX_LOAD);
+        if (wanted > 1 << 30) throw new IllegalArgumentException("capacity too large: " + capacity);
+        return Math.max(2, Integer.highestOneBit((int) wanted - 1) << 1);
+    }
+
+    /* ================================================================= *
+     *  Builder
+     * ================================================================= */
+
+    public static final class Builder {
+
+        private int capacity = 1 << 16;
+        private int attributes;
+        private boolean offHeap;
+        private boolean[] terminal = new boolean[0];
+        private boolean keepTerminal;
+
+        private Builder() { }
+
+        /** Maximum number of live entries; the table is sized for a ≤ 70% load. */
+        public Builder capacity(int capacity) {
+            if (capacity < 1) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+            this.capacity = capacity;
+            return this;
+        }
+
+        /** Number of {@code long} attributes per entry. */
+        public Builder attributes(int attributes) {
+            if (attributes < 0) throw new IllegalArgumentException("negative attributes: " + attributes);
+            this.attributes = attributes;
+            return this;
+        }
+
+        /** {@code true} backs the table with a direct buffer outside the Java heap. */
+        public Builder offHeap(boolean offHeap) {
+            this.offHeap = offHeap;
+            return this;
+        }
+
+        /** State ordinals whose entries are removed as soon as they are written. */
+        public Builder terminal(int... ordinals) {
+            for (int o : ordinals) {
+                if (o >= terminal.length) terminal = Arrays.copyOf(terminal, o + 1);
+                terminal[o] = true;
+            }
+            return this;
+        }
+
+        public Builder terminal(Enum<?>... states) {
+            for (Enum<?> s : states) terminal(s.ordinal());
+            return this;
+        }
+
+        /**
+         * {@code true} stores terminal states like any other instead of
+         * evicting: a closed entity keeps its slot, and its state, until
+         * {@link StateStore#remove} – e.g. from an end-of-day sweep or a
+         * timer – so late events for it are not mistaken for a new entity.
+         */
+        public Builder keepTerminal(boolean keepTerminal) {
+            this.keepTerminal = keepTerminal;
+            return this;
+        }
+
+        public StateStore build() {
+            return new StateStore(this);
+        }
+    }
+}
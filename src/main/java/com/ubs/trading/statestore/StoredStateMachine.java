@@ -0,0 +1,81 @@
+package com.ubs.trading.statestore;
+
+import com.ubs.trading.pipeline.Pipeline;
+import com.ubs.trading.statemachine.StateMachine;
+
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+/**
+ * Drives one compiled {@link StateMachine} table for every entity whose state
+ * ordinal lives in a {@link StateStore}: per message it costs a store lookup,
+ * two array reads and a store write – two probes for the key, the second on
+ * cache lines the first just touched – with no per-entity objects.  A
+ * timeout checked through {@link #accepts} first probes once more.
+ *
+ * <p>Entities absent from the store start at the machine's initial state;
+ * entering a state the store treats as terminal removes them again, unless
+ * the store {@linkplain StateStore.Builder#keepTerminal keeps terminal
+ * states}.  An event the entity's state has no transition for – a late fill
+ * for a closed order, say – is ignored rather than thrown, so one stray
+ * message cannot stop the consumer.
+ *
+ * @param <S> enum state type of the compiled machine
+ * @param <E> event / payload type
+ */
+public final class StoredStateMachine<S, E> {
+
+    private final StateMachine<S, E> fsm;
+    private final StateStore store;
+    private final ToLongFunction<? super E> keyOf;
+
+    /**
+     * @param fsm   compiled machine whose state codes are the store's ordinals
+     * @param keyOf entity key of an event, e.g. a numeric ClOrdID
+     */
+    public StoredStateMachine(StateMachine<S, E> fsm, StateStore store, ToLongFunction<? super E> keyOf) {
+        if (!fsm.isCompiled())
+            throw new IllegalArgumentException("StoredStateMachine needs a compiled StateMachine");
+        this.fsm = fsm;
+        this.store = Objects.requireNonNull(store);
+        this.keyOf = Objects.requireNonNull(keyOf);
+    }
+
+    /**
+     * Advance the entity owning {@code event} and return the transition's pipeline.
+     *
+     * @return {@code null} if the entity's state has no transition for the event;
+     *         nothing is stored then
+     */
+    public Pipeline<E> onEvent(E event) {
+        long key = keyOf.applyAsLong(event);
+        int s = store.state(key);
+        if (s == StateStore.MISSING) s = fsm.initialCode();
+
+        int e = fsm.eventCode(event);
+        if (!fsm.hasTransition(s, e)) return null;
+        Pipeline<E> pipeline = fsm.pipeline(s, e);
+        store.put(key, fsm.nextCode(s, e));
+        return pipeline;
+    }
+
+    /**
+     * Whether the entity owning {@code event} is stored and its state has a
+     * transition for the event.  Timeouts check this first: an entity that
+     * reached a terminal state – or moved on – ignores its stale timers.
+     */
+    public boolean accepts(E event) {
+        int s = store.state(keyOf.applyAsLong(event));
+        return s != StateStore.MISSING && fsm.hasTransition(s, fsm.eventCode(event));
+    }
+
+    /** Current state of {@code key}; the initial state if it is not stored. */
+    public S stateOf(long key) {
+        int s = store.state(key);
+        return fsm.stateOf(s == StateStore.MISSING ? fsm.initialCode() : s);
+    }
+
+    public StateStore store() {
+        return store;
+    }
+}
@@ -0,0 +1,250 @@
+package com.ubs.trading.core;
+
+import com.lmax.disruptor.dsl.ProducerType;
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.*;
+
+/** Async steps resumed through ring continuations by an {@link AsyncDispatcher}. */
+class AsyncDispatcherTest {
+
+    /* "<key>:<seq>" */
+    private static String key(String msg) {
+        return msg.substring(0, msg.indexOf(':'));
+    }
+
+    private final SimpleMeterRegistry reg = new SimpleMeterRegistry();
+    private final MetricsRecorder metrics = new MetricsRecorder(reg);
+    private final List<String> outbound = new CopyOnWriteArrayList<>();
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void stopPool() {
+        pool.shutdownNow();
+    }
+
+    private DisruptorEngine<String> engine(AsyncDispatcher<String, String> async, int ringSize) {
+        DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+                .ringSize(ringSize)
+                .daemon(true)
+                .producerType(ProducerType.MULTI)
+                .handler(async)
+                .metrics(metrics)
+                .build();
+        async.bind(engine);
+        return engine;
+    }
+
+    @Test
+    @DisplayName("Messages of one key leave in arrival order; the calls run off the consumer thread")
+    void perKeyOrder() {
+        List<String> callThreads = new CopyOnWriteArrayList<>();
+        Pipeline<String> p = Pipeline.<String>named("orders")
+                .addAction("pre", s -> s + ">a")
+                .addAsync("io", s -> {
+                    callThreads.add(Thread.currentThread().getName());
+                    LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(200_000));
+                    return s + ">b";
+                }, pool)
+                .addAction("post", s -> s + ">c");
+        AsyncDispatcher<String, String> async = AsyncDispatcher.<String, String>builder()
+                .pipeline(p)
+                .key(AsyncDispatcherTest::key)
+                .metrics(metrics, "orders")
+                .sender(outbound::add)
+                .build();
+        DisruptorEngine<String> engine = engine(async, 64);
+
+        int keys = 8, perKey = 200;
+        for (int i = 0; i < perKey; i++) {
+            for (int k = 0; k < keys; k++) engine.publish("k" + k + ':' + i);
+        }
+        Awaitility.await().atMost(Duration.ofSeconds(10))
+                .until(() -> outbound.size() == keys * perKey && async.inFlight() == 0);
+        engine.shutdown();
+
+        for (int k = 0; k < keys; k++) {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < perKey; i++) expected.add("k" + k + ':' + i + ">a>b>c");
+            String key = "k" + k;
+            assertThat(outbound.stream().filter(m -> key(m).equals(key)).toList())
+                    .containsExactlyElementsOf(expected);
+        }
+        assertThat(async.calls()).isEqualTo(keys * perKey);
+        assertThat(async.failed()).isZero();
+        assertThat(callThreads).noneMatch(t -> t.startsWith("disruptor"));
+        assertThat(reg.get("msg.async.calls").tag("dispatcher", "orders").functionCounter().count())
+                .isEqualTo(keys * perKey);
+    }
+
+    @Test
+    @DisplayName("No more than maxInFlight messages are parked, even when completions cannot be re-injected")
+    void inFlightBounded() {
+        ConcurrentLinkedQueue<CompletableFuture<String>> pending = new ConcurrentLinkedQueue<>();
+        Pipeline<String> p = Pipeline.<String>named("bounded")
+                .addAsync("io", s -> {
+                    CompletableFuture<String> f = new CompletableFuture<>();
+                    pending.add(f);
+                    return f.thenApply(r -> r + "!");
+                });
+        AsyncDispatcher<String, String> async = AsyncDispatcher.<String, String>builder()
+                .pipeline(p)
+                .key(s -> s)                                          // every message its own key
+                .maxInFlight(4)
+                .metrics(metrics, "bounded")
+                .sender(outbound::add)
+                .build();
+        DisruptorEngine<String> engine = engine(async, 8);
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 100; i++) engine.publish(Integer.toString(i));
+        });
+        producer.start();
+
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> async.inFlight() == 4);
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (outbound.size() < 100 && System.nanoTime() < deadline) {
+            assertThat(async.inFlight()).isLessThanOrEqualTo(4);
+            CompletableFuture<String> f = pending.poll();
+            if (f != null) f.complete("m");
+            else LockSupport.parkNanos(100_000);
+        }
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> async.inFlight() == 0);
+        engine.shutdown();
+
+        assertThat(outbound).hasSize(100).allMatch("m!"::equals);
+    }
+
+    @Test
+    @DisplayName("A failed call drops its message under short-circuit; later messages of the key still run")
+    void failureCounted() {
+        Pipeline<String> p = Pipeline.<String>named("failing")
+                .addAsync("io", s -> s.endsWith(":1")
+                        ? CompletableFuture.failedFuture(new IllegalStateException("down"))
+                        : CompletableFuture.supplyAsync(() -> s + "+", pool));
+        AsyncDispatcher<String, String> async = AsyncDispatcher.<String, String>builder()
+                .pipeline(p)
+                .key(AsyncDispatcherTest::key)
+                .metrics(metrics, "failing")
+                .sender(outbound::add)
+                .build();
+        DisruptorEngine<String> engine = engine(async, 16);
+
+        for (int i = 0; i < 4; i++) engine.publish("k:" + i);
+        Awaitility.await().atMost(Duration.ofSeconds(2))
+                .until(() -> outbound.size() == 3 && async.inFlight() == 0);
+        engine.shutdown();
+
+        assertThat(outbound).containsExactly("k:0+", "k:2+", "k:3+");
+        assertThat(async.failed()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A Dispatcher in front of the async stage skips its continuation events")
+    void continuationsSkippedUpstream() {
+        List<String> audited = new CopyOnWriteArrayList<>();
+        Pipeline<String> p = Pipeline.<String>named("io")
+                .addAsync("io", s -> CompletableFuture.supplyAsync(() -> s + "+", pool));
+        AsyncDispatcher<String, String> async = AsyncDispatcher.<String, String>builder()
+                .pipeline(p)
+                .key(AsyncDispatcherTest::key)
+                .metrics(metrics, "behind")
+                .sender(outbound::add)
+                .build();
+        DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+                .ringSize(64)
+                .daemon(true)
+                .producerType(ProducerType.MULTI)
+                .handler(new Dispatcher<>(Pipeline.<String>named("audit"), metrics, audited::add))
+                .then(async)
+                .metrics(metrics)
+                .build();
+        async.bind(engine);
+
+        for (int i = 0; i < 50; i++) engine.publish("k" + (i % 3) + ':' + i);
+        Awaitility.await().atMost(Duration.ofSeconds(5))
+                .until(() -> outbound.size() == 50 && async.inFlight() == 0);
+        engine.shutdown();
+
+        assertThat(audited).hasSize(50).doesNotHaveDuplicates();
+        assertThat(outbound).allMatch(m -> m.endsWith("+"));
+    }
+
+    @Test
+    @DisplayName("Parallel async dispatchers on one engine resume only their own continuations")
+    void parallelDispatchersKeepTheirContinuations() {
+        List<String> risk = new CopyOnWriteArrayList<>();
+        AsyncDispatcher<String, String> orders = AsyncDispatcher.<String, String>builder()
+                .pipeline(Pipeline.<String>named("orders")
+                        .addAsync("io", s -> CompletableFuture.supplyAsync(() -> s + "+o", pool)))
+                .key(AsyncDispatcherTest::key)
+                .metrics(metrics, "orders")
+                .sender(outbound::add)
+                .build();
+        AsyncDispatcher<String, String> checks = AsyncDispatcher.<String, String>builder()
+                .pipeline(Pipeline.<String>named("risk")
+                        .addAsync("io", s -> CompletableFuture.supplyAsync(() -> s + "+r", pool)))
+                .key(AsyncDispatcherTest::key)
+                .metrics(metrics, "risk")
+                .sender(risk::add)
+                .build();
+        DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+                .ringSize(64)
+                .daemon(true)
+                .producerType(ProducerType.MULTI)
+                .handlers(orders, checks)
+                .metrics(metrics)
+                .build();
+        orders.bind(engine);
+        checks.bind(engine);
+
+        for (int i = 0; i < 200; i++) engine.publish("k" + (i % 4) + ':' + i);
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> outbound.size() == 200 && risk.size() == 200
+                && orders.inFlight() == 0 && checks.inFlight() == 0);
+        engine.shutdown();
+
+        assertThat(outbound).allMatch(m -> m.endsWith("+o")).doesNotHaveDuplicates();
+        assertThat(risk).allMatch(m -> m.endsWith("+r")).doesNotHaveDuplicates();
+        assertThat(orders.failed()).isZero();
+        assertThat(checks.failed()).isZero();
+    }
+
+    @Test
+    @DisplayName("Async pipelines need a MULTI engine and cannot be executed inline")
+    void wiringChecks() {
+        Pipeline<String> p = Pipeline.<String>named("async")
+                .addAsync("io", CompletableFuture::completedFuture);
+        assertThatThrownBy(() -> p.execute("x")).isInstanceOf(IllegalStateException.class);
+
+        AsyncDispatcher<String, String> async = AsyncDispatcher.<String, String>builder()
+                .pipeline(p)
+                .key(s -> s)
+                .metrics(metrics, "async")
+                .sender(outbound::add)
+                .build();
+        DisruptorEngine<String> single = DisruptorEngine.<String>builder()
+                .daemon(true)
+                .handler(async)
+                .metrics(metrics)
+                .build();
+        assertThatThrownBy(() -> async.bind(single)).isInstanceOf(IllegalArgumentException.class);
+        single.shutdown();
+    }
+}
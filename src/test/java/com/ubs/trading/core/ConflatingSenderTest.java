@@ -0,0 +1,173 @@
+package com.ubs.trading.core;
+
+import com.ubs.trading.metrics.MetricsRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BinaryOperator;
+
+import static org.assertj.core.api.Assertions.*;
+
+/** Per-key conflation in front of a slow downstream sender. */
+class ConflatingSenderTest {
+
+    record Tick(int symbol, long price, long volume) {}
+
+    private final SimpleMeterRegistry reg = new SimpleMeterRegistry();
+    private final MetricsRecorder metrics = new MetricsRecorder(reg);
+    private final List<Tick> delivered = new CopyOnWriteArrayList<>();
+
+    private ConflatingSender<Tick> sender(CountDownLatch gate, BinaryOperator<Tick> merge) {
+        return ConflatingSender.<Tick>builder()
+                .keys(10)
+                .key(Tick::symbol)
+                .merge(merge)
+                .downstream(t -> {
+                    awaitQuietly(gate);
+                    delivered.add(t);
+                })
+                .metrics(metrics, "md")
+                .build();
+    }
+
+    @Test
+    @DisplayName("A lagging downstream receives only the freshest tick per symbol")
+    void lagConflatesToLatest() {
+        CountDownLatch gate = new CountDownLatch(1);
+        ConflatingSender<Tick> sender = sender(gate, null);
+
+        sender.send(new Tick(0, -1, 0));                            // occupies the downstream
+        for (int i = 0; i < 1_000; i++) sender.send(new Tick(i % 10, i, 1));
+        gate.countDown();
+        Awaitility.await().atMost(Duration.ofSeconds(2))
+                .until(() -> sender.delivered() + sender.conflated() == sender.received());
+        sender.close();
+
+        Map<Integer, Long> latest = new ConcurrentHashMap<>();
+        delivered.forEach(t -> latest.put(t.symbol(), t.price()));
+        for (int s = 0; s < 10; s++) assertThat(latest.get(s)).isEqualTo(990L + s);
+
+        assertThat(delivered.size()).isLessThanOrEqualTo(1 + 10);
+        assertThat(sender.conflated()).isGreaterThanOrEqualTo(1_001 - 11);
+        assertThat(reg.get("msg.conflated").tag("sender", "md").functionCounter().count())
+                .isEqualTo((double) sender.conflated());
+        assertThat(reg.get("msg.conflation.delivered").tag("sender", "md").functionCounter().count())
+                .isEqualTo((double) delivered.size());
+    }
+
+    @Test
+    @DisplayName("A merge function accumulates conflated updates")
+    void mergeAccumulates() {
+        CountDownLatch gate = new CountDownLatch(1);
+        ConflatingSender<Tick> sender =
+                sender(gate, (old, neu) -> new Tick(neu.symbol(), neu.price(), old.volume() + neu.volume()));
+
+        sender.send(new Tick(9, 0, 0));
+        for (int i = 1; i <= 100; i++) sender.send(new Tick(3, i, i));
+        gate.countDown();
+        sender.close();                                             // delivers what is pending
+
+        long volume = delivered.stream().filter(t -> t.symbol() == 3).mapToLong(Tick::volume).sum();
+        assertThat(volume).isEqualTo(5_050);
+        assertThat(delivered.get(delivered.size() - 1).price()).isEqualTo(100);
+    }
+
+    @Test
+    @DisplayName("Without lag nothing is conflated")
+    void keepingUpDeliversEverything() {
+        ConflatingSender<Tick> sender = sender(new CountDownLatch(0), null);
+
+        for (int i = 0; i < 100; i++) {
+            sender.send(new Tick(1, i, 1));
+            long expected = i + 1;
+            Awaitility.await().atMost(Duration.ofSeconds(1)).until(() -> sender.delivered() == expected);
+        }
+        sender.close();
+
+        assertThat(sender.conflated()).isZero();
+        assertThat(delivered).hasSize(100);
+        assertThatThrownBy(() -> sender.send(new Tick(10, 0, 0)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("A throwing downstream is counted and does not stop delivery")
+    void downstreamFailureCounted() {
+        ConflatingSender<Tick> sender = ConflatingSender.<Tick>builder()
+                .keys(10)
+                .key(Tick::symbol)
+                .downstream(t -> {
+                    if (t.price() < 0) throw new IllegalStateException("socket closed");
+                    delivered.add(t);
+                })
+                .metrics(metrics, "md")
+                .build();
+
+        sender.send(new Tick(1, -1, 0));
+        Awaitility.await().atMost(Duration.ofSeconds(1)).until(() -> sender.failed() == 1);
+        sender.send(new Tick(1, 7, 0));
+        sender.send(new Tick(2, 8, 0));
+        Awaitility.await().atMost(Duration.ofSeconds(1)).until(() -> delivered.size() == 2);
+        sender.close();
+
+        assertThat(delivered).containsExactly(new Tick(1, 7, 0), new Tick(2, 8, 0));
+        assertThat(reg.get("msg.conflation.failed").tag("sender", "md").functionCounter().count())
+                .isEqualTo(1.0);
+    }
+
+    /** Reused like a resident ring payload. */
+    static final class MutableTick {
+        int symbol;
+        long price;
+    }
+
+    @Test
+    @DisplayName("A copy function detaches reused messages from the sender's slots")
+    void copyDetachesReusedMessages() {
+        CountDownLatch gate = new CountDownLatch(1);
+        List<Long> prices = new CopyOnWriteArrayList<>();
+        ConflatingSender<MutableTick> sender = ConflatingSender.<MutableTick>builder()
+                .keys(4)
+                .key(t -> t.symbol)
+                .copy(t -> {
+                    MutableTick c = new MutableTick();
+                    c.symbol = t.symbol;
+                    c.price = t.price;
+                    return c;
+                })
+                .downstream(t -> {
+                    awaitQuietly(gate);
+                    prices.add(t.price);
+                })
+                .build();
+
+        MutableTick slot = new MutableTick();
+        slot.symbol = 1;
+        slot.price = 10;
+        sender.send(slot);
+        slot.symbol = 2;                                            // the slot is reused at once
+        slot.price = 20;
+        sender.send(slot);
+        slot.price = -1;
+        gate.countDown();
+        sender.close();
+
+        assertThat(prices).containsExactly(10L, 20L);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,13 +2,17 @@ package com.ubs.trading.core;
 
 import com.ubs.trading.metrics.MetricsRecorder;
 import com.ubs.trading.pipeline.Pipeline;
+import com.ubs.trading.pipeline.PipelineRouter;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class DispatcherTest {
 
@@ -39,4 +43,63 @@ class DispatcherTest {
         /* 6. Verify */
         assertThat(captured.get()).isEqualTo("test-X");
     }
+
+    @Test
+    @DisplayName("Batching sender is flushed at end of batch and at its size bound")
+    void batchingSenderFlushesPerBatch() {
+        MetricsRecorder metrics = new MetricsRecorder(new SimpleMeterRegistry());
+        List<List<String>> flushed = new ArrayList<>();
+
+        Dispatcher.BatchingMessageSender<String> sender = new Dispatcher.BatchingMessageSender<>() {
+            private final List<String> buffer = new ArrayList<>();
+            @Override public void send(String msg) { buffer.add(msg); }
+            @Override public void flush() { flushed.add(List.copyOf(buffer)); buffer.clear(); }
+            @Override public int maxBatchSize() { return 3; }
+        };
+        Dispatcher<Void, String> dispatcher =
+                new Dispatcher<>(Pipeline.build("id", true, s -> s), metrics, sender);
+
+        /* one Disruptor batch of 5, then a batch of 1 */
+        String[] burst = {"a", "b", "c", "d", "e", "f"};
+        boolean[] endOfBatch = {false, false, false, false, true, true};
+        EventEnvelope<String> env = new EventEnvelope<>();
+        for (int i = 0; i < burst.length; i++) {
+            env.set(burst[i], System.nanoTime());
+            dispatcher.onEvent(env, i, endOfBatch[i]);
+        }
+
+        assertThat(flushed).containsExactly(
+                List.of("a", "b", "c"), List.of("d", "e"), List.of("f"));
+        assertThat(metrics.sendBatchSizes().snapshot().count()).isEqualTo(3);
+        assertThat(metrics.sendBatchSizes().snapshot().max()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Router mode picks a pipeline by extracted key and falls back instead of throwing")
+    void routerSelectsByKey() {
+        MetricsRecorder metrics = new MetricsRecorder(new SimpleMeterRegistry());
+        List<String> sent = new ArrayList<>();
+
+        /* key = FIX MsgType character at the front of the message */
+        PipelineRouter<String> router = PipelineRouter.<String>by(s -> s.charAt(0))
+                .route('D', Pipeline.build("new", true, s -> "NEW " + s))
+                .route('F', Pipeline.build("cancel", true, s -> "CXL " + s))
+                .otherwise(Pipeline.build("unrouted", true, s -> "??? " + s))
+                .build();
+        Dispatcher<Void, String> dispatcher = new Dispatcher<>(router, metrics, sent::add);
+
+        EventEnvelope<String> env = new EventEnvelope<>();
+        for (String msg : new String[] {"D1", "F2", "G3", "\u4e2d4", ""}) {
+            env.set(msg, System.nanoTime());
+            dispatcher.onEvent(env, 0, true);
+        }
+
+        /* 'G' has no route, '中' is past the table, "" makes the extractor throw */
+        assertThat(sent).containsExactly("NEW D1", "CXL F2", "??? G3", "??? \u4e2d4", "??? ");
+        assertThatThrownBy(() -> PipelineRouter.<String>by(String::length)
+                .route(-1, Pipeline.named("x")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PipelineRouter.<String>by(String::length).build())
+                .isInstanceOf(NullPointerException.class);
+    }
 }
@@ -0,0 +1,192 @@
+package com.ubs.trading.core;
+
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.*;
+
+/** Publish API and consumer topologies of {@link DisruptorEngine}. */
+class DisruptorEngineTest {
+
+    private final SimpleMeterRegistry reg = new SimpleMeterRegistry();
+    private final MetricsRecorder metrics = new MetricsRecorder(reg);
+    private final List<String> outbound = new CopyOnWriteArrayList<>();
+
+    private DisruptorEngine<String> engine(int ringSize, Dispatcher.MessageSender<String> sender) {
+        Dispatcher<Void, String> dispatcher =
+                new Dispatcher<>(Pipeline.<String>named("identity"), metrics, sender);
+        return DisruptorEngine.<String>builder()
+                .ringSize(ringSize)
+                .daemon(true)
+                .handler(dispatcher)
+                .metrics(metrics)
+                .build();
+    }
+
+    @Test
+    @DisplayName("publishBatch delivers the requested slice in order")
+    void publishBatchDeliversSliceInOrder() {
+        DisruptorEngine<String> engine = engine(16, outbound::add);
+
+        engine.publishBatch(new String[] {"skip", "a", "b", "c", "skip"}, 1, 3);
+        engine.publishBatch(List.of("d", "e"), 0, 2);
+        engine.shutdown();
+
+        assertThat(outbound).containsExactly("a", "b", "c", "d", "e");
+    }
+
+    @Test
+    @DisplayName("tryPublish / tryPublishBatch refuse without blocking when the ring is full")
+    void tryPublishRejectsWhenFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        DisruptorEngine<String> engine = engine(4, msg -> {
+            awaitQuietly(release);                       // stall the consumer
+            outbound.add(msg);
+        });
+
+        assertThat(engine.tryPublishBatch(new String[] {"1", "2", "3", "4"}, 0, 4)).isTrue();
+        assertThat(engine.remainingCapacity()).isZero();
+
+        assertThat(engine.tryPublish("5")).isFalse();
+        assertThat(engine.tryPublishBatch(List.of("6", "7"), 0, 2)).isFalse();
+        assertThat(reg.get("msg.rejected").counter().count()).isEqualTo(3.0);
+
+        release.countDown();
+        Awaitility.await().atMost(Duration.ofSeconds(2))
+                .untilAsserted(() -> assertThat(outbound).containsExactly("1", "2", "3", "4"));
+        engine.shutdown();
+    }
+
+    @Test
+    @DisplayName("Batches larger than the ring are refused up front")
+    void oversizedBatchThrows() {
+        DisruptorEngine<String> engine = engine(4, outbound::add);
+
+        assertThatThrownBy(() -> engine.publishBatch(new String[8], 0, 8))
+                .isInstanceOf(IllegalArgumentException.class);
+        engine.shutdown();
+    }
+
+    @Test
+    @DisplayName("then() chains stages: transform, parallel observers, then a joined sender")
+    void diamondTopology() {
+        List<String> journal = new CopyOnWriteArrayList<>();
+        List<String> risk = new CopyOnWriteArrayList<>();
+        Dispatcher<Void, String> sender =
+                new Dispatcher<>(Pipeline.<String>named("send"), metrics, outbound::add);
+
+        DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+                .ringSize(8)
+                .daemon(true)
+                .handler(PipelineStage.transform(Pipeline.build("decode", true, s -> "D" + s)))
+                .then(PipelineStage.observe(Pipeline.build("journal", true, s -> { journal.add(s); return s; })),
+                      PipelineStage.observe(Pipeline.build("risk", true, s -> { risk.add(s); return s; })))
+                .then(sender)
+                .metrics(metrics)
+                .build();
+
+        for (int i = 0; i < 100; i++) engine.publish(Integer.toString(i));
+        engine.shutdown();
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) expected.add("D" + i);
+        assertThat(journal).containsExactlyElementsOf(expected);
+        assertThat(risk).containsExactlyElementsOf(expected);
+        assertThat(outbound).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    @DisplayName("A payload-writing stage may not run in parallel with other handlers")
+    void parallelWriterRejected() {
+        PipelineStage<String> writer = PipelineStage.transform(Pipeline.named("w"));
+        PipelineStage<String> reader = PipelineStage.observe(Pipeline.named("r"));
+
+        assertThatThrownBy(() -> DisruptorEngine.<String>builder()
+                .handler(reader)
+                .then(writer, reader)
+                .metrics(metrics)
+                .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("writes the payload");
+    }
+
+    @Test
+    @DisplayName("Worker pool handles each event once on several threads; a then() stage resequences")
+    void workerPoolResequenced() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        Pipeline<String> work = Pipeline.build("work", true, s -> {
+            threads.add(Thread.currentThread().getName());
+            return "W" + s;
+        });
+
+        DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+                .ringSize(64)
+                .daemon(true)
+                .threadName("pool")
+                .workerPool(4, work)
+                .then(new Dispatcher<>(Pipeline.<String>named("resequence"), metrics, outbound::add))
+                .metrics(metrics)
+                .build();
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            engine.publish(Integer.toString(i));
+            expected.add("W" + i);
+        }
+        engine.shutdown();
+
+        assertThat(outbound).containsExactlyElementsOf(expected);
+        assertThat(threads).isNotEmpty().allMatch(t -> t.startsWith("pool-"));
+    }
+
+    @Test
+    @DisplayName("Terminal worker pool sends every result exactly once, in any order")
+    void workerPoolUnordered() {
+        DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+                .ringSize(64)
+                .daemon(true)
+                .workerPool(3, Pipeline.build("work", true, s -> "W" + s), outbound::add)
+                .metrics(metrics)
+                .build();
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            engine.publish(Integer.toString(i));
+            expected.add("W" + i);
+        }
+        engine.shutdown();
+
+        assertThat(outbound).containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(metrics.endToEnd().snapshot().count()).isEqualTo(500);
+    }
+
+    @Test
+    @DisplayName("A write-back worker pool needs a stage after it")
+    void danglingWorkerPoolRejected() {
+        assertThatThrownBy(() -> DisruptorEngine.<String>builder()
+                .workerPool(2, Pipeline.named("w"))
+                .metrics(metrics)
+                .build())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
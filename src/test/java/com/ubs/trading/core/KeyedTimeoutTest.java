@@ -0,0 +1,117 @@
+package com.ubs.trading.core;
+
+import com.ubs.trading.core.DisruptorEngine.WaitStrategyType;
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+import com.ubs.trading.statemachine.StateMachine;
+import com.ubs.trading.statemachine.TimerWheel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Timeouts driven through a {@link KeyedDispatcher} by a {@link TimerWheel}. */
+class KeyedTimeoutTest {
+
+    /* events are equal when the type matches – the id only routes */
+    record Rfq(long id, char type) {
+        @Override public boolean equals(Object o) {
+            return o instanceof Rfq r && r.type == type;
+        }
+        @Override public int hashCode() {
+            return Character.hashCode(type);
+        }
+    }
+
+    private enum RfqState { NEW, QUOTED, DONE, EXPIRED }
+
+    private static final char REQUEST = 'R';
+    private static final char ACCEPT = 'A';
+    private static final char EXPIRE = 'X';
+
+    private final SimpleMeterRegistry reg = new SimpleMeterRegistry();
+    private final MetricsRecorder metrics = new MetricsRecorder(reg);
+    private final List<String> outbound = new CopyOnWriteArrayList<>();
+
+    private final TimerWheel timers = TimerWheel.builder().tick(Duration.ofMillis(1)).capacity(64).build();
+    private final Map<Long, Long> quoteTimers = new HashMap<>();     // consumer thread only
+
+    @Test
+    @DisplayName("An unanswered quote expires through its own transition; an accepted one is cancelled")
+    void quoteExpiry() {
+        Pipeline<Rfq> quote = Pipeline.build("quote", true, r -> {
+            quoteTimers.put(r.id(), timers.schedule(r.id(), EXPIRE, System.nanoTime() + 20_000_000));
+            return r;
+        });
+        Pipeline<Rfq> accept = Pipeline.build("accept", true, r -> {
+            timers.cancel(quoteTimers.remove(r.id()));
+            return r;
+        });
+        Pipeline<Rfq> expire = Pipeline.build("expire", true, r -> r);
+
+        StateMachine<RfqState, Rfq> fsm = new StateMachine<RfqState, Rfq>(RfqState.NEW)
+                .add(RfqState.NEW, new Rfq(0, REQUEST), RfqState.QUOTED, quote)
+                .add(RfqState.QUOTED, new Rfq(0, ACCEPT), RfqState.DONE, accept)
+                .add(RfqState.QUOTED, new Rfq(0, EXPIRE), RfqState.EXPIRED, expire);
+
+        KeyedDispatcher<Long, RfqState, Rfq> dispatcher =
+                new KeyedDispatcher<>(Rfq::id, fsm, metrics, (Rfq r) -> outbound.add(r.id() + ":" + r.type()))
+                        .timers(timers, (key, kind) -> new Rfq(key, (char) kind));
+        timers.schedule(99, EXPIRE, 0);                // entity never seen: ignored
+        timers.registerMetrics(metrics, "rfq");
+
+        DisruptorEngine<Rfq> engine = DisruptorEngine.<Rfq>builder()
+                .daemon(true)
+                .waitStrategy(WaitStrategyType.TIMEOUT_BLOCKING)   // ticks the wheel while idle
+                .handler(dispatcher)
+                .metrics(metrics)
+                .build();
+
+        engine.publish(new Rfq(1, REQUEST));
+        engine.publish(new Rfq(2, REQUEST));
+        engine.publish(new Rfq(2, ACCEPT));
+
+        Awaitility.await().atMost(Duration.ofSeconds(2))
+                .untilAsserted(() -> assertThat(outbound).contains("1:X"));
+        engine.publish(new Rfq(1, ACCEPT));            // too late: EXPIRED has no transition
+        engine.shutdown();
+
+        assertThat(outbound).containsExactly("1:R", "2:R", "2:A", "1:X");
+        assertThat(dispatcher.stateOf(1L)).isEqualTo(RfqState.EXPIRED);
+        assertThat(dispatcher.stateOf(2L)).isEqualTo(RfqState.DONE);
+        assertThat(dispatcher.timeoutsFired()).isEqualTo(1);
+        assertThat(dispatcher.timeoutsIgnored()).isEqualTo(1);
+        assertThat(dispatcher.eventsIgnored()).isEqualTo(1);
+        assertThat(timers.cancelledCount()).isEqualTo(1);
+        assertThat(timers.size()).isZero();
+        assertThat(reg.get("timer.wheel.cancelled").tag("wheel", "rfq").functionCounter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("A timer-driven dispatcher is refused by an engine whose wait strategy never times out")
+    void needsTimeoutStrategy() {
+        StateMachine<RfqState, Rfq> fsm = new StateMachine<RfqState, Rfq>(RfqState.NEW)
+                .add(RfqState.NEW, new Rfq(0, REQUEST), RfqState.QUOTED, Pipeline.build("quote", true, r -> r));
+        KeyedDispatcher<Long, RfqState, Rfq> dispatcher =
+                new KeyedDispatcher<>(Rfq::id, fsm, metrics, (Rfq r) -> outbound.add(r.id() + ":" + r.type()))
+                        .timers(timers, (key, kind) -> new Rfq(key, (char) kind));
+
+        assertThatThrownBy(() -> DisruptorEngine.<Rfq>builder()
+                .daemon(true)
+                .waitStrategy(WaitStrategyType.BLOCKING)
+                .handler(dispatcher)
+                .metrics(metrics)
+                .build()).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("TIMEOUT_BLOCKING");
+    }
+}
@@ -0,0 +1,115 @@
+package com.ubs.trading.core;
+
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+import com.ubs.trading.statemachine.StateMachine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Per-key state and ordering across {@link PartitionedEngine} partitions. */
+class PartitionedEngineTest {
+
+    /* events are equal when the exec type matches – the ClOrdID only routes */
+    record Exec(String clOrdId, char execType) {
+        @Override public boolean equals(Object o) {
+            return o instanceof Exec e && e.execType == execType;
+        }
+        @Override public int hashCode() {
+            return Character.hashCode(execType);
+        }
+    }
+
+    private enum OrdState { NEW, PART_FILLED, FILLED }
+
+    private static final Pipeline<Exec> PASS = Pipeline.build("pass", true, e -> e);
+
+    private static StateMachine<OrdState, Exec> fsm() {
+        return new StateMachine<OrdState, Exec>(OrdState.NEW)
+                .add(OrdState.NEW,         new Exec("", '0'), OrdState.PART_FILLED, PASS)
+                .add(OrdState.PART_FILLED, new Exec("", '1'), OrdState.PART_FILLED, PASS)
+                .add(OrdState.PART_FILLED, new Exec("", '2'), OrdState.FILLED,      PASS);
+    }
+
+    @Test
+    @DisplayName("Each ClOrdID follows its own state machine, in order, across partitions")
+    void independentStatePerKey() {
+        MetricsRecorder metrics = new MetricsRecorder(new SimpleMeterRegistry());
+        Map<String, List<Character>> outbound = new ConcurrentHashMap<>();
+        Dispatcher.MessageSender<Exec> sender = e ->
+                outbound.computeIfAbsent(e.clOrdId(), k -> new CopyOnWriteArrayList<>()).add(e.execType());
+
+        StateMachine<OrdState, Exec> template = fsm();
+        List<KeyedDispatcher<String, OrdState, Exec>> handlers = new CopyOnWriteArrayList<>();
+
+        PartitionedEngine<String, Exec> engine = PartitionedEngine.<String, Exec>builder()
+                .partitions(4)
+                .ringSize(256)
+                .keyExtractor(Exec::clOrdId)
+                .handlers(p -> {
+                    KeyedDispatcher<String, OrdState, Exec> h =
+                            new KeyedDispatcher<>(Exec::clOrdId, template, metrics, sender);
+                    handlers.add(h);
+                    return h;
+                })
+                .metrics(metrics)
+                .build();
+
+        /* interleave 100 orders: NEW for all, then a partial, then fills for even ids */
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) ids.add("ORD-" + i);
+
+        ids.forEach(id -> engine.publish(new Exec(id, '0')));
+        ids.forEach(id -> engine.publish(new Exec(id, '1')));
+        for (int i = 0; i < ids.size(); i += 2) engine.publish(new Exec(ids.get(i), '2'));
+
+        engine.shutdown();
+
+        assertThat(handlers).hasSize(4);
+        for (int i = 0; i < ids.size(); i++) {
+            String id = ids.get(i);
+            KeyedDispatcher<String, OrdState, Exec> owner = handlers.get(engine.partitionOf(id));
+            boolean filled = i % 2 == 0;
+
+            assertThat(owner.stateOf(id)).isEqualTo(filled ? OrdState.FILLED : OrdState.PART_FILLED);
+            assertThat(outbound.get(id)).containsExactlyElementsOf(
+                    filled ? List.of('0', '1', '2') : List.of('0', '1'));
+        }
+        assertThat(handlers.stream().mapToInt(KeyedDispatcher::entityCount).sum()).isEqualTo(100);
+        assertThat(template.state()).isEqualTo(OrdState.NEW);       // template never advances
+    }
+
+    @Test
+    @DisplayName("A partition that fails to build stops the ones already running")
+    void failedBuildStopsEarlierPartitions() {
+        MetricsRecorder metrics = new MetricsRecorder(new SimpleMeterRegistry());
+        StateMachine<OrdState, Exec> template = fsm();
+
+        assertThatThrownBy(() -> PartitionedEngine.<String, Exec>builder()
+                .partitions(4)
+                .threadName("broken")
+                .daemon(true)
+                .keyExtractor(Exec::clOrdId)
+                .handlers(p -> {
+                    if (p == 2) throw new IllegalStateException("no handler for partition 2");
+                    return new KeyedDispatcher<>(Exec::clOrdId, template, metrics, e -> { });
+                })
+                .metrics(metrics)
+                .build())
+                .isInstanceOf(IllegalStateException.class);
+
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> Thread.getAllStackTraces().keySet().stream()
+                .noneMatch(t -> t.getName().startsWith("broken-p")));
+    }
+}
@@ -0,0 +1,110 @@
+package com.ubs.trading.core;
+
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+/** Zero-allocation mode: ring-resident mutable payloads. */
+class ResidentPayloadTest {
+
+    /** Mutable quote living in a ring slot. */
+    static final class Quote {
+        long instrument;
+        long bid;
+        long ask;
+    }
+
+    private static final int RING = 64;
+
+    private static final DisruptorEngine.PayloadTranslator<Quote, long[]> FILL = (q, src) -> {
+        q.instrument = src[0];
+        q.bid = src[1];
+        q.ask = src[2];
+    };
+
+    private static final Pipeline<Quote> WIDEN = Pipeline.buildInPlace("widen", true,
+            q -> q.bid -= 1,
+            q -> q.ask += 1);
+
+    private DisruptorEngine<Quote> engine(Dispatcher.MessageSender<Quote> sender) {
+        MetricsRecorder metrics = new MetricsRecorder(new SimpleMeterRegistry());
+        return DisruptorEngine.<Quote>builder()
+                .ringSize(RING)
+                .payloadFactory(Quote::new)
+                .waitStrategy(DisruptorEngine.WaitStrategyType.YIELDING)   // no lock on publish
+                .daemon(true)
+                .handler(new Dispatcher<>(WIDEN, metrics, sender))
+                .metrics(metrics)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Translator fills slots, in-place stages mutate, slots are reused")
+    void residentPayloadsAreFilledAndReused() {
+        Set<Quote> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        AtomicLong spreadSum = new AtomicLong();
+
+        DisruptorEngine<Quote> engine = engine(q -> {
+            seen.add(q);                                  // consumer thread only
+            spreadSum.addAndGet(q.ask - q.bid);
+        });
+
+        long[] src = new long[3];
+        for (int i = 0; i < 1_000; i++) {
+            src[0] = i; src[1] = 100; src[2] = 102;
+            engine.publish(FILL, src);
+        }
+        engine.shutdown();
+
+        assertThat(spreadSum.get()).isEqualTo(1_000L * 4);          // 2 + 1 + 1 per quote
+        assertThat(seen.size()).isLessThanOrEqualTo(RING);
+    }
+
+    @Test
+    @DisplayName("Object publish is refused on a resident-payload engine")
+    void objectPublishIsRejected() {
+        DisruptorEngine<Quote> engine = engine(q -> { });
+
+        assertThatThrownBy(() -> engine.publish(new Quote()))
+                .isInstanceOf(IllegalStateException.class);
+        engine.shutdown();
+    }
+
+    @Test
+    @DisplayName("Steady-state translator publish allocates nothing per message")
+    void producerPathDoesNotAllocate() {
+        AtomicLong received = new AtomicLong();
+        DisruptorEngine<Quote> engine = engine(q -> received.incrementAndGet());
+        long[] src = {1, 100, 102};
+
+        for (int i = 0; i < 50_000; i++) engine.publish(FILL, src);          // warm-up / JIT
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(tid);
+
+        final int N = 50_000;
+        for (int i = 0; i < N; i++) engine.publish(FILL, src);
+
+        long allocated = threads.getThreadAllocatedBytes(tid) - before;
+        Awaitility.await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertThat(received.get()).isEqualTo(100_000L));
+        engine.shutdown();
+
+        /* one boxed Long or envelope per message would already be ≥ 16 bytes × N */
+        assertThat(allocated).isLessThan(N);
+    }
+}
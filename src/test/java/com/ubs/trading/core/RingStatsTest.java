@@ -0,0 +1,215 @@
+package com.ubs.trading.core;
+
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.*;
+
+/** Ring gauges and the stall watchdog of {@link DisruptorEngine}. */
+class RingStatsTest {
+
+    private static final String HANDLER = "s0.h0-Dispatcher";
+
+    private final SimpleMeterRegistry reg = new SimpleMeterRegistry();
+    private final MetricsRecorder metrics = new MetricsRecorder(reg);
+    private final List<String> outbound = new CopyOnWriteArrayList<>();
+
+    private double gauge(String name) {
+        return reg.get(name).tag("ring", "stats").gauge().value();
+    }
+
+    private double handlerGauge(String name) {
+        return reg.get(name).tag("ring", "stats").tag("handler", HANDLER).gauge().value();
+    }
+
+    @Test
+    @DisplayName("Capacity, lag and batch sizes follow the traffic")
+    void occupancyAndLag() {
+        CountDownLatch release = new CountDownLatch(1);
+        DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+                .ringSize(16)
+                .daemon(true)
+                .threadName("stats")
+                .handler(new Dispatcher<>(Pipeline.<String>named("gated"), metrics, msg -> {
+                    awaitQuietly(release);
+                    outbound.add(msg);
+                }))
+                .metrics(metrics)
+                .build();
+
+        assertThat(gauge("ring.remaining.capacity")).isEqualTo(16.0);
+
+        for (int i = 0; i < 5; i++) engine.publish(Integer.toString(i));
+        assertThat(gauge("ring.remaining.capacity")).isEqualTo(11.0);
+        assertThat(gauge("ring.backlog")).isEqualTo(5.0);
+        assertThat(handlerGauge("ring.consumer.lag")).isEqualTo(5.0);
+
+        release.countDown();
+        Awaitility.await().atMost(Duration.ofSeconds(2))
+                .untilAsserted(() -> assertThat(handlerGauge("ring.consumer.lag")).isZero());
+        assertThat(gauge("ring.remaining.capacity")).isEqualTo(16.0);
+        assertThat(outbound).hasSize(5);
+
+        metrics.publish();
+        double batches = reg.get("ring.batch.size.count").tag("handler", HANDLER).functionCounter().count();
+        assertThat(batches).isBetween(1.0, 5.0);   // the first batch may be 1, the rest drained together
+        assertThat(handlerGauge("ring.handler.busy.ratio")).isBetween(0.0, 1.0);
+        engine.shutdown();
+    }
+
+    @Test
+    @DisplayName("A consumer that stops advancing is flagged once, and cleared when it resumes")
+    void stallDetected() {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> stalls = new CopyOnWriteArrayList<>();
+        DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+                .ringSize(16)
+                .daemon(true)
+                .threadName("stats")
+                .handler(new Dispatcher<>(Pipeline.<String>named("gated"), metrics, msg -> {
+                    awaitQuietly(release);
+                    outbound.add(msg);
+                }))
+                .metrics(metrics)
+                .stallTimeout(Duration.ofMillis(50))
+                .onStall((handler, lag, nanos) -> stalls.add(handler + ":" + lag))
+                .build();
+
+        engine.publish("a");
+        engine.publish("b");
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> engine.isStalled(HANDLER));
+        assertThat(handlerGauge("ring.stalled")).isEqualTo(1.0);
+
+        release.countDown();
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> !engine.isStalled(HANDLER));
+        assertThat(stalls).containsExactly(HANDLER + ":2");
+        assertThat(reg.get("ring.stalls").tag("handler", HANDLER).functionCounter().count()).isEqualTo(1.0);
+        assertThat(handlerGauge("ring.stalled")).isZero();
+        engine.shutdown();
+    }
+
+    @Test
+    @DisplayName("An idle consumer is not a stalled one")
+    void idleIsNotStalled() throws Exception {
+        DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+                .daemon(true)
+                .threadName("stats")
+                .handler(new Dispatcher<>(Pipeline.<String>named("idle"), metrics, outbound::add))
+                .metrics(metrics)
+                .stallTimeout(Duration.ofMillis(20))
+                .build();
+
+        engine.publish("x");
+        Thread.sleep(150);
+        assertThat(engine.isStalled(HANDLER)).isFalse();
+        assertThat(outbound).containsExactly("x");
+        engine.shutdown();
+    }
+
+    @Test
+    @DisplayName("Only the stalled stage is flagged, not the stages waiting behind it")
+    void stallJudgedAgainstUpstream() {
+        CountDownLatch release = new CountDownLatch(1);
+        DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+                .ringSize(16)
+                .daemon(true)
+                .threadName("stats")
+                .handler(new Dispatcher<>(Pipeline.<String>named("gated"), metrics, msg -> awaitQuietly(release)))
+                .then(new Dispatcher<>(Pipeline.<String>named("after"), metrics, outbound::add))
+                .metrics(metrics)
+                .stallTimeout(Duration.ofMillis(20))
+                .build();
+
+        engine.publish("a");
+        engine.publish("b");
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> engine.isStalled(HANDLER));
+        assertThat(engine.isStalled("s1.h0-Dispatcher")).isFalse();
+        assertThat(reg.get("ring.consumer.lag").tag("handler", "s1.h0-Dispatcher").gauge().value())
+                .isEqualTo(2.0);
+
+        release.countDown();
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> outbound.size() == 2);
+        assertThat(reg.get("ring.stalls").tag("handler", "s1.h0-Dispatcher").functionCounter().count())
+                .isZero();
+        engine.shutdown();
+    }
+
+    @Test
+    @DisplayName("Two running engines cannot share a ring tag on one recorder")
+    void ringTagClaimed() {
+        DisruptorEngine<String> first = DisruptorEngine.<String>builder()
+                .daemon(true)
+                .threadName("stats")
+                .handler(new Dispatcher<>(Pipeline.<String>named("first"), metrics, outbound::add))
+                .metrics(metrics)
+                .build();
+        assertThatThrownBy(() -> DisruptorEngine.<String>builder()
+                .daemon(true)
+                .threadName("stats")
+                .handler(new Dispatcher<>(Pipeline.<String>named("second"), metrics, outbound::add))
+                .metrics(metrics)
+                .build()).isInstanceOf(IllegalStateException.class);
+
+        first.shutdown();
+        assertThat(reg.find("ring.remaining.capacity").gauge()).isNull();
+        DisruptorEngine<String> again = DisruptorEngine.<String>builder()
+                .daemon(true)
+                .threadName("stats")
+                .handler(new Dispatcher<>(Pipeline.<String>named("again"), metrics, outbound::add))
+                .metrics(metrics)
+                .build();
+        again.publish("x");
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> outbound.size() == 1);
+        assertThat(gauge("ring.remaining.capacity")).isEqualTo(1024.0);
+        again.shutdown();
+    }
+
+    @Test
+    @DisplayName("Engines from the plain constructor register no ring meters and can share a recorder")
+    void plainConstructorsShareRecorder() {
+        DisruptorEngine<String> a =
+                new DisruptorEngine<>(16, new Dispatcher<>(Pipeline.<String>named("a"), metrics, outbound::add), metrics);
+        DisruptorEngine<String> b =
+                new DisruptorEngine<>(16, new Dispatcher<>(Pipeline.<String>named("b"), metrics, outbound::add), metrics);
+        a.publish("x");
+        b.publish("y");
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> outbound.size() == 2);
+        a.shutdown();
+        b.shutdown();
+
+        assertThat(reg.find("ring.remaining.capacity").gauge()).isNull();
+    }
+
+    @Test
+    @DisplayName("ringStats(false) registers no ring meters")
+    void disabled() {
+        DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+                .daemon(true)
+                .threadName("stats")
+                .ringStats(false)
+                .handler(new Dispatcher<>(Pipeline.<String>named("plain"), metrics, outbound::add))
+                .metrics(metrics)
+                .build();
+
+        assertThat(reg.find("ring.remaining.capacity").gauge()).isNull();
+        assertThatThrownBy(() -> engine.isStalled(HANDLER)).isInstanceOf(IllegalStateException.class);
+        engine.shutdown();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.ubs.trading.fix;
+
+import com.ubs.trading.core.Dispatcher;
+import com.ubs.trading.core.DisruptorEngine;
+import com.ubs.trading.fix.FixDecoder.Status;
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import quickfix.Message;
+import quickfix.field.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.*;
+
+/** Flyweight decoding, validation and framing of {@link FixDecoder} / {@link FixIngest}. */
+class FixDecoderTest {
+
+    private static final String EXEC =
+            "35=8|49=BROKER|56=DESK|34=42|11=ORD-7|17=EX-1|150=2|39=2|55=VOD.L|54=1|38=1500.25|14=1500|151=0|31=101.5|";
+
+    /** Frames {@code body} ('|' for SOH) with a correct BodyLength and CheckSum. */
+    static byte[] fix(String body) {
+        String b = body.replace('|', '\u0001');
+        String head = "8=FIX.4.4\u00019=" + b.length() + '\u0001';
+        int sum = 0;
+        for (char c : (head + b).toCharArray()) sum += c;
+        return (head + b + "10=%03d\u0001".formatted(sum & 0xFF)).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static ByteBuffer direct(byte[] bytes) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(bytes.length);
+        buf.put(bytes).flip();
+        return buf;
+    }
+
+    @Test
+    @DisplayName("Fields are read in place from a direct buffer")
+    void decodesFields() {
+        byte[] msg = fix(EXEC);
+        FixDecoder d = new FixDecoder();
+
+        assertThat(d.wrap(direct(msg), 0, msg.length)).isEqualTo(Status.OK);
+        assertThat(d.getChar(FixTags.MSG_TYPE)).isEqualTo('8');
+        assertThat(d.getChar(FixTags.EXEC_TYPE)).isEqualTo('2');
+        assertThat(d.getLong(FixTags.MSG_SEQ_NUM)).isEqualTo(42);
+        assertThat(d.getDecimal(FixTags.ORDER_QTY, 4)).isEqualTo(15_002_500L);
+        assertThat(d.getDecimal(FixTags.LAST_PX, 1)).isEqualTo(1_015L);
+        assertThat(d.getDouble(FixTags.ORDER_QTY)).isEqualTo(1500.25);
+        assertThat(d.valueEquals(FixTags.CL_ORD_ID, "ORD-7".getBytes(StandardCharsets.US_ASCII))).isTrue();
+        assertThat(d.getString(FixTags.SYMBOL)).isEqualTo("VOD.L");
+        assertThat(d.has(FixTags.ORDER_ID)).isFalse();
+        assertThat(d.tagAt(0)).isEqualTo(FixTags.BEGIN_STRING);
+        assertThatThrownBy(() -> d.getChar(FixTags.ORDER_ID)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Numeric getters reject values without digits or with too many fractional digits")
+    void badNumbers() {
+        byte[] msg = fix("35=8|38=-|31=.|14=|44=0.0000000000000000001|6=0.000000000000000001|"
+                + "32=1000000000000000|");
+        FixDecoder d = new FixDecoder();
+        assertThat(d.wrap(ByteBuffer.wrap(msg), 0, msg.length)).isEqualTo(Status.OK);
+
+        for (int tag : new int[] {FixTags.ORDER_QTY, FixTags.LAST_PX, FixTags.CUM_QTY}) {
+            assertThatThrownBy(() -> d.getDouble(tag)).isInstanceOf(NumberFormatException.class);
+            assertThatThrownBy(() -> d.getDecimal(tag, 2)).isInstanceOf(NumberFormatException.class);
+        }
+        assertThatThrownBy(() -> d.getDouble(44)).isInstanceOf(NumberFormatException.class);
+        assertThat(d.getDecimal(44, 4)).isZero();
+        assertThat(d.getDouble(6)).isEqualTo(1e-18);
+        assertThat(d.getDecimal(32, 3)).isEqualTo(1_000_000_000_000_000_000L);
+        assertThatThrownBy(() -> d.getDecimal(32, 4)).isInstanceOf(NumberFormatException.class);
+    }
+
+    @Test
+    @DisplayName("Agrees with QuickFIX/J on a message it generated")
+    void matchesQuickFixJ() throws Exception {
+        Message m = new Message();
+        m.getHeader().setField(new BeginString("FIX.4.4"));
+        m.getHeader().setField(new MsgType(MsgType.EXECUTION_REPORT));
+        m.getHeader().setField(new SenderCompID("BROKER"));
+        m.getHeader().setField(new TargetCompID("DESK"));
+        m.getHeader().setField(new MsgSeqNum(7));
+        m.setField(new ClOrdID("ORD-9"));
+        m.setField(new ExecType('1'));                                // partial fill
+        m.setField(new OrderQty(250.5));
+        byte[] bytes = m.toString().getBytes(StandardCharsets.US_ASCII);   // sets 9= and 10=
+
+        FixDecoder d = new FixDecoder();
+        assertThat(d.wrap(ByteBuffer.wrap(bytes), 0, bytes.length)).isEqualTo(Status.OK);
+
+        Message parsed = new Message(m.toString());
+        assertThat(d.getString(FixTags.CL_ORD_ID)).isEqualTo(parsed.getString(ClOrdID.FIELD));
+        assertThat(d.getChar(FixTags.EXEC_TYPE)).isEqualTo(parsed.getChar(ExecType.FIELD));
+        assertThat(d.getDouble(FixTags.ORDER_QTY)).isEqualTo(parsed.getDouble(OrderQty.FIELD));
+        assertThat(d.getLong(FixTags.MSG_SEQ_NUM)).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("Corrupted body length, checksum and framing are reported, not thrown")
+    void validation() {
+        FixDecoder d = new FixDecoder();
+
+        byte[] ok = fix(EXEC);
+        byte[] badSum = ok.clone();
+        badSum[badSum.length - 2]++;                                // last checksum digit
+        assertThat(d.wrap(ByteBuffer.wrap(badSum), 0, badSum.length)).isEqualTo(Status.BAD_CHECKSUM);
+
+        byte[] badBody = new String(ok, StandardCharsets.US_ASCII)
+                .replace("49=BROKER", "49=BROKERS")                // body grows, 9= unchanged
+                .getBytes(StandardCharsets.US_ASCII);
+        assertThat(d.wrap(ByteBuffer.wrap(badBody), 0, badBody.length)).isEqualTo(Status.BAD_BODY_LENGTH);
+
+        byte[] noTrailer = "8=FIX.4.4\u00019=5\u000135=0\u0001".getBytes(StandardCharsets.US_ASCII);
+        assertThat(d.wrap(ByteBuffer.wrap(noTrailer), 0, noTrailer.length)).isEqualTo(Status.BAD_HEADER);
+
+        byte[] garbage = "8=FIX.4.4\u00019=5\u0001hello".getBytes(StandardCharsets.US_ASCII);
+        assertThat(d.wrap(ByteBuffer.wrap(garbage), 0, garbage.length)).isEqualTo(Status.MALFORMED);
+
+        /* a valid message after a bad one decodes cleanly – no stale tag index */
+        assertThat(d.wrap(ByteBuffer.wrap(ok), 0, ok.length)).isEqualTo(Status.OK);
+    }
+
+    /* ---------------------------------------------------------------- */
+
+    /** Ring-resident execution report. */
+    static final class Exec {
+        long orderKey;
+        char execType;
+        long qty;
+    }
+
+    @Test
+    @DisplayName("FixIngest frames a chunked stream and fills ring slots in place")
+    void ingestFillsRingInPlace() {
+        MetricsRecorder metrics = new MetricsRecorder(new SimpleMeterRegistry());
+        List<String> outbound = new CopyOnWriteArrayList<>();
+        Dispatcher.MessageSender<Exec> sender = e -> outbound.add(e.execType + ":" + e.qty);
+
+        DisruptorEngine<Exec> engine = DisruptorEngine.<Exec>builder()
+                .ringSize(16)
+                .payloadFactory(Exec::new)
+                .daemon(true)
+                .handler(new Dispatcher<>(Pipeline.<Exec>named("id"), metrics, sender))
+                .metrics(metrics)
+                .build();
+        FixIngest<Exec> ingest = new FixIngest<>(engine, (slot, fix) -> {
+            slot.orderKey = fix.valueHash(FixTags.CL_ORD_ID);
+            slot.execType = fix.getChar(FixTags.EXEC_TYPE);
+            slot.qty = fix.getDecimal(FixTags.ORDER_QTY, 0);
+        });
+
+        byte[] a = fix("35=8|11=A|150=0|38=100|");
+        byte[] bad = fix("35=8|11=B|150=0|38=200|");
+        bad[bad.length - 3] ^= 1;                                  // checksum digit
+        byte[] noQty = fix("35=8|11=C|150=0|");                    // valid, but the translator throws
+        byte[] c = fix("35=8|11=A|150=2|38=100|");
+        ByteBuffer stream = ByteBuffer.allocate(a.length + bad.length + noQty.length + c.length);
+        stream.put(a).put(bad).put(noQty).put(c);
+
+        /* deliver in two chunks split inside the last message */
+        int split = a.length + bad.length + noQty.length + 5;
+        int used = ingest.onBytes(stream, 0, split);
+        assertThat(used).isEqualTo(a.length + bad.length + noQty.length);
+        used += ingest.onBytes(stream, used, stream.capacity() - used);
+        engine.shutdown();
+
+        assertThat(used).isEqualTo(stream.capacity());
+        assertThat(ingest.accepted()).isEqualTo(2);
+        assertThat(ingest.rejected()).isEqualTo(1);
+        assertThat(ingest.failed()).isEqualTo(1);
+        assertThat(outbound).containsExactly("0:100", "2:100");
+    }
+
+    @Test
+    @DisplayName("Steady-state decode allocates nothing")
+    void decodeDoesNotAllocate() {
+        ByteBuffer buf = direct(fix(EXEC));
+        int len = buf.remaining();
+        FixDecoder d = new FixDecoder();
+        long sink = 0;
+        for (int i = 0; i < 50_000; i++) sink += decode(d, buf, len);       // warm-up / JIT
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(tid);
+
+        final int N = 50_000;
+        for (int i = 0; i < N; i++) sink += decode(d, buf, len);
+
+        long allocated = threads.getThreadAllocatedBytes(tid) - before;
+        assertThat(sink).isNotZero();
+        assertThat(allocated).isLessThan(N);
+    }
+
+    private static long decode(FixDecoder d, ByteBuffer buf, int len) {
+        if (d.wrap(buf, 0, len) != Status.OK) return 0;
+        return d.getChar(FixTags.EXEC_TYPE) + d.getDecimal(FixTags.ORDER_QTY, 4)
+                + d.valueHash(FixTags.CL_ORD_ID);
+    }
+}
@@ -0,0 +1,76 @@
+package com.ubs.trading.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ubs.trading.fix.FixDecoder;
+import com.ubs.trading.fix.FixTags;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import quickfix.FieldNotFound;
+import quickfix.InvalidMessage;
+import quickfix.Message;
+import quickfix.field.ClOrdID;
+import quickfix.field.ExecType;
+import quickfix.field.OrderQty;
+
+/**
+ * Decode cost per execution report: QuickFIX/J ({@code String} → {@code Message} → DTO, as in
+ * {@link FixFlowDemoTest}) against the flyweight {@link FixDecoder} reading a direct buffer.
+ *
+ * <p>A quick side‑by‑side; numbers are printed, not asserted. Only agreement of the two decoders is
+ * checked.
+ */
+class FixDecodeBenchmarkTest {
+
+  private static final int WARMUP = 50_000;
+  private static final int MESSAGES = 200_000;
+
+  private static final String EXEC =
+      "8=FIX.4.4|9=105|35=8|49=BROKER|56=DESK|34=42|11=ORD-7|17=EX-1|150=2|39=2|55=VOD.L|54=1"
+          + "|38=1500.25|14=1500|151=0|31=101.5|10=175|";
+
+  record ExecReportEvent(String clOrdId, char execType, double qty) {}
+
+  @Test
+  @DisplayName("Flyweight and QuickFIX/J decode the same values; ns/msg is printed")
+  void compareDecoders() throws Exception {
+    byte[] bytes = EXEC.replace('|', '\u0001').getBytes(StandardCharsets.US_ASCII);
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    FixDecoder decoder = new FixDecoder();
+
+    double qfj = 0;
+    double flyweight = 0;
+    for (int i = 0; i < WARMUP; i++) {
+      qfj += quickFixJ(bytes);
+      flyweight += flyweight(decoder, direct);
+    }
+    assertThat(flyweight).isEqualTo(qfj);
+
+    long t0 = System.nanoTime();
+    for (int i = 0; i < MESSAGES; i++) qfj += quickFixJ(bytes);
+    long t1 = System.nanoTime();
+    for (int i = 0; i < MESSAGES; i++) flyweight += flyweight(decoder, direct);
+    long t2 = System.nanoTime();
+
+    System.out.printf("%-12s %10s%n", "decoder", "ns/msg");
+    System.out.printf("%-12s %10d%n", "QuickFIX/J", (t1 - t0) / MESSAGES);
+    System.out.printf("%-12s %10d%n", "flyweight", (t2 - t1) / MESSAGES);
+  }
+
+  private static double quickFixJ(byte[] bytes) throws InvalidMessage, FieldNotFound {
+    Message m = new Message(new String(bytes, StandardCharsets.US_ASCII), false);
+    ExecReportEvent e =
+        new ExecReportEvent(
+            m.getString(ClOrdID.FIELD), m.getChar(ExecType.FIELD), m.getDouble(OrderQty.FIELD));
+    return e.execType() + e.qty() + e.clOrdId().length();
+  }
+
+  private static double flyweight(FixDecoder d, ByteBuffer buf) {
+    if (d.wrap(buf, 0, buf.limit()) != FixDecoder.Status.OK) throw new AssertionError(d);
+    return d.getChar(FixTags.EXEC_TYPE)
+        + d.getDouble(FixTags.ORDER_QTY)
+        + d.valueLength(FixTags.CL_ORD_ID);
+  }
+}
@@ -0,0 +1,93 @@
+package com.ubs.trading.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ubs.trading.core.*;
+import com.ubs.trading.core.DisruptorEngine.WaitStrategyType;
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Side‑by‑side hop latency (publish → sender) for every {@link WaitStrategyType}.
+ *
+ * <p>Messages are paced so the ring stays mostly empty: the numbers reflect consumer wake‑up cost,
+ * not queueing. Output is informational; only delivery is asserted because absolute latencies
+ * depend on the host.
+ */
+class WaitStrategyLatencyTest {
+
+  private static final int MESSAGES = 20_000;
+  private static final long PACE_NANOS = 10_000; // 10µs between sends
+
+  @Test
+  @DisplayName("Every wait strategy delivers all messages; latency table is printed")
+  void compareWaitStrategies() {
+    System.out.printf(
+        "%-15s %10s %10s %10s %10s%n", "strategy", "p50(ns)", "p99(ns)", "p99.9(ns)", "max(ns)");
+
+    for (WaitStrategyType type : WaitStrategyType.values()) {
+      long[] latencies = run(type);
+      Arrays.sort(latencies);
+
+      System.out.printf(
+          "%-15s %10d %10d %10d %10d%n",
+          type,
+          percentile(latencies, 0.50),
+          percentile(latencies, 0.99),
+          percentile(latencies, 0.999),
+          latencies[latencies.length - 1]);
+    }
+  }
+
+  /** Payload is the publish timestamp, so the sender can compute the hop latency itself. */
+  private static long[] run(WaitStrategyType type) {
+    long[] latencies = new long[MESSAGES];
+    AtomicInteger received = new AtomicInteger();
+
+    Dispatcher.MessageSender<Long> sender =
+        sentAt -> {
+          latencies[received.get()] = System.nanoTime() - sentAt; // single consumer thread
+          received.incrementAndGet(); // publishes the slot write to the test thread
+        };
+
+    MetricsRecorder metrics = new MetricsRecorder(new SimpleMeterRegistry());
+    Dispatcher<Void, Long> dispatcher =
+        new Dispatcher<>(Pipeline.<Long>named("identity"), metrics, sender);
+
+    DisruptorEngine<Long> engine =
+        DisruptorEngine.<Long>builder()
+            .ringSize(1_024)
+            .waitStrategy(type)
+            .threadName("latency-" + type.name().toLowerCase())
+            .daemon(true)
+            .handler(dispatcher)
+            .metrics(metrics)
+            .build();
+
+    long next = System.nanoTime();
+    for (int i = 0; i < MESSAGES; i++) {
+      while (System.nanoTime() < next) {
+        Thread.onSpinWait();
+      }
+      engine.publish(System.nanoTime());
+      next += PACE_NANOS;
+    }
+
+    Awaitility.await()
+        .atMost(Duration.ofSeconds(5))
+        .untilAsserted(() -> assertThat(received.get()).isEqualTo(MESSAGES));
+    engine.shutdown();
+    return latencies;
+  }
+
+  private static long percentile(long[] sorted, double p) {
+    return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)];
+  }
+}
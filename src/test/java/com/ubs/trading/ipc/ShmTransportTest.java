@@ -0,0 +1,258 @@
+package com.ubs.trading.ipc;
+
+import com.ubs.trading.core.Dispatcher;
+import com.ubs.trading.core.DisruptorEngine;
+import com.ubs.trading.journal.PayloadCodec;
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.*;
+
+/** {@link ShmRing} framing and the ingress / egress ends built on it. */
+class ShmTransportTest {
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry reg = new SimpleMeterRegistry();
+    private final MetricsRecorder metrics = new MetricsRecorder(reg);
+    private final List<String> outbound = new CopyOnWriteArrayList<>();
+
+    @Test
+    @DisplayName("Frames pass in order across the wrap; a full ring refuses, an empty one returns null")
+    void ringWrapsAndBounds() {
+        ShmRing producer = ShmRing.create(dir.resolve("ring"), 4, 32);
+        ShmRing consumer = ShmRing.open(dir.resolve("ring"));
+        assertThat(consumer.capacity()).isEqualTo(4);
+        assertThat(consumer.maxPayload()).isEqualTo(32 - ShmRing.FRAME_HEADER);
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) assertThat(producer.offer(utf8("m" + round + i))).isTrue();
+            assertThat(producer.offer(utf8("full"))).isFalse();
+            assertThat(producer.size()).isEqualTo(4);
+
+            for (int i = 0; i < 4; i++) {
+                long before = System.nanoTime();
+                assertThat(text(consumer.poll())).isEqualTo("m" + round + i);
+                assertThat(consumer.polledSendNanos()).isLessThanOrEqualTo(before);
+                consumer.release();
+            }
+            assertThat(consumer.poll()).isNull();
+        }
+    }
+
+    @Test
+    @DisplayName("Opening a file that is not an initialised ring fails")
+    void openRejectsForeignFile() throws Exception {
+        Path junk = Files.write(dir.resolve("junk"), new byte[512]);
+
+        assertThatThrownBy(() -> ShmRing.open(junk)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> ShmRing.create(dir.resolve("bad"), 3, 32))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Egress frames reach an engine through ingress, in order")
+    void egressToIngress() {
+        DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+                .ringSize(64)
+                .daemon(true)
+                .handler(new Dispatcher<>(Pipeline.<String>named("in"), metrics, outbound::add))
+                .metrics(metrics)
+                .build();
+        ShmRing ring = ShmRing.create(dir.resolve("orders"), 16, 64);
+        ShmIngress<String> ingress = ShmIngress.<String>builder()
+                .ring(ring)
+                .engine(engine)
+                .codec(PayloadCodec.utf8())
+                .metrics(metrics, "orders")
+                .build();
+        ShmEgress<String> egress =
+                new ShmEgress<>(ShmRing.open(dir.resolve("orders")), PayloadCodec.utf8(), metrics, "orders");
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {                 // spins through a 16-frame ring many times
+            egress.send("order-" + i);
+            expected.add("order-" + i);
+        }
+
+        Awaitility.await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertThat(outbound).containsExactlyElementsOf(expected));
+        assertThat(egress.frames()).isEqualTo(1_000);
+        assertThat(ingress.frames()).isEqualTo(1_000);
+        assertThat(reg.get("ipc.frames").tag("direction", "in").functionCounter().count()).isEqualTo(1_000.0);
+        ingress.close();
+        engine.shutdown();
+    }
+
+    @Test
+    @DisplayName("A frame that fails to decode is counted and skipped")
+    void badFrameSkipped() {
+        List<String> seen = new CopyOnWriteArrayList<>();
+        ShmRing ring = ShmRing.create(dir.resolve("raw"), 8, 32);
+        ShmIngress<String> ingress = ShmIngress.<String>builder()
+                .ring(ring)
+                .frames((frame, sendNanos) -> {
+                    String s = text(frame);
+                    if (s.equals("bad")) throw new IllegalArgumentException(s);
+                    seen.add(s);
+                })
+                .busySpin(false)
+                .build();
+
+        ShmRing producer = ShmRing.open(dir.resolve("raw"));
+        producer.offer(utf8("a"));
+        producer.offer(utf8("bad"));
+        producer.offer(utf8("b"));
+
+        Awaitility.await().atMost(Duration.ofSeconds(2))
+                .untilAsserted(() -> assertThat(seen).containsExactly("a", "b"));
+        assertThat(ingress.failed()).isEqualTo(1);
+        ingress.close();
+    }
+
+    @Test
+    @DisplayName("A frame with a corrupt length is counted and released, not read past its slot")
+    void corruptFrameSkipped() throws Exception {
+        ShmRing producer = ShmRing.create(dir.resolve("corrupt"), 8, 32);
+        for (String s : List.of("a", "bad", "b")) producer.offer(utf8(s));
+        try (FileChannel ch = FileChannel.open(dir.resolve("corrupt"), READ, WRITE)) {
+            ch.map(FileChannel.MapMode.READ_WRITE, 0, ShmRing.DATA + 8 * 32).order(ByteOrder.nativeOrder())
+                    .putInt(ShmRing.DATA + 32, 1 << 20);          // second frame claims a megabyte
+        }
+
+        List<String> seen = new CopyOnWriteArrayList<>();
+        ShmIngress<String> ingress = ShmIngress.<String>builder()
+                .ring(ShmRing.open(dir.resolve("corrupt")))
+                .frames((frame, sendNanos) -> seen.add(text(frame)))
+                .busySpin(false)
+                .build();
+
+        Awaitility.await().atMost(Duration.ofSeconds(2))
+                .untilAsserted(() -> assertThat(seen).containsExactly("a", "b"));
+        assertThat(ingress.failed()).isEqualTo(1);
+        assertThat(producer.size()).isZero();
+        ingress.close();
+    }
+
+    @Test
+    @DisplayName("close() returns while the engine is full and leaves the waiting frame in the shared ring")
+    void closeWhileEngineFull() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+                .ringSize(4)
+                .daemon(true)
+                .handler(new Dispatcher<>(Pipeline.<String>named("stalled"), metrics, msg -> {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }))
+                .metrics(metrics)
+                .build();
+        ShmRing ring = ShmRing.create(dir.resolve("full"), 16, 32);
+        ShmIngress<String> ingress = ShmIngress.<String>builder()
+                .ring(ring)
+                .engine(engine)
+                .codec(PayloadCodec.utf8())
+                .busySpin(false)
+                .build();
+
+        ShmRing producer = ShmRing.open(dir.resolve("full"));
+        for (int i = 0; i < 10; i++) producer.offer(utf8("m" + i));
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> ingress.frames() >= 4);
+
+        Thread closer = new Thread(ingress::close);
+        closer.start();
+        closer.join(2_000);
+        assertThat(closer.isAlive()).isFalse();                 // not stuck behind the full engine
+        assertThat(producer.size()).isEqualTo(10 - ingress.frames());
+        gate.countDown();
+        engine.shutdown();
+    }
+
+    /** Resident payload the translator fills in place. */
+    static final class Slot {
+        final byte[] bytes = new byte[32];
+        int length;
+
+        String text() {
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    @DisplayName("A frame the translator fails on is published discarded and reaches no pipeline")
+    void translatorFailureSkipped() {
+        DisruptorEngine<Slot> engine = DisruptorEngine.<Slot>builder()
+                .ringSize(8)
+                .daemon(true)
+                .payloadFactory(Slot::new)
+                .handler(new Dispatcher<>(Pipeline.<Slot>named("in"), metrics, slot -> outbound.add(slot.text())))
+                .metrics(metrics)
+                .build();
+        ShmRing ring = ShmRing.create(dir.resolve("resident"), 8, 32);
+        ShmIngress<Slot> ingress = ShmIngress.<Slot>builder()
+                .ring(ring)
+                .engine(engine)
+                .translator((slot, frame) -> {
+                    slot.length = frame.remaining();
+                    frame.get(slot.bytes, 0, slot.length);          // overwrites the slot, then fails
+                    if (slot.text().equals("bad")) throw new IllegalArgumentException("bad");
+                })
+                .busySpin(false)
+                .build();
+
+        ShmRing producer = ShmRing.open(dir.resolve("resident"));
+        for (String s : List.of("a", "bad", "b")) producer.offer(utf8(s));
+
+        Awaitility.await().atMost(Duration.ofSeconds(2))
+                .untilAsserted(() -> assertThat(outbound).containsExactly("a", "b"));
+        assertThat(ingress.failed()).isEqualTo(1);
+        assertThat(ingress.frames()).isEqualTo(2);
+        ingress.close();
+        engine.shutdown();
+    }
+
+    @Test
+    @DisplayName("An oversized message is refused and leaves the ring usable")
+    void oversizedMessageRefused() {
+        ShmEgress<String> egress = new ShmEgress<>(ShmRing.create(dir.resolve("out"), 4, 32), PayloadCodec.utf8());
+        ShmRing consumer = ShmRing.open(dir.resolve("out"));
+
+        assertThatThrownBy(() -> egress.send("x".repeat(64))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(egress.trySend("ok")).isTrue();
+
+        assertThat(text(consumer.poll())).isEqualTo("ok");
+        consumer.release();
+        assertThat(consumer.poll()).isNull();
+    }
+
+    private static ByteBuffer utf8(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String text(ByteBuffer frame) {
+        return PayloadCodec.utf8().decode(frame);
+    }
+}
@@ -0,0 +1,183 @@
+package com.ubs.trading.journal;
+
+import com.ubs.trading.core.Dispatcher;
+import com.ubs.trading.core.DisruptorEngine;
+import com.ubs.trading.core.DisruptorEngine.WaitStrategyType;
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static org.assertj.core.api.Assertions.*;
+
+/** Segment layout, rolling, restart and engine wiring of the journal. */
+class JournalWriterTest {
+
+    @TempDir
+    Path dir;
+
+    record Entry(long sequence, long ingestNanos, String payload) {}
+
+    private JournalWriter<String> writer(FlushPolicy policy) {
+        return JournalWriter.<String>builder()
+                .directory(dir)
+                .codec(PayloadCodec.utf8())
+                .segmentSize(4_096)
+                .maxRecordSize(256)
+                .flushPolicy(policy)
+                .build();
+    }
+
+    /* raw scan of every segment, independent of any reader class */
+    private List<Entry> scan() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (long index : Segments.list(dir)) {
+            try (FileChannel ch = FileChannel.open(Segments.path(dir, index), READ)) {
+                ByteBuffer seg = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                int pos = 0;
+                int len;
+                while ((len = Segments.recordLength(seg, pos)) > 0) {
+                    ByteBuffer payload = seg.slice(pos + Segments.HEADER, len - Segments.HEADER);
+                    entries.add(new Entry(seg.getLong(pos + Segments.SEQUENCE),
+                            seg.getLong(pos + Segments.INGEST), PayloadCodec.utf8().decode(payload)));
+                    pos += len;
+                }
+            }
+        }
+        return entries;
+    }
+
+    @Test
+    @DisplayName("Records roll over segments and keep sequence order")
+    void rollsSegments() throws IOException {
+        try (JournalWriter<String> w = writer(FlushPolicy.never())) {
+            for (int i = 0; i < 1_000; i++) {
+                assertThat(w.append(i * 10L, "msg-" + i, false)).isEqualTo(i);
+            }
+            assertThat(w.segmentIndex()).isPositive();
+        }
+
+        List<Entry> entries = scan();
+        assertThat(entries).hasSize(1_000);
+        for (int i = 0; i < entries.size(); i++) {
+            assertThat(entries.get(i)).isEqualTo(new Entry(i, i * 10L, "msg-" + i));
+        }
+    }
+
+    @Test
+    @DisplayName("Reopening a journal starts a new segment and continues the sequence")
+    void restartContinuesSequence() throws IOException {
+        long firstSegment;
+        try (JournalWriter<String> w = writer(FlushPolicy.never())) {
+            for (int i = 0; i < 10; i++) w.append(0, "a" + i, false);
+            firstSegment = w.segmentIndex();
+        }
+        try (JournalWriter<String> w = writer(FlushPolicy.never())) {
+            assertThat(w.nextSequence()).isEqualTo(10);
+            assertThat(w.segmentIndex()).isEqualTo(firstSegment + 1);
+            w.append(0, "b", false);
+        }
+
+        List<Entry> entries = scan();
+        assertThat(entries).hasSize(11);
+        assertThat(entries.get(10)).isEqualTo(new Entry(10, 0, "b"));
+    }
+
+    @Test
+    @DisplayName("Flush policies decide how often the dirty range is forced")
+    void flushPolicies() {
+        try (JournalWriter<String> w = writer(FlushPolicy.everyRecords(4))) {
+            for (int i = 0; i < 10; i++) w.append(i, "x", false);
+            assertThat(w.flushes()).isEqualTo(2);
+        }
+        try (JournalWriter<String> w = writer(FlushPolicy.endOfBatch())) {
+            for (int i = 0; i < 10; i++) w.append(i, "x", i % 5 == 4);
+            assertThat(w.flushes()).isEqualTo(2);
+        }
+        try (JournalWriter<String> w = writer(FlushPolicy.interval(Duration.ofHours(1)))) {
+            for (int i = 0; i < 10; i++) w.append(i * 3_600_000_000_000L, "x", false);   // ingest stamps don't count
+            assertThat(w.flushes()).isZero();
+        }
+    }
+
+    @Test
+    @DisplayName("An interval policy forces the last records once the writer has been idle long enough")
+    void intervalFlushesWhenIdle() {
+        try (JournalWriter<String> w = writer(FlushPolicy.interval(Duration.ofMillis(20)))) {
+            w.append(0, "x", false);
+            assertThat(w.flushIfDue()).isFalse();
+            assertThat(w.flushes()).isZero();
+
+            LockSupport.parkNanos(Duration.ofMillis(30).toNanos());
+            assertThat(w.flushIfDue()).isTrue();
+            assertThat(w.flushes()).isEqualTo(1);
+            assertThat(w.flushIfDue()).isFalse();                           // nothing pending
+        }
+    }
+
+    @Test
+    @DisplayName("JournalHandler flushes an idle journal on wait-strategy timeouts")
+    void handlerFlushesWhenIdle() {
+        JournalWriter<String> writer = writer(FlushPolicy.interval(Duration.ofMillis(5)));
+        DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+                .ringSize(64)
+                .daemon(true)
+                .waitStrategy(WaitStrategyType.TIMEOUT_BLOCKING)
+                .handler(new JournalHandler<>(writer))
+                .metrics(new MetricsRecorder(new SimpleMeterRegistry()))
+                .build();
+
+        engine.publish("last");
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> writer.flushes() == 1);
+        engine.shutdown();
+    }
+
+    @Test
+    @DisplayName("Oversized payloads are refused")
+    void oversizedRecord() {
+        try (JournalWriter<String> w = writer(FlushPolicy.never())) {
+            assertThatThrownBy(() -> w.append(0, "x".repeat(300), false))
+                    .isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    @DisplayName("JournalHandler runs beside the dispatcher and journals every envelope")
+    void journalsInParallel() throws IOException {
+        MetricsRecorder metrics = new MetricsRecorder(new SimpleMeterRegistry());
+        List<String> outbound = new CopyOnWriteArrayList<>();
+        Dispatcher<Void, String> dispatcher =
+                new Dispatcher<>(Pipeline.build("upper", true, String::toUpperCase), metrics, outbound::add);
+
+        DisruptorEngine<String> engine = DisruptorEngine.<String>builder()
+                .ringSize(64)
+                .daemon(true)
+                .handlers(new JournalHandler<>(writer(FlushPolicy.endOfBatch())), dispatcher)
+                .metrics(metrics)
+                .build();
+        for (int i = 0; i < 500; i++) engine.publish("m" + i);
+        engine.shutdown();
+
+        List<Entry> entries = scan();
+        assertThat(outbound).hasSize(500);
+        assertThat(entries).hasSize(500);
+        for (int i = 0; i < 500; i++) {
+            assertThat(entries.get(i).payload()).isEqualTo("m" + i);
+            assertThat(entries.get(i).sequence()).isEqualTo(i);
+        }
+    }
+}
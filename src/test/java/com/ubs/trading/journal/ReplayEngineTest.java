@@ -0,0 +1,227 @@
+package com.ubs.trading.journal;
+
+import com.lmax.disruptor.EventHandler;
+import com.ubs.trading.core.DisruptorEngine;
+import com.ubs.trading.core.EventEnvelope;
+import com.ubs.trading.metrics.LatencySnapshot;
+import com.ubs.trading.metrics.MetricsRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+/** Reading journals back and replaying them through the engine. */
+class ReplayEngineTest {
+
+    private static final long GAP = 1_000_000;                   // 1 ms between recorded messages
+
+    @TempDir
+    Path dir;
+
+    record Seen(String payload, long ingestNanos) {}
+
+    private final List<Seen> seen = new CopyOnWriteArrayList<>();
+    private final MetricsRecorder metrics = new MetricsRecorder(new SimpleMeterRegistry());
+
+    private void record(int count) {
+        try (JournalWriter<String> w = JournalWriter.<String>builder()
+                .directory(dir)
+                .codec(PayloadCodec.utf8())
+                .segmentSize(4_096)
+                .maxRecordSize(256)
+                .flushPolicy(FlushPolicy.never())
+                .build()) {
+            for (int i = 0; i < count; i++) w.append(5_000_000_000L + i * GAP, "m" + i, false);
+        }
+    }
+
+    private <T> DisruptorEngine<T> engine(Supplier<T> resident, EventHandler<EventEnvelope<T>> handler) {
+        DisruptorEngine.Builder<T> b = DisruptorEngine.<T>builder()
+                .ringSize(64)
+                .daemon(true)
+                .handler(handler)
+                .metrics(metrics);
+        if (resident != null) b.payloadFactory(resident);
+        return b.build();
+    }
+
+    private DisruptorEngine<String> stringEngine() {
+        return engine(null, (env, seq, eob) -> {
+            metrics.recordEndToEnd(env.getIngestNanos());
+            seen.add(new Seen(env.getPayload(), env.getIngestNanos()));
+        });
+    }
+
+    @Test
+    @DisplayName("JournalReader walks every segment in sequence order")
+    void readerWalksSegments() {
+        record(500);
+        try (JournalReader r = new JournalReader(dir)) {
+            for (int i = 0; i < 500; i++) {
+                assertThat(r.next()).isTrue();
+                assertThat(r.sequence()).isEqualTo(i);
+                assertThat(PayloadCodec.utf8().decode(r.payload())).isEqualTo("m" + i);
+            }
+            assertThat(r.next()).isFalse();
+        }
+    }
+
+    @Test
+    @DisplayName("As-fast-as-possible replay keeps order and stamps messages when they are published")
+    void replayAsFastAsPossible() {
+        record(1_000);
+        DisruptorEngine<String> engine = stringEngine();
+
+        ReplayEngine.Result result = ReplayEngine.<String>builder()
+                .directory(dir)
+                .codec(PayloadCodec.utf8())
+                .engine(engine)
+                .build()
+                .run();
+        engine.shutdown();
+
+        assertThat(result.records()).isEqualTo(1_000);
+        assertThat(result.drained()).isTrue();
+        assertThat(result.firstSequence()).isZero();
+        assertThat(result.lastSequence()).isEqualTo(999);
+        assertThat(result.messagesPerSecond()).isPositive();
+        assertThat(seen).hasSize(1_000);
+        for (int i = 0; i < seen.size(); i++) {
+            assertThat(seen.get(i).payload()).isEqualTo("m" + i);
+            if (i > 0) {
+                assertThat(seen.get(i).ingestNanos()).isGreaterThanOrEqualTo(seen.get(i - 1).ingestNanos());
+            }
+        }
+        LatencySnapshot e2e = metrics.endToEnd().snapshot();
+        assertThat(e2e.count()).isEqualTo(1_000);
+        assertThat(e2e.valueAtQuantile(0.0)).isPositive();       // no stamp in the future
+        assertThat(seen.get(999).ingestNanos() - seen.get(0).ingestNanos()).isLessThan(999 * GAP);
+    }
+
+    @Test
+    @DisplayName("Paced replay takes the recorded span; rebase(false) publishes raw timestamps")
+    void pacedReplay() {
+        record(50);                                              // 49 ms recorded span
+        DisruptorEngine<String> engine = stringEngine();
+
+        ReplayEngine.Result result = ReplayEngine.<String>builder()
+                .directory(dir)
+                .codec(PayloadCodec.utf8())
+                .engine(engine)
+                .speed(1.0)
+                .rebase(false)
+                .build()
+                .run();
+        engine.shutdown();
+
+        assertThat(result.elapsedNanos()).isGreaterThanOrEqualTo(49 * GAP);
+        assertThat(seen.get(0).ingestNanos()).isEqualTo(5_000_000_000L);
+        assertThat(seen.get(49).ingestNanos()).isEqualTo(5_000_000_000L + 49 * GAP);
+    }
+
+    @Test
+    @DisplayName("Paced replay skips clock jumps from a journal continued by another JVM")
+    void pacedReplaySkipsClockJumps() {
+        try (JournalWriter<String> w = JournalWriter.<String>builder()
+                .directory(dir)
+                .codec(PayloadCodec.utf8())
+                .flushPolicy(FlushPolicy.never())
+                .build()) {
+            w.append(5_000_000_000L, "a", false);
+            w.append(5_000_000_000L + 10 * GAP, "b", false);
+            w.append(1_000_000L, "c", false);                   // restart: the clock went backwards
+            w.append(1_000_000L + 10 * GAP, "d", false);
+            w.append(9_000_000_000_000L, "e", false);           // restart: hours ahead
+        }
+        DisruptorEngine<String> engine = stringEngine();
+
+        ReplayEngine.Result result = ReplayEngine.<String>builder()
+                .directory(dir)
+                .codec(PayloadCodec.utf8())
+                .engine(engine)
+                .speed(1.0)
+                .maxGap(Duration.ofSeconds(1))
+                .build()
+                .run();
+        engine.shutdown();
+
+        assertThat(result.records()).isEqualTo(5);
+        assertThat(result.elapsedNanos()).isBetween(20 * GAP, 1_000 * GAP);
+        assertThat(seen.get(3).ingestNanos() - seen.get(0).ingestNanos()).isEqualTo(20 * GAP);
+        assertThat(seen.get(4).ingestNanos()).isEqualTo(seen.get(3).ingestNanos());
+    }
+
+    /** Mutable resident payload filled straight from the mapped record. */
+    static final class Slot {
+        final byte[] bytes = new byte[32];
+        int length;
+    }
+
+    @Test
+    @DisplayName("Translator replay fills resident payloads from the mapping, from a given sequence")
+    void residentReplayFromSequence() {
+        record(100);
+        DisruptorEngine<Slot> engine = engine(Slot::new, (env, seq, eob) -> seen.add(new Seen(
+                new String(env.getPayload().bytes, 0, env.getPayload().length, StandardCharsets.UTF_8),
+                env.getIngestNanos())));
+
+        ReplayEngine.Result result = ReplayEngine.<Slot>builder()
+                .directory(dir)
+                .translator((Slot slot, ByteBuffer src) -> {
+                    slot.length = src.remaining();
+                    src.get(slot.bytes, 0, slot.length);
+                })
+                .engine(engine)
+                .fromSequence(90)
+                .build()
+                .run();
+        engine.shutdown();
+
+        assertThat(result.records()).isEqualTo(10);
+        assertThat(result.firstSequence()).isEqualTo(90);
+        assertThat(seen.stream().map(Seen::payload).toList())
+                .containsExactly("m90", "m91", "m92", "m93", "m94", "m95", "m96", "m97", "m98", "m99");
+    }
+
+    @Test
+    @DisplayName("A stalled handler makes the drain wait time out instead of hang")
+    void drainTimesOut() {
+        record(10);
+        CountDownLatch gate = new CountDownLatch(1);
+        DisruptorEngine<String> engine = engine(null, (env, seq, eob) -> gate.await());
+
+        ReplayEngine.Result result = ReplayEngine.<String>builder()
+                .directory(dir)
+                .codec(PayloadCodec.utf8())
+                .engine(engine)
+                .drainTimeout(Duration.ofMillis(50))
+                .build()
+                .run();
+        gate.countDown();
+        engine.shutdown();
+
+        assertThat(result.records()).isEqualTo(10);
+        assertThat(result.drained()).isFalse();
+        assertThat(result.toString()).contains("drain timed out");
+    }
+
+    @Test
+    @DisplayName("Exactly one of codec and translator is required")
+    void needsOneDecoder() {
+        DisruptorEngine<String> engine = stringEngine();
+        assertThatThrownBy(() -> ReplayEngine.<String>builder().directory(dir).engine(engine).build())
+                .isInstanceOf(IllegalArgumentException.class);
+        engine.shutdown();
+    }
+}
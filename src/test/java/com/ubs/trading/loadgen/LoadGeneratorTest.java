@@ -0,0 +1,145 @@
+package com.ubs.trading.loadgen;
+
+import com.ubs.trading.core.Dispatcher;
+import com.ubs.trading.core.DisruptorEngine;
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+/** Open-loop pacing, intended-time latency and the sweep CSV. */
+class LoadGeneratorTest {
+
+    private final MetricsRecorder metrics = new MetricsRecorder(new SimpleMeterRegistry());
+
+    private DisruptorEngine<Long> engine(int ringSize, Dispatcher.MessageSender<Long> sender) {
+        return DisruptorEngine.<Long>builder()
+                .ringSize(ringSize)
+                .daemon(true)
+                .handler(new Dispatcher<>(Pipeline.<Long>named("noop"), metrics, sender))
+                .metrics(metrics)
+                .build();
+    }
+
+    private LoadGenerator<Long> generator(DisruptorEngine<Long> engine, Duration duration) {
+        return LoadGenerator.<Long>builder()
+                .engine(engine)
+                .metrics(metrics)
+                .payloads(i -> i)
+                .duration(duration)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Pacer schedules message i at start + i / rate and never slips")
+    void pacerSchedule() {
+        RatePacer pacer = new RatePacer(4_000_000, 1_000);       // 250 ns period
+        assertThat(pacer.intendedTime(0)).isEqualTo(1_000);
+        assertThat(pacer.intendedTime(4)).isEqualTo(2_000);
+        assertThat(pacer.intendedTime(4_000_000)).isEqualTo(1_000_001_000L);
+        assertThat(pacer.messagesIn(1_000)).isEqualTo(4);
+
+        RatePacer late = new RatePacer(1_000, System.nanoTime() - 1_000_000_000L);
+        assertThat(late.await(10)).isEqualTo(late.intendedTime(10));   // overdue: no wait
+    }
+
+    @Test
+    @DisplayName("A run publishes the scheduled count at about the target rate")
+    void runHitsTargetRate() {
+        AtomicLong received = new AtomicLong();
+        DisruptorEngine<Long> engine = engine(1_024, m -> received.incrementAndGet());
+
+        RatePoint point = generator(engine, Duration.ofMillis(200)).run(20_000);
+        engine.shutdown();
+
+        assertThat(point.messages()).isEqualTo(4_000);
+        assertThat(received.get()).isEqualTo(4_000);
+        assertThat(point.latency().count()).isEqualTo(4_000);
+        assertThat(point.achievedRate()).isBetween(18_000.0, 22_000.0);
+        assertThat(point.saturated()).isFalse();
+        assertThat(point.drained()).isTrue();
+    }
+
+    @Test
+    @DisplayName("A consumer stall shows up in the latency of every message scheduled during it")
+    void stallIsNotOmitted() {
+        /* tiny ring: the stall blocks the producer, which would hide it from publish-time latency */
+        DisruptorEngine<Long> engine = engine(16, m -> {
+            if (m == 100) sleep(50);
+        });
+
+        RatePoint point = generator(engine, Duration.ofMillis(200)).run(10_000);
+        engine.shutdown();
+
+        /* ~500 of 2 000 messages were due during the 50 ms stall, waiting 0–50 ms */
+        assertThat(point.latency().valueAtQuantile(0.9)).isGreaterThan(10_000_000L);
+        assertThat(point.latency().max()).isGreaterThanOrEqualTo(45_000_000L);
+    }
+
+    @Test
+    @DisplayName("A backlog that outlasts the drain timeout fails the point instead of hanging the run")
+    void undrainedPointFails() {
+        CountDownLatch gate = new CountDownLatch(1);
+        DisruptorEngine<Long> engine = engine(64, m -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        RatePoint point = LoadGenerator.<Long>builder()
+                .engine(engine)
+                .metrics(metrics)
+                .payloads(i -> i)
+                .duration(Duration.ofMillis(20))
+                .drainTimeout(Duration.ofMillis(50))
+                .build()
+                .run(1_000);
+        gate.countDown();
+        engine.shutdown();
+
+        assertThat(point.drained()).isFalse();
+        assertThat(point.csvRow()).endsWith(",false");
+        assertThat(LoadGenerator.table(List.of(point))).contains("undrained");
+    }
+
+    @Test
+    @DisplayName("sweep() writes one CSV row per rate with the percentile columns")
+    void sweepWritesCsv(@TempDir Path dir) throws IOException {
+        DisruptorEngine<Long> engine = engine(1_024, m -> { });
+        List<RatePoint> points = generator(engine, Duration.ofMillis(50)).sweep(5_000, 10_000);
+        engine.shutdown();
+
+        Path csv = dir.resolve("curve.csv");
+        LoadGenerator.writeCsv(points, csv);
+
+        List<String> lines = Files.readAllLines(csv);
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).isEqualTo(
+                "target_rate,achieved_rate,messages,p50_us,p90_us,p99_us,p99.9_us,p99.99_us,max_us,mean_us,saturated,drained");
+        assertThat(lines.get(1)).startsWith("5000,");
+        assertThat(lines.get(2)).startsWith("10000,");
+        assertThat(LoadGenerator.table(points)).contains("p99.9");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
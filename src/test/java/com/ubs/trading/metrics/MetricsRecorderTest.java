@@ -0,0 +1,76 @@
+package com.ubs.trading.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Histogram accuracy and interval publishing of {@link MetricsRecorder}. */
+class MetricsRecorderTest {
+
+  @Test
+  @DisplayName("Percentiles stay within the bucket resolution over the whole range")
+  void percentileAccuracy() {
+    LatencyHistogram h = new LatencyHistogram();
+    for (long v = 1; v <= 100_000; v++) h.record(v * 1_000); // 1 µs .. 100 ms, uniform
+
+    LatencySnapshot s = h.snapshot();
+    assertThat(s.count()).isEqualTo(100_000);
+    assertThat((double) s.valueAtQuantile(0.50)).isCloseTo(50_000_000, within(50_000_000 * 0.01));
+    assertThat((double) s.valueAtQuantile(0.99)).isCloseTo(99_000_000, within(99_000_000 * 0.01));
+    assertThat((double) s.max()).isCloseTo(100_000_000, within(100_000_000 * 0.01));
+    assertThat(s.mean()).isCloseTo(50_000_500, within(50_000_500 * 0.01));
+  }
+
+  @Test
+  @DisplayName("Small values are exact; negative and huge values are clamped")
+  void clamping() {
+    LatencyHistogram h = new LatencyHistogram();
+    h.record(-5);
+    h.record(200);
+    h.record(Long.MAX_VALUE);
+
+    LatencySnapshot s = h.snapshot();
+    assertThat(s.valueAtQuantile(0.0)).isZero();
+    assertThat(s.valueAtQuantile(0.5)).isEqualTo(200);
+    assertThat(s.max()).isEqualTo(LatencyHistogram.MAX_VALUE);
+  }
+
+  @Test
+  @DisplayName("Gauges show the last interval, the counter stays cumulative")
+  void intervalPublishing() {
+    SimpleMeterRegistry reg = new SimpleMeterRegistry();
+    try (MetricsRecorder m = new MetricsRecorder(reg, Duration.ofHours(1))) {
+      for (int i = 0; i < 100; i++) m.endToEnd().record(1_000);
+      m.publish();
+      assertThat(gauge(reg, "msg.e2e.latency.max")).isCloseTo(1_000, within(10.0));
+
+      m.endToEnd().record(5_000);
+      m.publish();
+      assertThat(gauge(reg, "msg.e2e.latency.max")).isCloseTo(5_000, within(50.0));
+      assertThat(reg.get("msg.e2e.latency.percentile").tag("phi", "0.5").gauge().value())
+          .isCloseTo(5_000, within(50.0));
+      assertThat(reg.get("msg.e2e.latency.count").functionCounter().count()).isEqualTo(101.0);
+
+      m.publish(); // idle interval
+      assertThat(gauge(reg, "msg.e2e.latency.max")).isZero();
+    }
+  }
+
+  @Test
+  @DisplayName("Queue wait is the gap between publish and consumer pick-up")
+  void queueWait() {
+    try (MetricsRecorder m = new MetricsRecorder(new SimpleMeterRegistry())) {
+      long t0 = m.markIngest();
+      m.recordQueueWait(t0, t0 + 3_000);
+      assertThat(m.ingest().snapshot().valueAtQuantile(1.0)).isBetween(3_000L, 3_030L);
+    }
+  }
+
+  private static double gauge(SimpleMeterRegistry reg, String name) {
+    return reg.get(name).gauge().value();
+  }
+}
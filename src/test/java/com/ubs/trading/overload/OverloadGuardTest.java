@@ -0,0 +1,234 @@
+package com.ubs.trading.overload;
+
+import com.lmax.disruptor.dsl.ProducerType;
+import com.ubs.trading.core.Dispatcher;
+import com.ubs.trading.core.DisruptorEngine;
+import com.ubs.trading.journal.PayloadCodec;
+import com.ubs.trading.metrics.MetricsRecorder;
+import com.ubs.trading.pipeline.Pipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.*;
+
+/** Ring-full behaviour of each {@link OverloadPolicy}. */
+class OverloadGuardTest {
+
+    private final SimpleMeterRegistry reg = new SimpleMeterRegistry();
+    private final MetricsRecorder metrics = new MetricsRecorder(reg);
+    private final List<String> delivered = new CopyOnWriteArrayList<>();
+    private final CountDownLatch gate = new CountDownLatch(1);
+
+    /* consumer holds the first message until the gate opens, so the ring fills */
+    private DisruptorEngine<String> engine(int ringSize, ProducerType producerType) {
+        return DisruptorEngine.<String>builder()
+                .ringSize(ringSize)
+                .producerType(producerType)
+                .daemon(true)
+                .handler(new Dispatcher<>(Pipeline.<String>named("slow"), metrics, msg -> {
+                    awaitQuietly(gate);
+                    delivered.add(msg);
+                }))
+                .metrics(metrics)
+                .build();
+    }
+
+    @Test
+    @DisplayName("DROP_NEWEST refuses without blocking and counts what it refused")
+    void dropNewest() {
+        DisruptorEngine<String> engine = engine(4, ProducerType.SINGLE);
+        OverloadGuard<String> guard = OverloadGuard.<String>builder()
+                .engine(engine)
+                .policy(OverloadPolicy.DROP_NEWEST)
+                .build();
+
+        List<String> accepted = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            if (guard.publish("m" + i)) accepted.add("m" + i);
+        }
+        gate.countDown();
+        engine.shutdown();
+
+        assertThat(guard.dropped()).isEqualTo(20 - accepted.size()).isPositive();
+        assertThat(delivered).containsExactlyElementsOf(accepted);
+        assertThat(reg.get("msg.overload.dropped").tag("policy", "drop-newest").functionCounter().count())
+                .isEqualTo((double) guard.dropped());
+    }
+
+    @Test
+    @DisplayName("SPILL never blocks or drops and drains the overflow back in order")
+    void spillDrainsInOrder(@TempDir Path dir) {
+        DisruptorEngine<String> engine = engine(8, ProducerType.MULTI);
+        OverloadGuard<String> guard = OverloadGuard.<String>builder()
+                .engine(engine)
+                .spill(dir, PayloadCodec.utf8())
+                .segmentSize(4_096)                                 // several segments
+                .build();
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            assertThat(guard.publish("fill-" + i)).isTrue();        // consumer is stalled throughout
+            expected.add("fill-" + i);
+        }
+        assertThat(guard.overflowed()).isGreaterThan(1_900);
+        assertThat(guard.pending()).isPositive();
+
+        gate.countDown();
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> delivered.size() == 2_000);
+        guard.close();
+        engine.shutdown();
+
+        assertThat(delivered).containsExactlyElementsOf(expected);
+        assertThat(guard.drained()).isEqualTo(guard.overflowed());
+        assertThat(guard.dropped()).isZero();
+        assertThat(guard.pending()).isZero();
+        assertThat(dir.toFile().list()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("SPILL skips a record it cannot decode and keeps draining")
+    void spillSkipsUndecodable(@TempDir Path dir) {
+        PayloadCodec<String> utf8 = PayloadCodec.utf8();
+        PayloadCodec<String> codec = new PayloadCodec<>() {
+            @Override
+            public void encode(String payload, ByteBuffer dst) {
+                utf8.encode(payload, dst);
+            }
+
+            @Override
+            public String decode(ByteBuffer src) {
+                String s = utf8.decode(src);
+                if (s.equals("fill-50")) throw new IllegalArgumentException("corrupt");
+                return s;
+            }
+        };
+        DisruptorEngine<String> engine = engine(8, ProducerType.MULTI);
+        OverloadGuard<String> guard = OverloadGuard.<String>builder()
+                .engine(engine)
+                .spill(dir, codec)
+                .build();
+
+        for (int i = 0; i < 200; i++) guard.publish("fill-" + i);
+        gate.countDown();
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> delivered.size() == 199);
+        guard.publish("after");                                     // the drain thread is still alive
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> delivered.contains("after"));
+        guard.close();
+        engine.shutdown();
+
+        assertThat(delivered).doesNotContain("fill-50").contains("fill-49", "fill-51");
+        assertThat(guard.failed()).isEqualTo(1);
+        assertThat(guard.drained()).isEqualTo(guard.overflowed() - 1);
+        assertThat(guard.pending()).isZero();
+    }
+
+    @Test
+    @DisplayName("DROP_OLDEST_BY_KEY keeps the latest overflowed message per key")
+    void dropOldestByKey() {
+        DisruptorEngine<String> engine = engine(4, ProducerType.MULTI);
+        OverloadGuard<String> guard = OverloadGuard.<String>builder()
+                .engine(engine)
+                .dropOldestByKey(s -> s.charAt(0) - '0', 5)
+                .build();
+
+        for (int i = 0; i < 100; i++) guard.publish((i % 5) + ":" + i);
+        gate.countDown();
+        Awaitility.await().atMost(Duration.ofSeconds(5))
+                .until(() -> delivered.size() + guard.dropped() == 100);
+        guard.close();
+        engine.shutdown();
+
+        Map<Character, String> latest = new HashMap<>();
+        delivered.forEach(s -> latest.put(s.charAt(0), s));
+        for (int k = 0; k < 5; k++) assertThat(latest.get((char) ('0' + k))).isEqualTo(k + ":" + (95 + k));
+        assertThat(guard.dropped()).isGreaterThan(80);
+    }
+
+    @Test
+    @DisplayName("close() gives up on an overflow the ring never takes and counts it as dropped")
+    void closeDropsUndrainable(@TempDir Path dir) {
+        DisruptorEngine<String> engine = engine(8, ProducerType.MULTI);
+        OverloadGuard<String> guard = OverloadGuard.<String>builder()
+                .engine(engine)
+                .spill(dir, PayloadCodec.utf8())
+                .name("fills")
+                .closeTimeout(Duration.ofMillis(50))
+                .build();
+
+        for (int i = 0; i < 100; i++) guard.publish("fill-" + i);
+        long parked = guard.overflowed();
+        assertThat(parked).isPositive();
+
+        guard.close();                                              // consumer still stalled
+        assertThat(guard.dropped()).isEqualTo(parked);
+        assertThat(guard.pending()).isZero();
+        assertThat(dir.toFile().list()).isEmpty();
+        assertThat(reg.get("msg.overload.dropped").tag("guard", "fills").tag("policy", "spill")
+                .functionCounter().count()).isEqualTo((double) parked);
+
+        gate.countDown();
+        engine.shutdown();
+        assertThat(delivered).hasSize((int) (100 - parked));
+    }
+
+    @Test
+    @DisplayName("BLOCK waits for capacity and counts the publishes that had to")
+    void blockCounts() throws Exception {
+        DisruptorEngine<String> engine = engine(4, ProducerType.SINGLE);
+        OverloadGuard<String> guard = OverloadGuard.<String>builder().engine(engine).build();
+
+        Thread opener = new Thread(() -> {
+            sleepQuietly(50);
+            gate.countDown();
+        });
+        opener.start();
+        for (int i = 0; i < 20; i++) assertThat(guard.publish("m" + i)).isTrue();
+        opener.join();
+        engine.shutdown();
+
+        assertThat(delivered).hasSize(20);
+        assertThat(guard.blocked()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Overflowing policies require a multi-producer engine")
+    void overflowNeedsMultiProducer(@TempDir Path dir) {
+        DisruptorEngine<String> engine = engine(4, ProducerType.SINGLE);
+        assertThatThrownBy(() -> OverloadGuard.<String>builder()
+                .engine(engine)
+                .spill(dir, PayloadCodec.utf8())
+                .build())
+                .isInstanceOf(IllegalArgumentException.class);
+        gate.countDown();
+        engine.shutdown();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
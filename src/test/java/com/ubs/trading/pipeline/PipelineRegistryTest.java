@@ -0,0 +1,130 @@
+package com.ubs.trading.pipeline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.ubs.trading.core.Dispatcher;
+import com.ubs.trading.core.DisruptorEngine;
+import com.ubs.trading.metrics.MetricsRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/** Handles, versions and hot swap of {@link PipelineRegistry}. */
+class PipelineRegistryTest {
+
+  @Test
+  @DisplayName("Names resolve to stable handles; lookups by handle and by name agree")
+  void handlesAreStable() {
+    PipelineRegistry<Integer> registry = new PipelineRegistry<>();
+    Pipeline<Integer> inc = Pipeline.build("inc", true, i -> i + 1);
+
+    int early = registry.handle("double");
+    int h = registry.register("inc", inc);
+    assertThat(registry.register("double", Pipeline.build("double", true, i -> i * 2)))
+        .isEqualTo(early);
+    assertThat(registry.handle("inc")).isEqualTo(h);
+
+    assertThat(registry.get(h)).isSameAs(inc);
+    assertThat(registry.require(early).execute(21)).isEqualTo(42);
+    assertThat(registry.require("inc")).isSameAs(inc);
+    assertThat(registry.lookup("missing")).isEmpty();
+    assertThat(registry.size()).isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("replace() bumps the version; the versioned form refuses stale writers")
+  void versionedReplace() {
+    PipelineRegistry<String> registry = new PipelineRegistry<>();
+    int h = registry.register("p", Pipeline.named("v1"));
+    long v1 = registry.version(h);
+
+    Pipeline<String> v2 = Pipeline.named("v2");
+    assertThat(registry.replace(h, v1, v2)).isTrue();
+    assertThat(registry.replace(h, v1, Pipeline.named("stale"))).isFalse();
+    assertThat(registry.get(h)).isSameAs(v2);
+    assertThat(registry.version(h)).isEqualTo(v1 + 1);
+    assertThat(registry.replace(h, Pipeline.named("v3"))).isEqualTo(v1 + 2);
+  }
+
+  @Test
+  @DisplayName("remove() empties the slot but keeps the handle")
+  void removeKeepsHandle() {
+    PipelineRegistry<String> registry = new PipelineRegistry<>();
+    int h = registry.register("p", Pipeline.named("p"));
+    registry.remove("p");
+
+    assertThat(registry.get(h)).isNull();
+    assertThatThrownBy(() -> registry.require(h)).isInstanceOf(IllegalStateException.class);
+    assertThat(registry.asMap()).isEmpty();
+    assertThat(registry.register("p", Pipeline.named("p2"))).isEqualTo(h);
+  }
+
+  @Test
+  @DisplayName("A Dispatcher refuses a foreign handle and skips messages while its slot is empty")
+  void dispatcherOnEmptySlot() {
+    PipelineRegistry<String> registry = new PipelineRegistry<>();
+    int h = registry.handle("late");
+    List<String> out = new CopyOnWriteArrayList<>();
+    MetricsRecorder metrics = new MetricsRecorder(new SimpleMeterRegistry());
+    assertThat(registry.isValid(h)).isTrue();
+    assertThat(registry.isValid(h + 1)).isFalse();
+    assertThatThrownBy(() -> new Dispatcher<>(registry, h + 1, metrics, out::add))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    Dispatcher<Void, String> dispatcher = new Dispatcher<>(registry, h, metrics, out::add);
+    DisruptorEngine<String> engine =
+        DisruptorEngine.<String>builder().daemon(true).handler(dispatcher).metrics(metrics).build();
+    engine.publish("early");
+    Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> engine.backlog() == 0);
+    registry.register("late", Pipeline.build("late", true, s -> s + "!"));
+    engine.publish("on time");
+    Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> out.size() == 1);
+    engine.shutdown();
+
+    assertThat(out).containsExactly("on time!");
+    assertThat(dispatcher.skipped()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Hot swap under load: every message is processed once, old then new pipeline")
+  void hotSwapUnderLoad() throws Exception {
+    PipelineRegistry<String> registry = new PipelineRegistry<>();
+    int h = registry.register("route", Pipeline.build("v1", true, s -> "A" + s));
+    List<String> out = new CopyOnWriteArrayList<>();
+    MetricsRecorder metrics = new MetricsRecorder(new SimpleMeterRegistry());
+    DisruptorEngine<String> engine =
+        DisruptorEngine.<String>builder()
+            .ringSize(1_024)
+            .daemon(true)
+            .handler(new Dispatcher<>(registry, h, metrics, out::add))
+            .metrics(metrics)
+            .build();
+
+    final int n = 20_000;
+    Thread producer =
+        new Thread(
+            () -> {
+              for (int i = 0; i < n; i++) engine.publish(Integer.toString(i));
+            });
+    producer.start();
+    while (out.size() < n / 4) Thread.onSpinWait();
+    registry.replace(h, Pipeline.build("v2", true, s -> "B" + s));
+    producer.join();
+    engine.shutdown();
+
+    assertThat(out).hasSize(n);
+    int firstB = -1;
+    for (int i = 0; i < n; i++) {
+      String s = out.get(i);
+      assertThat(s.substring(1)).isEqualTo(Integer.toString(i));
+      if (s.charAt(0) == 'B' && firstB < 0) firstB = i;
+      if (firstB >= 0) assertThat(s).startsWith("B");
+    }
+    assertThat(firstB).isPositive();
+  }
+}
@@ -3,6 +3,8 @@ package com.ubs.trading.pipeline;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import com.ubs.trading.metrics.MetricsRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
@@ -112,4 +114,96 @@ class PipelineTest {
     p.execute("go");
     assertThat(goodSteps).hasValue(2);
   }
+
+  /* --------------------------------------------------------------- *
+   * 6. Fused execution of long chains
+   * --------------------------------------------------------------- */
+  @Test
+  @DisplayName("Chains longer than one fused block run every step in order, in both modes")
+  void longChainsAreFusedInOrder() {
+    for (boolean shortCircuit : new boolean[] {true, false}) {
+      Pipeline<String> p = Pipeline.named("ten", shortCircuit);
+      for (int i = 0; i < 10; i++) {
+        int n = i;
+        p = p.addAction(s -> s + n);
+      }
+
+      assertThat(p.compile()).isSameAs(p);
+      assertThat(p.execute(">")).isEqualTo(">0123456789");
+    }
+  }
+
+  /* --------------------------------------------------------------- *
+   * 7. addAction shares structure without aliasing
+   * --------------------------------------------------------------- */
+  @Test
+  @DisplayName("Branching from one pipeline yields independent pipelines")
+  void addActionBranchesIndependently() {
+    Pipeline<String> base = Pipeline.<String>named("base").addAction(s -> s + "a");
+    Pipeline<String> left = base.addAction(s -> s + "L");
+    Pipeline<String> right = base.addAction(s -> s + "R");
+
+    assertThat(base.execute("")).isEqualTo("a");
+    assertThat(left.execute("")).isEqualTo("aL");
+    assertThat(right.execute("")).isEqualTo("aR");
+    assertThat(base.size()).isEqualTo(1);
+    assertThat(Pipeline.<String>named("empty").execute("x")).isEqualTo("x");
+  }
+
+  /* --------------------------------------------------------------- *
+   * 8. Checked exceptions are wrapped, as before fusion
+   * --------------------------------------------------------------- */
+  @Test
+  @DisplayName("shortCircuit=true wraps a sneaky checked exception in RuntimeException")
+  void checkedExceptionIsWrapped() {
+    Pipeline<String> p =
+        Pipeline.build("checked", true, String::trim, s -> sneakyThrow(new Exception("io")));
+
+    assertThatThrownBy(() -> p.execute("x"))
+        .isInstanceOf(RuntimeException.class)
+        .hasMessageContaining("io");
+  }
+
+  /* --------------------------------------------------------------- *
+   * 9. Sampled per-step instrumentation
+   * --------------------------------------------------------------- */
+  @Test
+  @DisplayName("instrument() times every Nth message per step, tagged by label or index")
+  void instrumentedStepsAreSampled() {
+    try (MetricsRecorder metrics = new MetricsRecorder(new SimpleMeterRegistry())) {
+      Pipeline<String> p =
+          Pipeline.<String>named("orders")
+              .addAction("enrich", s -> s + "e")
+              .addAction(s -> s + "r")
+              .instrument(metrics, 4);
+
+      for (int i = 0; i < 100; i++) {
+        assertThat(p.execute(">")).isEqualTo(">er");
+      }
+
+      assertThat(p.isInstrumented()).isTrue();
+      assertThat(metrics.stage("orders", "enrich").snapshot().count()).isEqualTo(25);
+      assertThat(metrics.stage("orders", "1").snapshot().count()).isEqualTo(25);
+    }
+  }
+
+  @Test
+  @DisplayName("Instrumented lenient pipelines still skip a failing step")
+  void instrumentedLenientSkipsFailure() {
+    try (MetricsRecorder metrics = new MetricsRecorder(new SimpleMeterRegistry())) {
+      Pipeline<String> p =
+          Pipeline.<String>named("lenient", false)
+              .addAction("boom", s -> sneakyThrow(new IllegalStateException()))
+              .addAction("bang", s -> s + "!")
+              .instrument(metrics, 1);
+
+      assertThat(p.execute("x")).isEqualTo("x!");
+      assertThat(metrics.stage("lenient", "boom").snapshot().count()).isEqualTo(1);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E extends Throwable> String sneakyThrow(Throwable t) throws E {
+    throw (E) t;
+  }
 }
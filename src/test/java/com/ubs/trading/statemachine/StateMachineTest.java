@@ -4,6 +4,8 @@ import com.ubs.trading.pipeline.Pipeline;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.*;
 
 /** Unit‑tests for {@link StateMachine}. */
@@ -60,4 +62,64 @@ class StateMachineTest {
                 .isInstanceOf(IllegalStateException.class)
                 .hasMessageContaining("No transition");
     }
+
+    /* ----------------------------------------------------------- *
+     *  Compiled (array-indexed) form
+     * ----------------------------------------------------------- */
+
+    private static final List<String> EVENTS = List.of("HELLO", "DATA", "FAIL");
+
+    private static StateMachine<State,String> compiled() {
+        return fsm().compile(EVENTS::indexOf, EVENTS.size());
+    }
+
+    @Test
+    @DisplayName("Compiled machine follows the same transitions as the map-backed one")
+    void compiledMatchesDynamic() {
+        StateMachine<State,String> sm = compiled();
+
+        assertThat(sm.isCompiled()).isTrue();
+        assertThat(sm.state()).isEqualTo(State.IDLE);
+        assertThat(sm.onEvent("HELLO")).isSameAs(HELLO_PIPELINE);
+        assertThat(sm.onEvent("DATA")).isSameAs(DATA_PIPELINE);
+        assertThat(sm.onEvent("FAIL")).isSameAs(ERROR_PIPELINE);
+        assertThat(sm.state()).isEqualTo(State.ERROR);
+    }
+
+    @Test
+    @DisplayName("Compiled machine rejects undefined and unknown events")
+    void compiledUndefinedTransitionThrows() {
+        StateMachine<State,String> sm = compiled();
+
+        assertThatThrownBy(() -> sm.onEvent("DATA"))          // defined, not from IDLE
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("No transition");
+        assertThatThrownBy(() -> sm.onEvent("BOGUS"))         // code -1
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("No transition");
+        assertThat(sm.state()).isEqualTo(State.IDLE);
+    }
+
+    @Test
+    @DisplayName("Compiled machine is immutable; copies start at the initial state")
+    void compiledIsFrozen() {
+        StateMachine<State,String> sm = compiled();
+        sm.onEvent("HELLO");
+
+        assertThatThrownBy(() -> sm.add(State.ERROR, "HELLO", State.IDLE, HELLO_PIPELINE))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(sm.copy().state()).isEqualTo(State.IDLE);
+        assertThat(sm.copy().isCompiled()).isTrue();
+    }
+
+    @Test
+    @DisplayName("compile() rejects codes that are out of range or shared")
+    void compileValidatesCodes() {
+        assertThatThrownBy(() -> fsm().compile(e -> 0, 1))      // ACTIVE: DATA and FAIL collide
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("reuses code");
+        assertThatThrownBy(() -> fsm().compile(e -> 5, 3))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("outside");
+    }
 }
@@ -0,0 +1,110 @@
+package com.ubs.trading.statemachine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/** Scheduling, cancellation and expiry order of {@link TimerWheel}. */
+class TimerWheelTest {
+
+    private static final long TICK = 1_000;
+
+    private final List<Long> fired = new ArrayList<>();
+
+    /* 8 buckets of 1µs, tick 0 at t = 0 */
+    private static TimerWheel wheel(int capacity) {
+        return TimerWheel.builder()
+                .tick(Duration.ofNanos(TICK))
+                .wheelSize(8)
+                .capacity(capacity)
+                .origin(0)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Timers fire once their deadline tick has passed, never early")
+    void firesWhenDue() {
+        TimerWheel w = wheel(16);
+        w.schedule(1, 0, 2_500);                      // rounds up to tick 3
+        w.schedule(2, 0, 5_000);
+
+        assertThat(w.poll(2_999, (k, kind) -> fired.add(k))).isZero();
+        assertThat(w.poll(3_000, (k, kind) -> fired.add(k))).isEqualTo(1);
+        assertThat(w.poll(6_000, (k, kind) -> fired.add(k))).isEqualTo(1);
+        assertThat(fired).containsExactly(1L, 2L);
+        assertThat(w.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deadlines beyond one revolution wait for their own revolution")
+    void multipleRevolutions() {
+        TimerWheel w = wheel(16);
+        w.schedule(1, 0, 3_000);
+        w.schedule(2, 0, 11_000);                     // same bucket, next revolution
+        w.schedule(3, 0, 43_000);                     // four revolutions out
+
+        w.poll(3_000, (k, kind) -> fired.add(k));
+        assertThat(fired).containsExactly(1L);
+        w.poll(10_999, (k, kind) -> fired.add(k));
+        assertThat(fired).containsExactly(1L);
+        w.poll(11_000, (k, kind) -> fired.add(k));
+        assertThat(fired).containsExactly(1L, 2L);
+        w.poll(1_000_000, (k, kind) -> fired.add(k)); // long gap: one sweep
+        assertThat(fired).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    @DisplayName("Cancelled timers never fire; stale ids are harmless no-ops")
+    void cancel() {
+        TimerWheel w = wheel(1);
+        long id = w.schedule(1, 0, 2_000);
+        assertThat(id).isNotEqualTo(TimerWheel.NONE);
+        assertThat(w.cancel(id)).isTrue();
+        assertThat(w.cancel(id)).isFalse();
+
+        long reused = w.schedule(2, 0, 2_000);         // same slot, new generation
+        assertThat(w.cancel(id)).isFalse();
+        w.poll(2_000, (k, kind) -> fired.add(k));
+        assertThat(fired).containsExactly(2L);
+        assertThat(w.cancel(reused)).isFalse();
+        assertThat(w.cancelledCount()).isEqualTo(1);
+        assertThat(w.firedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("An expiry may cancel a timer due in the same poll and schedule new ones")
+    void reentrantExpiry() {
+        TimerWheel w = wheel(4);
+        w.schedule(1, 7, 1_000);
+        long sibling = w.schedule(2, 7, 1_000);
+
+        w.poll(1_000, (k, kind) -> {
+            fired.add(k);
+            assertThat(kind).isEqualTo(7);
+            w.cancel(sibling);
+            w.schedule(3, 0, 0);                       // already overdue: next poll
+        });
+        assertThat(fired).containsExactly(1L);
+
+        w.poll(1_000, (k, kind) -> fired.add(k));
+        assertThat(fired).containsExactly(1L, 3L);
+    }
+
+    @Test
+    @DisplayName("A full wheel refuses new timers until one is released")
+    void capacity() {
+        TimerWheel w = wheel(2);
+        w.schedule(1, 0, 1_000);
+        long id = w.schedule(2, 0, 1_000);
+
+        assertThatThrownBy(() -> w.schedule(3, 0, 1_000)).isInstanceOf(IllegalStateException.class);
+        w.cancel(id);
+        w.schedule(3, 0, 1_000);
+        assertThat(w.size()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,159 @@
+package com.ubs.trading.statestore;
+
+import com.ubs.trading.pipeline.Pipeline;
+import com.ubs.trading.statemachine.StateMachine;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+/** Unit-tests for {@link StateStore} and {@link StoredStateMachine}. */
+class StateStoreTest {
+
+    private enum OrdState { NEW, PART_FILLED, FILLED }
+
+    private static StateStore store(boolean offHeap) {
+        return StateStore.builder()
+                .capacity(1_000)
+                .attributes(2)
+                .offHeap(offHeap)
+                .terminal(OrdState.FILLED)
+                .build();
+    }
+
+    @Test
+    @DisplayName("put / state / attribute / remove round-trip on and off heap")
+    void basicOperations() {
+        for (boolean offHeap : new boolean[] {false, true}) {
+            StateStore s = store(offHeap);
+
+            assertThat(s.state(42)).isEqualTo(StateStore.MISSING);
+            assertThat(s.put(42, OrdState.NEW.ordinal())).isTrue();
+            assertThat(s.attribute(42, 1, 500L)).isTrue();
+            assertThat(s.put(42, OrdState.PART_FILLED.ordinal())).isTrue();
+
+            assertThat(s.state(42)).isEqualTo(OrdState.PART_FILLED.ordinal());
+            assertThat(s.attribute(42, 1)).isEqualTo(500L);
+            assertThat(s.size()).isEqualTo(1);
+
+            assertThat(s.remove(42)).isTrue();
+            assertThat(s.contains(42)).isFalse();
+            assertThat(s.attribute(42, 1, 1L)).isFalse();
+        }
+    }
+
+    @Test
+    @DisplayName("Writing a terminal state evicts the entry")
+    void terminalStateRemovesEntry() {
+        StateStore s = store(false);
+        s.put(7, OrdState.NEW.ordinal());
+
+        assertThat(s.put(7, OrdState.FILLED.ordinal())).isFalse();
+        assertThat(s.contains(7)).isFalse();
+        assertThat(s.size()).isZero();
+        assertThat(s.terminalRemovals()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Random churn matches a HashMap model (backward-shift deletion)")
+    void churnMatchesModel() {
+        StateStore s = store(true);
+        Map<Long, Integer> model = new HashMap<>();
+        Random rnd = new Random(17);
+
+        for (int i = 0; i < 200_000; i++) {
+            long key = rnd.nextInt(1_500);                 // dense keys → long chains
+            if (rnd.nextInt(3) == 0) {
+                assertThat(s.remove(key)).isEqualTo(model.remove(key) != null);
+            } else if (model.size() < s.capacity() || model.containsKey(key)) {
+                s.put(key, 1);
+                model.put(key, 1);
+            }
+        }
+
+        assertThat(s.size()).isEqualTo(model.size());
+        for (long k = 0; k < 1_500; k++) {
+            assertThat(s.contains(k)).isEqualTo(model.containsKey(k));
+        }
+        assertThat(s.occupancy()).isLessThanOrEqualTo(0.7);
+        assertThat(s.meanProbeLength()).isGreaterThanOrEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Inserting beyond capacity fails loudly")
+    void fullStoreThrows() {
+        StateStore s = StateStore.builder().capacity(2).build();
+        s.put(1, 0);
+        s.put(2, 0);
+
+        assertThatThrownBy(() -> s.put(3, 0)).isInstanceOf(IllegalStateException.class);
+    }
+
+    /* ----------------------------------------------------------- *
+     *  StoredStateMachine
+     * ----------------------------------------------------------- */
+
+    record Exec(long orderId, char execType) { }
+
+    private static final Pipeline<Exec> RISK = Pipeline.build("risk", true, e -> e);
+    private static final Pipeline<Exec> PNL  = Pipeline.build("pnl",  true, e -> e);
+
+    @Test
+    @DisplayName("One compiled table drives many entities held in the store")
+    void storedStateMachineTracksEntities() {
+        StateMachine<OrdState, Exec> fsm = new StateMachine<OrdState, Exec>(OrdState.NEW)
+                .add(OrdState.NEW,         new Exec(0, '0'), OrdState.PART_FILLED, RISK)
+                .add(OrdState.PART_FILLED, new Exec(0, '2'), OrdState.FILLED,      PNL)
+                .compile(s -> s.ordinal(), OrdState.values().length,
+                         e -> e.execType() - '0', 3);
+
+        StoredStateMachine<OrdState, Exec> orders =
+                new StoredStateMachine<>(fsm, store(false), Exec::orderId);
+
+        assertThat(orders.onEvent(new Exec(1, '0'))).isSameAs(RISK);
+        assertThat(orders.onEvent(new Exec(2, '0'))).isSameAs(RISK);
+        assertThat(orders.onEvent(new Exec(1, '2'))).isSameAs(PNL);
+
+        assertThat(orders.stateOf(2)).isEqualTo(OrdState.PART_FILLED);
+        assertThat(orders.store().contains(1)).isFalse();          // FILLED → evicted
+        assertThat(orders.onEvent(new Exec(3, '2'))).isNull();       // no transition: ignored
+        assertThat(orders.store().contains(3)).isFalse();
+    }
+
+    @Test
+    @DisplayName("A late event after FILLED is ignored; a kept terminal state also stops a restart")
+    void lateEventAfterTerminal() {
+        StateMachine<OrdState, Exec> fsm = new StateMachine<OrdState, Exec>(OrdState.NEW)
+                .add(OrdState.NEW,         new Exec(0, '0'), OrdState.PART_FILLED, RISK)
+                .add(OrdState.PART_FILLED, new Exec(0, '2'), OrdState.FILLED,      PNL)
+                .compile(s -> s.ordinal(), OrdState.values().length,
+                         e -> e.execType() - '0', 3);
+
+        StoredStateMachine<OrdState, Exec> evicting =
+                new StoredStateMachine<>(fsm, store(false), Exec::orderId);
+        evicting.onEvent(new Exec(1, '0'));
+        evicting.onEvent(new Exec(1, '2'));
+        assertThat(evicting.onEvent(new Exec(1, '2'))).isNull();     // duplicate fill
+        assertThat(evicting.onEvent(new Exec(1, '0'))).isSameAs(RISK); // evicted: looks new
+
+        StateStore kept = StateStore.builder()
+                .capacity(1_000)
+                .terminal(OrdState.FILLED)
+                .keepTerminal(true)
+                .build();
+        StoredStateMachine<OrdState, Exec> keeping = new StoredStateMachine<>(fsm, kept, Exec::orderId);
+        keeping.onEvent(new Exec(1, '0'));
+        keeping.onEvent(new Exec(1, '2'));
+        assertThat(keeping.onEvent(new Exec(1, '2'))).isNull();
+        assertThat(keeping.onEvent(new Exec(1, '0'))).isNull();
+        assertThat(keeping.stateOf(1)).isEqualTo(OrdState.FILLED);
+        assertThat(kept.terminalRemovals()).isZero();
+
+        assertThat(kept.remove(1)).isTrue();                         // swept
+        assertThat(keeping.onEvent(new Exec(1, '0'))).isSameAs(RISK);
+    }
+}